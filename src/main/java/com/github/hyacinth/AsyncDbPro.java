@@ -0,0 +1,205 @@
+package com.github.hyacinth;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * DbPro 的异步门面，查询与更新在 Config 所属的有界线程池中执行，立即返回 Future
+ * <p>
+ * 线程池饱和时由调用线程直接执行（背压），不会无限堆积任务；
+ * 调用线程处于事务中时，为保证使用同一个连接，直接在调用线程中执行并返回已完成的 Future
+ * <pre>
+ * 示例:
+ * Future&lt;List&lt;Map&lt;String, Object&gt;&gt;&gt; users = DbPro.use().async().find("select * from user");
+ * Future&lt;Long&gt; count = DbPro.use().async().queryLong("select count(*) from orders");
+ * render(users.get(), count.get());
+ * </pre>
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/2
+ * Time: 9:30
+ *
+ * @see Config#setAsyncPoolSize(int)
+ */
+public class AsyncDbPro {
+
+    private final DbPro dbPro;
+    private final Config config;
+
+    AsyncDbPro(DbPro dbPro, Config config) {
+        this.dbPro = dbPro;
+        this.config = config;
+    }
+
+    /**
+     * 提交任务，事务中直接在当前线程执行；异步执行时携带当前的"读己之写"写操作时间
+     */
+    <T> Future<T> submit(Callable<T> task) {
+        if (config.isInTransaction()) {
+            FutureTask<T> future = new FutureTask<T>(task);
+            future.run();
+            return future;
+        }
+        return config.getAsyncExecutor().submit(config.carryLastWriteTime(task));
+    }
+
+    /**
+     * @see DbPro#query(String, Object...)
+     */
+    public <T> Future<List<T>> query(final String sql, final Object... paras) {
+        return submit(new Callable<List<T>>() {
+            @Override
+            public List<T> call() {
+                return dbPro.query(sql, paras);
+            }
+        });
+    }
+
+    /**
+     * @see DbPro#queryFirst(String, Object...)
+     */
+    public <T> Future<T> queryFirst(final String sql, final Object... paras) {
+        return submit(new Callable<T>() {
+            @Override
+            public T call() {
+                return dbPro.queryFirst(sql, paras);
+            }
+        });
+    }
+
+    /**
+     * @see DbPro#queryLong(String, Object...)
+     */
+    public Future<Long> queryLong(final String sql, final Object... paras) {
+        return submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return dbPro.queryLong(sql, paras);
+            }
+        });
+    }
+
+    /**
+     * @see DbPro#queryColumnar(String, Object...)
+     */
+    public Future<ColumnarResult> queryColumnar(final String sql, final Object... paras) {
+        return submit(new Callable<ColumnarResult>() {
+            @Override
+            public ColumnarResult call() {
+                return dbPro.queryColumnar(sql, paras);
+            }
+        });
+    }
+
+    /**
+     * @see DbPro#find(String, Object...)
+     */
+    public Future<List<Map<String, Object>>> find(final String sql, final Object... paras) {
+        return submit(new Callable<List<Map<String, Object>>>() {
+            @Override
+            public List<Map<String, Object>> call() {
+                return dbPro.find(sql, paras);
+            }
+        });
+    }
+
+    /**
+     * @see DbPro#findFirst(String, Object...)
+     */
+    public Future<Map<String, Object>> findFirst(final String sql, final Object... paras) {
+        return submit(new Callable<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call() {
+                return dbPro.findFirst(sql, paras);
+            }
+        });
+    }
+
+    /**
+     * @see DbPro#findCompact(String, Object...)
+     */
+    public Future<List<Record>> findCompact(final String sql, final Object... paras) {
+        return submit(new Callable<List<Record>>() {
+            @Override
+            public List<Record> call() {
+                return dbPro.findCompact(sql, paras);
+            }
+        });
+    }
+
+    /**
+     * @see DbPro#paginate(int, int, String, Object...)
+     */
+    public Future<ProvidePage<Map<String, Object>>> paginate(final int pageNumber, final int pageSize, final String sql, final Object... paras) {
+        return submit(new Callable<ProvidePage<Map<String, Object>>>() {
+            @Override
+            public ProvidePage<Map<String, Object>> call() {
+                return dbPro.paginate(pageNumber, pageSize, sql, paras);
+            }
+        });
+    }
+
+    /**
+     * @see DbPro#update(String, Object...)
+     */
+    public Future<Integer> update(final String sql, final Object... paras) {
+        return submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return dbPro.update(sql, paras);
+            }
+        });
+    }
+
+    /**
+     * @see DbPro#batch(String, Object[][], int)
+     */
+    public Future<int[]> batch(final String sql, final Object[][] paras, final int batchSize) {
+        return submit(new Callable<int[]>() {
+            @Override
+            public int[] call() {
+                return dbPro.batch(sql, paras, batchSize);
+            }
+        });
+    }
+
+    /**
+     * @see DbPro#batch(List, int)
+     */
+    public Future<int[]> batch(final List<String> sqlList, final int batchSize) {
+        return submit(new Callable<int[]>() {
+            @Override
+            public int[] call() {
+                return dbPro.batch(sqlList, batchSize);
+            }
+        });
+    }
+
+    /**
+     * @see DbPro#batchSave(String, List, int)
+     */
+    public Future<int[]> batchSave(final String tableName, final List<Map<String, Object>> recordList, final int batchSize) {
+        return submit(new Callable<int[]>() {
+            @Override
+            public int[] call() {
+                return dbPro.batchSave(tableName, recordList, batchSize);
+            }
+        });
+    }
+
+    /**
+     * @see DbPro#batchUpdate(String, String, List, int)
+     */
+    public Future<int[]> batchUpdate(final String tableName, final String primaryKey, final List<Map<String, Object>> recordList, final int batchSize) {
+        return submit(new Callable<int[]>() {
+            @Override
+            public int[] call() {
+                return dbPro.batchUpdate(tableName, primaryKey, recordList, batchSize);
+            }
+        });
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.hyacinth;
+
+/**
+ * 流式批量执行的分批回调，每批执行（并提交）后调用
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/15
+ * Time: 10:05
+ *
+ * @see DbPro#batch(String, java.util.Iterator, int, BatchCallback)
+ */
+public interface BatchCallback {
+
+    /**
+     * 一批执行完成
+     *
+     * @param offset 本批第一行在全部输入中的序号（从0开始）
+     * @param counts 本批每一行的执行结果
+     */
+    void afterChunk(long offset, int[] counts);
+}
@@ -0,0 +1,43 @@
+package com.github.hyacinth;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 并行批量执行失败：包含已提交部分的汇总结果以及各分区的异常
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/15
+ * Time: 15:20
+ *
+ * @see DbPro#parallelBatch(String, java.util.Iterator, int, int, BatchCallback)
+ */
+public class BatchException extends HyacinthException {
+
+    private static final long serialVersionUID = -3155092713284467202L;
+
+    //失败前已提交的部分
+    private final BatchResult result;
+    private final List<Throwable> errors;
+
+    BatchException(String message, BatchResult result, List<Throwable> errors) {
+        super(message, errors.get(0));
+        this.result = result;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * 已执行并提交的部分
+     */
+    public BatchResult getResult() {
+        return result;
+    }
+
+    /**
+     * 各分区的异常，第一个同时作为 cause
+     */
+    public List<Throwable> getErrors() {
+        return errors;
+    }
+}
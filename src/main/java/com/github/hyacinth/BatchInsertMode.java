@@ -0,0 +1,28 @@
+package com.github.hyacinth;
+
+/**
+ * 批量插入方式
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/14
+ * Time: 9:30
+ *
+ * @see Config#setBatchInsertMode(BatchInsertMode)
+ */
+public enum BatchInsertMode {
+
+    /**
+     * 每行一条 insert 语句，通过 addBatch/executeBatch 批量提交（默认），
+     * 是否合并为多行语句取决于驱动（如 MySQL 的 rewriteBatchedStatements）
+     */
+    BATCH,
+
+    /**
+     * 将多行合并为一条 insert ... values (...), (...) 语句执行，
+     * 每条语句的行数不超过 batchSize 以及方言的参数个数、行数上限。
+     * 多行语句只返回总影响行数，总数与行数一致时每行记为 1，否则记为 Statement.SUCCESS_NO_INFO；
+     * 方言不支持或Sql不是 insert ... values(...) 形式时按 BATCH 执行
+     */
+    MULTI_ROW
+}
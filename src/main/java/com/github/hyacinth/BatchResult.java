@@ -0,0 +1,56 @@
+package com.github.hyacinth;
+
+import java.sql.Statement;
+
+/**
+ * 流式批量执行的汇总结果，不保留每一行的执行结果（需要时使用 BatchCallback）
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/15
+ * Time: 10:00
+ */
+public class BatchResult {
+
+    //执行的行数
+    private long rows;
+    //影响的总行数（驱动返回的各行结果之和）
+    private long updateCount;
+    //执行成功但驱动未返回影响行数（Statement.SUCCESS_NO_INFO）的行数
+    private long successNoInfo;
+    //执行的批次数
+    private int chunks;
+
+    void add(int[] counts) {
+        chunks++;
+        for (int count : counts) {
+            if (count >= 0)
+                updateCount += count;
+            else if (count == Statement.SUCCESS_NO_INFO)
+                successNoInfo++;
+        }
+        rows += counts.length;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    public long getSuccessNoInfo() {
+        return successNoInfo;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{rows=" + rows + ", updateCount=" + updateCount
+                + ", successNoInfo=" + successNoInfo + ", chunks=" + chunks + "}";
+    }
+}
@@ -0,0 +1,310 @@
+package com.github.hyacinth;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * 列读取策略
+ * <p>
+ * 根据列的JDBC类型以及Model中映射的Java类型，在解析结果集结构时为每一列选定一次读取方式，
+ * 读取数据时直接调用对应的 getXxx 方法，避免逐行逐列的类型判断
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/10/25
+ * Time: 9:40
+ */
+public abstract class ColumnReader {
+
+    //read 方法返回值的类型
+    private final Class<?> valueType;
+
+    protected ColumnReader(Class<?> valueType) {
+        this.valueType = valueType;
+    }
+
+    /**
+     * read 方法返回值的类型，OBJECT 策略为 Object.class
+     */
+    public Class<?> getValueType() {
+        return valueType;
+    }
+
+    /**
+     * 是否为数值型（整数或浮点数）读取策略，可使用 readLong/readDouble 直接读取原始类型
+     */
+    public boolean isNumeric() {
+        return Number.class.isAssignableFrom(valueType) && valueType != java.math.BigDecimal.class;
+    }
+
+    /**
+     * 读取当前行指定列的值
+     *
+     * @param rs    结果集
+     * @param index 列索引，从1开始
+     * @return 列值
+     */
+    public abstract Object read(ResultSet rs, int index) throws SQLException;
+
+    /**
+     * 以原始类型读取整数值，值为null时返回0，可通过 rs.wasNull() 判断
+     */
+    public long readLong(ResultSet rs, int index) throws SQLException {
+        return rs.getLong(index);
+    }
+
+    /**
+     * 以原始类型读取浮点数值，值为null时返回0，可通过 rs.wasNull() 判断
+     */
+    public double readDouble(ResultSet rs, int index) throws SQLException {
+        return rs.getDouble(index);
+    }
+
+    /**
+     * 是否为大字段类型（CLOB/NCLOB/BLOB）
+     */
+    public static boolean isLob(int jdbcType) {
+        return jdbcType == Types.CLOB || jdbcType == Types.NCLOB || jdbcType == Types.BLOB;
+    }
+
+    /**
+     * 根据Java类型选择读取策略，Java类型未知时根据JDBC类型选择
+     *
+     * @param javaType Model中映射的Java类型，可以为null
+     * @param jdbcType 列的JDBC类型 java.sql.Types
+     * @param signed   列是否为有符号数值
+     * @return 读取策略
+     */
+    public static ColumnReader of(Class<?> javaType, int jdbcType, boolean signed) {
+        if (javaType == null) {
+            return of(jdbcType, signed);
+        }
+        return of(javaType, jdbcType);
+    }
+
+    /**
+     * 根据JDBC类型选择读取策略
+     * <p>
+     * 只对能无损读取为原始类型的列使用对应的 getXxx 方法，读取结果与 getObject 的类型一致
+     * （JDBC规范中的默认映射）；无符号整数、DECIMAL、日期等交由驱动 getObject 处理
+     *
+     * @param jdbcType 列的JDBC类型 java.sql.Types
+     * @param signed   列是否为有符号数值
+     * @return 读取策略
+     */
+    public static ColumnReader of(int jdbcType, boolean signed) {
+        switch (jdbcType) {
+            case Types.BIGINT:
+                return signed ? LONG : OBJECT;
+            case Types.INTEGER:
+                // 无符号INT超出int范围，驱动（如MySQL）返回Long
+                return signed ? INT : LONG;
+            case Types.DOUBLE:
+            case Types.FLOAT:
+                return DOUBLE;
+            case Types.REAL:
+                return FLOAT;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return STRING;
+            case Types.CLOB:
+                return CLOB;
+            case Types.NCLOB:
+                return NCLOB;
+            case Types.BLOB:
+                return BLOB;
+            default:
+                return OBJECT;
+        }
+    }
+
+    /**
+     * 根据Java类型选择读取策略
+     *
+     * @param javaType Model中映射的Java类型，为null时使用 getObject
+     * @param jdbcType 列的JDBC类型 java.sql.Types
+     * @return 读取策略
+     */
+    public static ColumnReader of(Class<?> javaType, int jdbcType) {
+        // 大字段始终按JDBC类型处理
+        if (jdbcType == Types.CLOB) {
+            return CLOB;
+        } else if (jdbcType == Types.NCLOB) {
+            return NCLOB;
+        } else if (jdbcType == Types.BLOB) {
+            return BLOB;
+        }
+        if (javaType == null) {
+            return OBJECT;
+        }
+        if (javaType == Integer.class || javaType == int.class) {
+            return INT;
+        } else if (javaType == Long.class || javaType == long.class) {
+            return LONG;
+        } else if (javaType == Double.class || javaType == double.class) {
+            return DOUBLE;
+        } else if (javaType == Float.class || javaType == float.class) {
+            return FLOAT;
+        } else if (javaType == Short.class || javaType == short.class) {
+            return SHORT;
+        } else if (javaType == Boolean.class || javaType == boolean.class) {
+            return BOOLEAN;
+        } else if (javaType == String.class) {
+            return STRING;
+        } else if (javaType == java.math.BigDecimal.class) {
+            return BIG_DECIMAL;
+        } else if (javaType == java.sql.Timestamp.class) {
+            return TIMESTAMP;
+        } else if (javaType == java.sql.Date.class) {
+            return DATE;
+        } else if (javaType == java.sql.Time.class) {
+            return TIME;
+        } else if (javaType == byte[].class) {
+            return BYTES;
+        }
+        return OBJECT;
+    }
+
+    public static final ColumnReader OBJECT = new ColumnReader(Object.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getObject(index);
+        }
+    };
+
+    public static final ColumnReader INT = new ColumnReader(Integer.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            int value = rs.getInt(index);
+            return rs.wasNull() ? null : Integer.valueOf(value);
+        }
+
+        @Override
+        public long readLong(ResultSet rs, int index) throws SQLException {
+            return rs.getInt(index);
+        }
+
+        @Override
+        public double readDouble(ResultSet rs, int index) throws SQLException {
+            return rs.getInt(index);
+        }
+    };
+
+    public static final ColumnReader LONG = new ColumnReader(Long.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            long value = rs.getLong(index);
+            return rs.wasNull() ? null : Long.valueOf(value);
+        }
+
+        @Override
+        public double readDouble(ResultSet rs, int index) throws SQLException {
+            return rs.getLong(index);
+        }
+    };
+
+    public static final ColumnReader DOUBLE = new ColumnReader(Double.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            double value = rs.getDouble(index);
+            return rs.wasNull() ? null : Double.valueOf(value);
+        }
+
+        @Override
+        public long readLong(ResultSet rs, int index) throws SQLException {
+            return (long) rs.getDouble(index);
+        }
+    };
+
+    public static final ColumnReader FLOAT = new ColumnReader(Float.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            float value = rs.getFloat(index);
+            return rs.wasNull() ? null : Float.valueOf(value);
+        }
+    };
+
+    public static final ColumnReader SHORT = new ColumnReader(Short.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            short value = rs.getShort(index);
+            return rs.wasNull() ? null : Short.valueOf(value);
+        }
+    };
+
+    public static final ColumnReader BOOLEAN = new ColumnReader(Boolean.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            boolean value = rs.getBoolean(index);
+            return rs.wasNull() ? null : Boolean.valueOf(value);
+        }
+    };
+
+    public static final ColumnReader STRING = new ColumnReader(String.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getString(index);
+        }
+    };
+
+    public static final ColumnReader BIG_DECIMAL = new ColumnReader(java.math.BigDecimal.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getBigDecimal(index);
+        }
+    };
+
+    public static final ColumnReader TIMESTAMP = new ColumnReader(java.sql.Timestamp.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getTimestamp(index);
+        }
+    };
+
+    public static final ColumnReader DATE = new ColumnReader(java.sql.Date.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getDate(index);
+        }
+    };
+
+    public static final ColumnReader TIME = new ColumnReader(java.sql.Time.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getTime(index);
+        }
+    };
+
+    public static final ColumnReader BYTES = new ColumnReader(byte[].class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            return rs.getBytes(index);
+        }
+    };
+
+    public static final ColumnReader CLOB = new ColumnReader(String.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            return RsKit.handleClob(rs.getClob(index));
+        }
+    };
+
+    public static final ColumnReader NCLOB = new ColumnReader(String.class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            return RsKit.handleClob(rs.getNClob(index));
+        }
+    };
+
+    public static final ColumnReader BLOB = new ColumnReader(byte[].class) {
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            return RsKit.handleBlob(rs.getBlob(index));
+        }
+    };
+}
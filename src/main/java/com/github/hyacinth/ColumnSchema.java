@@ -0,0 +1,256 @@
+package com.github.hyacinth;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * 结果集列结构（列名、JDBC类型）以及由其派生的映射信息
+ * <p>
+ * 解析 ResultSetMetaData 需要逐列调用 getColumnLabel/getColumnType，部分驱动为此需要与数据库交互，
+ * 因此按 Config + Sql 缓存解析结果（见 Config#setSchemaCacheSize），相同Sql再次查询时直接复用。
+ * 复用前只校验列总数以及第一列、最后一列的列名，不一致时重新解析；按缓存的列结构读取数据出错时丢弃缓存，
+ * 下次查询重新解析。列数不变的表结构变更（如 select * 中间列的列名或类型改变）需开启
+ * Config#setStrictSchemaCheck 逐列校验，或变更后调用 Config#clearSchemaCache
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/10/27
+ * Time: 10:40
+ */
+public final class ColumnSchema {
+
+    final int columnCount;
+    // +1 是为了和ResultSet中索引同步（ResultSet索引从1开始），统一循环的起始索引为1
+    final String[] labelNames;
+    final int[] types;
+    //每一列的读取策略，根据JDBC类型选定
+    final ColumnReader[] readers;
+
+    //以下为派生信息，首次使用时创建
+    private volatile Record.Schema recordSchema;
+    private volatile CompiledSlot compiledSlot;
+    private volatile ColumnSchema lobSchema;
+    //lobSchema 对应的大字段读取方式与阈值
+    private LobMode lobMode = LobMode.EAGER;
+    private int lobThreshold;
+
+    ColumnSchema(String[] labelNames, int[] types, ColumnReader[] readers) {
+        this.columnCount = labelNames.length - 1;
+        this.labelNames = labelNames;
+        this.types = types;
+        this.readers = readers;
+    }
+
+    /**
+     * 解析结果集列结构，不使用缓存
+     */
+    public static ColumnSchema of(ResultSet rs) throws SQLException {
+        return of(rs.getMetaData());
+    }
+
+    private static ColumnSchema of(ResultSetMetaData rsmd) throws SQLException {
+        int columnCount = rsmd.getColumnCount();
+        String[] labelNames = new String[columnCount + 1];
+        int[] types = new int[columnCount + 1];
+        RsKit.bindLabelNamesAndTypes(rsmd, labelNames, types);
+        ColumnReader[] readers = new ColumnReader[columnCount + 1];
+        RsKit.bindReaders(rsmd, types, readers);
+        return new ColumnSchema(labelNames, types, readers);
+    }
+
+    /**
+     * 获取结果集列结构，优先从 Config 的缓存中获取
+     *
+     * @param config 配置，为null时不使用缓存
+     * @param sql    查询sql，为null时不使用缓存
+     * @param rs     结果集
+     * @return 列结构
+     */
+    public static ColumnSchema resolve(Config config, String sql, ResultSet rs) throws SQLException {
+        return resolve(config, sql, rs, false);
+    }
+
+    /**
+     * 获取结果集列结构，并按 Config 中的大字段读取方式选择大字段的读取策略
+     *
+     * @param streaming 是否为流式读取（游标），非流式读取时 LAZY 按 EAGER 处理
+     */
+    static ColumnSchema resolve(Config config, String sql, ResultSet rs, boolean streaming) throws SQLException {
+        return resolve(config, sql, rs, null, streaming);
+    }
+
+    /**
+     * @param lobMode 本次查询的大字段读取方式，为null时使用 Config 中的设置
+     * @see #resolve(Config, String, ResultSet, boolean)
+     */
+    static ColumnSchema resolve(Config config, String sql, ResultSet rs, LobMode lobMode, boolean streaming) throws SQLException {
+        ColumnSchema schema = resolveCached(config, sql, rs);
+        LobMode mode = effectiveLobMode(config, lobMode, streaming);
+        if (mode == LobMode.EAGER) {
+            return schema;
+        }
+        return schema.withLobMode(mode, config.lobSpoolThreshold);
+    }
+
+    /**
+     * 本次查询实际使用的大字段读取方式：LAZY 的句柄只在结果集打开期间有效，非流式读取时按 EAGER 处理，
+     * 不会隐式生成临时文件
+     */
+    static LobMode effectiveLobMode(Config config, LobMode lobMode, boolean streaming) {
+        if (config == null) {
+            return LobMode.EAGER;
+        }
+        LobMode mode = lobMode == null ? config.lobMode : lobMode;
+        if (mode == LobMode.LAZY && !streaming) {
+            mode = LobMode.EAGER;
+        }
+        return mode;
+    }
+
+    private static ColumnSchema resolveCached(Config config, String sql, ResultSet rs) throws SQLException {
+        ResultSetMetaData rsmd = rs.getMetaData();
+        if (config == null || sql == null || config.schemaCache == null) {
+            return of(rsmd);
+        }
+        ColumnSchema schema = config.schemaCache.get(sql);
+        // 校验列结构，检测表结构变更
+        if (schema != null && schema.matches(rsmd, config.strictSchemaCheck)) {
+            return schema;
+        }
+        schema = of(rsmd);
+        config.schemaCache.put(sql, schema);
+        return schema;
+    }
+
+    /**
+     * 丢弃 Sql 对应的缓存列结构，按缓存的列结构读取数据出错时调用
+     */
+    static void invalidate(Config config, String sql) {
+        if (config != null && sql != null && config.schemaCache != null) {
+            config.schemaCache.invalidate(sql);
+        }
+    }
+
+    /**
+     * 校验缓存的列结构与结果集元数据是否一致
+     *
+     * @param strict 为 true 时逐列校验列名与JDBC类型，否则只校验列总数以及第一列、最后一列的列名
+     */
+    private boolean matches(ResultSetMetaData rsmd, boolean strict) throws SQLException {
+        if (columnCount != rsmd.getColumnCount()) {
+            return false;
+        }
+        if (!strict) {
+            return columnCount == 0 || (labelMatches(rsmd, 1) && labelMatches(rsmd, columnCount));
+        }
+        for (int i = 1; i <= columnCount; i++) {
+            if (types[i] != rsmd.getColumnType(i)) {
+                return false;
+            }
+            if (!labelMatches(rsmd, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean labelMatches(ResultSetMetaData rsmd, int index) throws SQLException {
+        String label = rsmd.getColumnLabel(index);
+        return label == null ? labelNames[index] == null : label.equals(labelNames[index]);
+    }
+
+    /**
+     * 按指定的大字段读取方式派生列结构，没有大字段或为 EAGER 时返回自身
+     */
+    ColumnSchema withLobMode(LobMode mode, int threshold) {
+        if (mode == LobMode.EAGER || !hasLob()) {
+            return this;
+        }
+        ColumnSchema derived = lobSchema;
+        if (derived != null && derived.lobMode == mode && derived.lobThreshold == threshold) {
+            return derived;
+        }
+        ColumnReader[] lobReaders = readers.clone();
+        for (int i = 1; i <= columnCount; i++) {
+            if (ColumnReader.isLob(types[i])) {
+                lobReaders[i] = LobHandle.reader(types[i], mode, threshold);
+            }
+        }
+        derived = new ColumnSchema(labelNames, types, lobReaders);
+        derived.lobMode = mode;
+        derived.lobThreshold = threshold;
+        lobSchema = derived;
+        return derived;
+    }
+
+    private boolean hasLob() {
+        for (int i = 1; i <= columnCount; i++) {
+            if (ColumnReader.isLob(types[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * 获取列名（别名），索引从1开始
+     */
+    public String getLabel(int index) {
+        return labelNames[index];
+    }
+
+    /**
+     * 获取列的数据类型 java.sql.Types，索引从1开始
+     */
+    public int getType(int index) {
+        return types[index];
+    }
+
+    /**
+     * 获取列的读取策略，索引从1开始
+     */
+    public ColumnReader getReader(int index) {
+        return readers[index];
+    }
+
+    /**
+     * 紧凑型Record共享的列结构
+     */
+    Record.Schema recordSchema() {
+        Record.Schema schema = recordSchema;
+        if (schema == null) {
+            schema = new Record.Schema(labelNames);
+            recordSchema = schema;
+        }
+        return schema;
+    }
+
+    /**
+     * 当前列结构对应的Model映射器，缓存最近一次使用的Model类
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    <M extends Model> MapperCompiler.CompiledMapper<M> compiledMapper(Class<M> modelClass) {
+        CompiledSlot slot = compiledSlot;
+        if (slot != null && slot.modelClass == modelClass) {
+            return (MapperCompiler.CompiledMapper<M>) slot.mapper;
+        }
+        MapperCompiler.CompiledMapper<M> mapper = MapperCompiler.compile(modelClass, this);
+        compiledSlot = new CompiledSlot(modelClass, mapper);
+        return mapper;
+    }
+
+    private static final class CompiledSlot {
+        final Class<?> modelClass;
+        final MapperCompiler.CompiledMapper<?> mapper;
+
+        CompiledSlot(Class<?> modelClass, MapperCompiler.CompiledMapper<?> mapper) {
+            this.modelClass = modelClass;
+            this.mapper = mapper;
+        }
+    }
+}
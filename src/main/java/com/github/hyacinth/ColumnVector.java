@@ -0,0 +1,645 @@
+package com.github.hyacinth;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * 列式查询结果中的一列
+ * <p>
+ * 整数、浮点数列直接保存在原始类型数组中，字符串列按字典编码（重复值只保存一份），
+ * 其余类型保存为 Object[]；每一列都有独立的null位图，原始类型数组中null位置的值为0
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/10/31
+ * Time: 14:10
+ */
+public abstract class ColumnVector {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    //列存储类型，用于二进制序列化
+    private static final byte LONG = 1;
+    private static final byte INT = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte STRING = 4;
+    private static final byte OBJECT = 5;
+
+    //ObjectVector 中值的类型标记，按类型写出，不使用Java序列化
+    private static final byte NULL_VALUE = 0;
+    private static final byte INTEGER_VALUE = 1;
+    private static final byte LONG_VALUE = 2;
+    private static final byte SHORT_VALUE = 3;
+    private static final byte BYTE_VALUE = 4;
+    private static final byte DOUBLE_VALUE = 5;
+    private static final byte FLOAT_VALUE = 6;
+    private static final byte STRING_VALUE = 7;
+    private static final byte DECIMAL_VALUE = 8;
+    private static final byte BIG_INTEGER_VALUE = 9;
+    private static final byte BOOLEAN_VALUE = 10;
+    private static final byte TIMESTAMP_VALUE = 11;
+    private static final byte SQL_DATE_VALUE = 12;
+    private static final byte SQL_TIME_VALUE = 13;
+    private static final byte DATE_VALUE = 14;
+    private static final byte BYTES_VALUE = 15;
+
+    private final String label;
+    private final int type;
+    int size;
+    //null位图，每一位对应一行
+    private long[] nulls = new long[INITIAL_CAPACITY >> 6];
+
+    ColumnVector(String label, int type) {
+        this.label = label;
+        this.type = type;
+    }
+
+    /**
+     * 根据列的读取策略创建列
+     *
+     * @param label  列名
+     * @param type   JDBC类型 java.sql.Types
+     * @param reader 读取策略
+     * @return 列
+     */
+    static ColumnVector create(String label, int type, ColumnReader reader) {
+        if (reader == ColumnReader.LONG) {
+            return new LongVector(label, type, INITIAL_CAPACITY);
+        } else if (reader == ColumnReader.INT || reader == ColumnReader.SHORT) {
+            return new IntVector(label, type, INITIAL_CAPACITY);
+        } else if (reader == ColumnReader.DOUBLE || reader == ColumnReader.FLOAT) {
+            return new DoubleVector(label, type, INITIAL_CAPACITY);
+        } else if (reader.getValueType() == String.class) {
+            return new StringVector(label, type, reader, INITIAL_CAPACITY);
+        }
+        return new ObjectVector(label, type, reader, INITIAL_CAPACITY);
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * 列的数据类型 java.sql.Types
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * 行数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 指定行的值是否为null，行索引从0开始
+     */
+    public boolean isNull(int row) {
+        checkRow(row);
+        int word = row >> 6;
+        return word < nulls.length && (nulls[word] & (1L << row)) != 0;
+    }
+
+    /**
+     * 以对象形式获取指定行的值（数值会装箱），行索引从0开始
+     */
+    public abstract Object getObject(int row);
+
+    /**
+     * 读取结果集当前行的值追加到列尾
+     */
+    abstract void append(ResultSet rs, int index) throws SQLException;
+
+    abstract byte kind();
+
+    abstract void writeValues(DataOutput out) throws IOException;
+
+    abstract void readValues(DataInput in) throws IOException;
+
+    final void checkRow(int row) {
+        if (row < 0 || row >= size)
+            throw new IndexOutOfBoundsException("row: " + row + ", size: " + size);
+    }
+
+    final void markNull(int row) {
+        int word = row >> 6;
+        if (word >= nulls.length) {
+            nulls = Arrays.copyOf(nulls, Math.max(word + 1, nulls.length + (nulls.length >> 1)));
+        }
+        nulls[word] |= 1L << row;
+    }
+
+    static int grow(int capacity) {
+        return capacity + (capacity >> 1) + 1;
+    }
+
+    /**
+     * 写出列：列名、类型、行数、null位图、数据
+     */
+    final void write(DataOutput out) throws IOException {
+        out.writeByte(kind());
+        writeString(out, label);
+        out.writeInt(type);
+        out.writeInt(size);
+        int words = (size + 63) >> 6;
+        for (int i = 0; i < words; i++) {
+            out.writeLong(i < nulls.length ? nulls[i] : 0L);
+        }
+        writeValues(out);
+    }
+
+    static ColumnVector read(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        String label = readString(in);
+        int type = in.readInt();
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid column size: " + size);
+        }
+        ColumnVector vector;
+        switch (kind) {
+            case LONG:
+                vector = new LongVector(label, type, size);
+                break;
+            case INT:
+                vector = new IntVector(label, type, size);
+                break;
+            case DOUBLE:
+                vector = new DoubleVector(label, type, size);
+                break;
+            case STRING:
+                vector = new StringVector(label, type, ColumnReader.STRING, size);
+                break;
+            case OBJECT:
+                vector = new ObjectVector(label, type, ColumnReader.OBJECT, size);
+                break;
+            default:
+                throw new IOException("Unknown column kind: " + kind);
+        }
+        long[] nulls = new long[Math.max(1, (size + 63) >> 6)];
+        for (int i = 0; i < (size + 63) >> 6; i++) {
+            nulls[i] = in.readLong();
+        }
+        vector.nulls = nulls;
+        vector.size = size;
+        vector.readValues(in);
+        return vector;
+    }
+
+    /**
+     * 整数列（BIGINT）
+     */
+    public static final class LongVector extends ColumnVector {
+        private long[] values;
+
+        LongVector(String label, int type, int capacity) {
+            super(label, type);
+            this.values = new long[Math.max(1, capacity)];
+        }
+
+        public long getLong(int row) {
+            checkRow(row);
+            return values[row];
+        }
+
+        /**
+         * 复制为数组，null位置的值为0
+         */
+        public long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : Long.valueOf(values[row]);
+        }
+
+        @Override
+        void append(ResultSet rs, int index) throws SQLException {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size));
+            }
+            long value = rs.getLong(index);
+            if (rs.wasNull()) {
+                markNull(size);
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        byte kind() {
+            return LONG;
+        }
+
+        @Override
+        void writeValues(DataOutput out) throws IOException {
+            for (int i = 0; i < size; i++) {
+                out.writeLong(values[i]);
+            }
+        }
+
+        @Override
+        void readValues(DataInput in) throws IOException {
+            for (int i = 0; i < size; i++) {
+                values[i] = in.readLong();
+            }
+        }
+    }
+
+    /**
+     * 整数列（INTEGER、SMALLINT等）
+     */
+    public static final class IntVector extends ColumnVector {
+        private int[] values;
+
+        IntVector(String label, int type, int capacity) {
+            super(label, type);
+            this.values = new int[Math.max(1, capacity)];
+        }
+
+        public int getInt(int row) {
+            checkRow(row);
+            return values[row];
+        }
+
+        /**
+         * 复制为数组，null位置的值为0
+         */
+        public int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : Integer.valueOf(values[row]);
+        }
+
+        @Override
+        void append(ResultSet rs, int index) throws SQLException {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size));
+            }
+            int value = rs.getInt(index);
+            if (rs.wasNull()) {
+                markNull(size);
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        byte kind() {
+            return INT;
+        }
+
+        @Override
+        void writeValues(DataOutput out) throws IOException {
+            for (int i = 0; i < size; i++) {
+                out.writeInt(values[i]);
+            }
+        }
+
+        @Override
+        void readValues(DataInput in) throws IOException {
+            for (int i = 0; i < size; i++) {
+                values[i] = in.readInt();
+            }
+        }
+    }
+
+    /**
+     * 浮点数列（DOUBLE、FLOAT、REAL）
+     */
+    public static final class DoubleVector extends ColumnVector {
+        private double[] values;
+
+        DoubleVector(String label, int type, int capacity) {
+            super(label, type);
+            this.values = new double[Math.max(1, capacity)];
+        }
+
+        public double getDouble(int row) {
+            checkRow(row);
+            return values[row];
+        }
+
+        /**
+         * 复制为数组，null位置的值为0
+         */
+        public double[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : Double.valueOf(values[row]);
+        }
+
+        @Override
+        void append(ResultSet rs, int index) throws SQLException {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size));
+            }
+            double value = rs.getDouble(index);
+            if (rs.wasNull()) {
+                markNull(size);
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        byte kind() {
+            return DOUBLE;
+        }
+
+        @Override
+        void writeValues(DataOutput out) throws IOException {
+            for (int i = 0; i < size; i++) {
+                out.writeDouble(values[i]);
+            }
+        }
+
+        @Override
+        void readValues(DataInput in) throws IOException {
+            for (int i = 0; i < size; i++) {
+                values[i] = in.readDouble();
+            }
+        }
+    }
+
+    /**
+     * 字符串列，按字典编码：每一行只保存字典中的编号
+     */
+    public static final class StringVector extends ColumnVector {
+        private final ColumnReader reader;
+        private int[] codes;
+        private final List<String> dictionary = new ArrayList<String>();
+        private final Map<String, Integer> lookup = new HashMap<String, Integer>();
+
+        StringVector(String label, int type, ColumnReader reader, int capacity) {
+            super(label, type);
+            this.reader = reader;
+            this.codes = new int[Math.max(1, capacity)];
+        }
+
+        public String getString(int row) {
+            checkRow(row);
+            int code = codes[row];
+            return code < 0 ? null : dictionary.get(code);
+        }
+
+        /**
+         * 获取指定行在字典中的编号，null为 -1
+         */
+        public int getCode(int row) {
+            checkRow(row);
+            return codes[row];
+        }
+
+        /**
+         * 字典（去重后的所有值），按首次出现的顺序
+         */
+        public List<String> getDictionary() {
+            return Collections.unmodifiableList(dictionary);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return getString(row);
+        }
+
+        @Override
+        void append(ResultSet rs, int index) throws SQLException {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, grow(size));
+            }
+            String value = (String) reader.read(rs, index);
+            if (value == null) {
+                markNull(size);
+                codes[size++] = -1;
+                return;
+            }
+            codes[size++] = encode(value);
+        }
+
+        private int encode(String value) {
+            Integer code = lookup.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                lookup.put(value, code);
+            }
+            return code;
+        }
+
+        @Override
+        byte kind() {
+            return STRING;
+        }
+
+        @Override
+        void writeValues(DataOutput out) throws IOException {
+            out.writeInt(dictionary.size());
+            for (String value : dictionary) {
+                writeString(out, value);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeInt(codes[i]);
+            }
+        }
+
+        @Override
+        void readValues(DataInput in) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                encode(readString(in));
+            }
+            for (int i = 0; i < size; i++) {
+                codes[i] = in.readInt();
+            }
+        }
+    }
+
+    /**
+     * 其他类型的列（DECIMAL、日期、二进制等），值按对象保存
+     */
+    public static final class ObjectVector extends ColumnVector {
+        private final ColumnReader reader;
+        private Object[] values;
+
+        ObjectVector(String label, int type, ColumnReader reader, int capacity) {
+            super(label, type);
+            this.reader = reader;
+            this.values = new Object[Math.max(1, capacity)];
+        }
+
+        @Override
+        public Object getObject(int row) {
+            checkRow(row);
+            return values[row];
+        }
+
+        @Override
+        void append(ResultSet rs, int index) throws SQLException {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size));
+            }
+            Object value = reader.read(rs, index);
+            if (value == null) {
+                markNull(size);
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        byte kind() {
+            return OBJECT;
+        }
+
+        @Override
+        void writeValues(DataOutput out) throws IOException {
+            for (int i = 0; i < size; i++) {
+                writeValue(out, values[i]);
+            }
+        }
+
+        @Override
+        void readValues(DataInput in) throws IOException {
+            for (int i = 0; i < size; i++) {
+                values[i] = readValue(in);
+            }
+        }
+    }
+    /**
+     * 字符串按长度 + UTF-8 字节写出，不受 writeUTF 的 64K 限制
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        return new String(readBytes(in), "UTF-8");
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * 按类型标记写出 ObjectVector 中的值，只支持常见的JDBC值类型，读取时不会实例化其他类
+     */
+    private static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL_VALUE);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER_VALUE);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG_VALUE);
+            out.writeLong((Long) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT_VALUE);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE_VALUE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE_VALUE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT_VALUE);
+            out.writeFloat((Float) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING_VALUE);
+            writeString(out, (String) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL_VALUE);
+            writeString(out, value.toString());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER_VALUE);
+            writeString(out, value.toString());
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN_VALUE);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP_VALUE);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(SQL_DATE_VALUE);
+            out.writeLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof Time) {
+            out.writeByte(SQL_TIME_VALUE);
+            out.writeLong(((Time) value).getTime());
+        } else if (value instanceof java.util.Date) {
+            out.writeByte(DATE_VALUE);
+            out.writeLong(((java.util.Date) value).getTime());
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES_VALUE);
+            out.writeInt(((byte[]) value).length);
+            out.write((byte[]) value);
+        } else {
+            throw new IOException("Unsupported columnar value type: " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL_VALUE:
+                return null;
+            case INTEGER_VALUE:
+                return in.readInt();
+            case LONG_VALUE:
+                return in.readLong();
+            case SHORT_VALUE:
+                return in.readShort();
+            case BYTE_VALUE:
+                return in.readByte();
+            case DOUBLE_VALUE:
+                return in.readDouble();
+            case FLOAT_VALUE:
+                return in.readFloat();
+            case STRING_VALUE:
+                return readString(in);
+            case DECIMAL_VALUE:
+                return new BigDecimal(readString(in));
+            case BIG_INTEGER_VALUE:
+                return new BigInteger(readString(in));
+            case BOOLEAN_VALUE:
+                return in.readBoolean();
+            case TIMESTAMP_VALUE: {
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            }
+            case SQL_DATE_VALUE:
+                return new java.sql.Date(in.readLong());
+            case SQL_TIME_VALUE:
+                return new Time(in.readLong());
+            case DATE_VALUE:
+                return new java.util.Date(in.readLong());
+            case BYTES_VALUE:
+                return readBytes(in);
+            default:
+                throw new IOException("Unknown columnar value type: " + tag);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.github.hyacinth;
+
+import java.io.*;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 列式查询结果
+ * <p>
+ * 按列保存数据：BIGINT 保存为 long[]，INTEGER/SMALLINT 保存为 int[]，DOUBLE/FLOAT/REAL 保存为 double[]，
+ * 字符串按字典编码，其余类型保存为 Object[]。相比 List&lt;Object[]&gt; 省去了每行的数组以及每个数值的包装对象，
+ * 适用于大批量数值型数据的分析计算。数值列可通过 getColumn 取得对应的 ColumnVector 直接读取原始类型
+ * <pre>
+ * 示例:
+ * ColumnarResult result = DbPro.use().queryColumnar("select id, ts, value from metrics");
+ * ColumnVector.LongVector ids = (ColumnVector.LongVector) result.getColumn(1);
+ * ColumnVector.DoubleVector values = (ColumnVector.DoubleVector) result.getColumn("value");
+ * for (int row = 0; row &lt; result.getRowCount(); row++) {
+ *     sum += values.getDouble(row);
+ * }
+ * </pre>
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/10/31
+ * Time: 15:00
+ */
+public class ColumnarResult implements Iterable<Object[]> {
+
+    //二进制格式标识 "HYC2"，HYC1 以Java序列化写出非数值列，不再支持
+    private static final int MAGIC = 0x48594332;
+
+    //列，索引从0开始
+    private final ColumnVector[] columns;
+    private int rowCount;
+
+    ColumnarResult(ColumnSchema schema) {
+        this.columns = new ColumnVector[schema.columnCount];
+        for (int i = 1; i <= schema.columnCount; i++) {
+            columns[i - 1] = ColumnVector.create(schema.labelNames[i], schema.types[i], schema.readers[i]);
+        }
+    }
+
+    private ColumnarResult(ColumnVector[] columns, int rowCount) {
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * 读取结果集当前行追加到各列
+     */
+    void append(ResultSet rs) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].append(rs, i + 1);
+        }
+        rowCount++;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * 获取列，索引从1开始，与ResultSet一致
+     */
+    public ColumnVector getColumn(int index) {
+        return columns[index - 1];
+    }
+
+    /**
+     * 根据列名获取列，列名重复时返回第一列，不存在时返回null
+     */
+    public ColumnVector getColumn(String label) {
+        for (ColumnVector column : columns) {
+            if (column.getLabel().equals(label)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取指定行的所有列值（数值会装箱），行索引从0开始
+     */
+    public Object[] getRow(int row) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].getObject(row);
+        }
+        return values;
+    }
+
+    /**
+     * 按行遍历，每一行都会创建新的数组，数值型计算请直接使用 getColumn
+     */
+    @Override
+    public Iterator<Object[]> iterator() {
+        return new Iterator<Object[]>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return row < rowCount;
+            }
+
+            @Override
+            public Object[] next() {
+                if (row >= rowCount) {
+                    throw new NoSuchElementException();
+                }
+                return getRow(row++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * 以紧凑的二进制格式写出，用于缓存或暂存到磁盘，可通过 readFrom 读回
+     * 数值列按原始类型写出，字符串列写出字典与编号，其余类型按类型标记写出（DECIMAL、日期时间、二进制等），
+     * 不使用Java序列化，读取时不会实例化数据中指定的类；包含不支持的值类型时抛出 IOException
+     *
+     * @param out 输出流，写出后不会关闭
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+        dos.writeInt(MAGIC);
+        dos.writeInt(columns.length);
+        dos.writeInt(rowCount);
+        for (ColumnVector column : columns) {
+            column.write(dos);
+        }
+        dos.flush();
+    }
+
+    /**
+     * 读取 writeTo 写出的数据
+     *
+     * @param in 输入流，读取后不会关闭
+     * @return 列式查询结果
+     */
+    public static ColumnarResult readFrom(InputStream in) throws IOException {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(in));
+        if (dis.readInt() != MAGIC) {
+            throw new IOException("Not a columnar result stream");
+        }
+        int columnCount = dis.readInt();
+        int rowCount = dis.readInt();
+        if (columnCount < 0 || rowCount < 0) {
+            throw new IOException("Invalid columnar result header");
+        }
+        ColumnVector[] columns = new ColumnVector[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = ColumnVector.read(dis);
+            if (columns[i].size != rowCount) {
+                throw new IOException("Column " + i + " has " + columns[i].size + " rows, expected " + rowCount);
+            }
+        }
+        return new ColumnarResult(columns, rowCount);
+    }
+}
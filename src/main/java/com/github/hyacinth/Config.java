@@ -1,5 +1,7 @@
 package com.github.hyacinth;
 
+import com.github.hyacinth.cache.Cache;
+import com.github.hyacinth.cache.LruCache;
 import com.github.hyacinth.dialect.Dialect;
 import com.github.hyacinth.dialect.MysqlDialect;
 import com.github.hyacinth.tools.StringTools;
@@ -8,9 +10,20 @@ import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 核心配置对象
@@ -23,7 +36,8 @@ import java.sql.Statement;
 public class Config {
     private static final Logger LOGGER = LoggerFactory.getLogger(Config.class);
 
-    private final ThreadLocal<Connection> threadLocal = new ThreadLocal<Connection>();
+    //事务上下文
+    private volatile TransactionContext transactionContext = new ThreadLocalTransactionContext();
 
     //标识名
     String name;
@@ -35,6 +49,47 @@ public class Config {
     //是否展示Sql
     boolean showSql;
     Container container;
+    //流式查询每次从数据库读取的行数
+    int fetchSize = DEFAULT_FETCH_SIZE;
+    //结果集列结构缓存 sql -> 列结构，为null时不缓存
+    Cache<String, ColumnSchema> schemaCache;
+    //复用缓存的列结构前是否逐列校验列名与JDBC类型
+    boolean strictSchemaCheck;
+    //大字段读取方式
+    LobMode lobMode = LobMode.EAGER;
+    //SPOOL 模式下写入临时文件的阈值（字节数/字符数）
+    int lobSpoolThreshold = DEFAULT_LOB_SPOOL_THRESHOLD;
+    //批量插入方式
+    BatchInsertMode batchInsertMode = BatchInsertMode.BATCH;
+    //批量保存Model时是否回写数据库生成的主键
+    boolean batchGeneratedKeys;
+    //每个连接最多缓存的PreparedStatement数量，0 表示不缓存
+    int statementCacheSize;
+    //连接 -> 语句缓存，按对象标识区分连接（代理连接的equals不可靠）
+    private final Map<Connection, StatementCache> statementCaches = new IdentityHashMap<Connection, StatementCache>();
+    private final Lock statementLock = new ReentrantLock();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    //异步执行线程池，首次使用时创建
+    private volatile ExecutorService asyncExecutor;
+    private final Lock asyncLock = new ReentrantLock();
+    //异步线程数，0 表示根据连接池大小计算
+    int asyncPoolSize;
+    int asyncQueueCapacity = DEFAULT_ASYNC_QUEUE_CAPACITY;
+    //只读副本，为null时读写都使用主库
+    private volatile ReplicaSet replicaSet;
+    private final Lock replicaLock = new ReentrantLock();
+    ReplicaPolicy replicaPolicy = ReplicaPolicy.ROUND_ROBIN;
+    //写操作后读取主库的时间窗口（毫秒），0 表示不开启；最近写操作时间保存在事务上下文中
+    long readYourWritesWindow;
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    public static final int DEFAULT_SCHEMA_CACHE_SIZE = 512;
+    public static final int DEFAULT_LOB_SPOOL_THRESHOLD = 1024 * 1024;
+    public static final int DEFAULT_ASYNC_POOL_SIZE = 8;
+    public static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 256;
+    //常见连接池获取最大连接数的方法：Druid/DBCP1、DBCP2、HikariCP、C3P0、Tomcat
+    private static final String[] POOL_SIZE_METHODS = {"getMaxActive", "getMaxTotal", "getMaximumPoolSize", "getMaxPoolSize"};
 
     /**
      * 以下4个构造方法
@@ -54,6 +109,7 @@ public class Config {
         this.dialect = dialect;
         this.showSql = showSql;
         this.container = container;
+        this.schemaCache = new LruCache<String, ColumnSchema>(this.name + "-schema", DEFAULT_SCHEMA_CACHE_SIZE);
     }
 
     public Config(String name, DataSource dataSource) {
@@ -102,21 +158,530 @@ public class Config {
         return showSql;
     }
 
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1)
+            throw new IllegalArgumentException("fetchSize must more than 0");
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * 设置结果集列结构缓存的容量，0 表示不缓存
+     *
+     * @param size 最多缓存的Sql条数
+     * @see ColumnSchema
+     */
+    public void setSchemaCacheSize(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("schema cache size can not be negative");
+        this.schemaCache = size == 0 ? null : new LruCache<String, ColumnSchema>(name + "-schema", size);
+    }
+
+    public boolean isStrictSchemaCheck() {
+        return strictSchemaCheck;
+    }
+
+    /**
+     * 设置复用缓存的列结构前是否逐列校验列名与JDBC类型，默认 false
+     * <p>
+     * 默认只校验列总数以及第一列、最后一列的列名，不需要逐列读取元数据；按缓存的列结构读取出错时丢弃缓存。
+     * 表结构可能在运行期间变更且列数不变（如 select * 中间列改名）时开启
+     *
+     * @param strictSchemaCheck 是否逐列校验
+     * @see ColumnSchema
+     */
+    public void setStrictSchemaCheck(boolean strictSchemaCheck) {
+        this.strictSchemaCheck = strictSchemaCheck;
+    }
+
+    /**
+     * 清空结果集列结构缓存，数据库表结构变更后可调用
+     */
+    public void clearSchemaCache() {
+        Cache<String, ColumnSchema> cache = schemaCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    public LobMode getLobMode() {
+        return lobMode;
+    }
+
+    /**
+     * 设置大字段（CLOB/NCLOB/BLOB）的默认读取方式，默认 EAGER
+     * LAZY/SPOOL 模式下查询结果中的大字段为 LobHandle；单次查询可通过带 LobMode 参数的 cursor/find 单独指定
+     *
+     * @param lobMode 读取方式
+     * @see LobHandle
+     * @see DbPro#cursor(LobMode, String, Object...)
+     */
+    public void setLobMode(LobMode lobMode) {
+        if (lobMode == null)
+            throw new IllegalArgumentException("lobMode can not be null");
+        this.lobMode = lobMode;
+    }
+
+    public int getLobSpoolThreshold() {
+        return lobSpoolThreshold;
+    }
+
+    /**
+     * 设置 SPOOL 模式下写入临时文件的阈值，不超过阈值的大字段读入内存
+     *
+     * @param lobSpoolThreshold 字节数（BLOB）或字符数（CLOB）
+     */
+    public void setLobSpoolThreshold(int lobSpoolThreshold) {
+        if (lobSpoolThreshold < 0)
+            throw new IllegalArgumentException("lobSpoolThreshold can not be negative");
+        this.lobSpoolThreshold = lobSpoolThreshold;
+    }
+
+    public BatchInsertMode getBatchInsertMode() {
+        return batchInsertMode;
+    }
+
+    /**
+     * 设置批量插入（batchSave 及 batch(sql, columns, list, batchSize) 执行 insert 语句时）的方式，默认 BATCH
+     *
+     * @param batchInsertMode 批量插入方式
+     */
+    public void setBatchInsertMode(BatchInsertMode batchInsertMode) {
+        if (batchInsertMode == null)
+            throw new IllegalArgumentException("batchInsertMode can not be null");
+        this.batchInsertMode = batchInsertMode;
+    }
+
+    public boolean isBatchGeneratedKeys() {
+        return batchGeneratedKeys;
+    }
+
+    /**
+     * 设置批量保存Model（batchSave(List, int) 及流式 batchSave(Iterator, ...)）时是否回写数据库生成的主键，默认 false
+     * <p>
+     * 开启后第一个Model的主键为空时获取数据库生成的主键并回写到每个Model；驱动不能按插入顺序批量返回主键的数据库
+     * （如 SQL Server、SQLite，见 Dialect#supportsBatchGeneratedKeys）改为逐行执行插入语句，批量性能会下降。按表名保存时通过 batchSave(tableName, primaryKey, recordList, batchSize) 获取主键
+     *
+     * @param batchGeneratedKeys 是否回写主键
+     * @see DbPro#batchSave(List, int)
+     */
+    public void setBatchGeneratedKeys(boolean batchGeneratedKeys) {
+        this.batchGeneratedKeys = batchGeneratedKeys;
+    }
+
+    /**
+     * 设置每个连接最多缓存的PreparedStatement数量，0 表示不缓存（默认）
+     * <p>
+     * 语句缓存的生命周期与连接一致：事务中或同一次调用内重复执行相同Sql时复用已预编译的语句，
+     * 连接真正关闭时一并关闭。连接池自带语句缓存时无需开启
+     *
+     * @param size 每个连接最多缓存的语句数
+     */
+    public void setStatementCacheSize(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("statement cache size can not be negative");
+        this.statementCacheSize = size;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * 语句缓存命中次数
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    /**
+     * 语句缓存未命中次数
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    /**
+     * 设置异步执行的线程数，需在首次异步调用前设置
+     * 默认（0）取连接池最大连接数的一半，为同步调用保留连接；无法获取连接池大小时为 DEFAULT_ASYNC_POOL_SIZE
+     *
+     * @param asyncPoolSize 线程数
+     * @see AsyncDbPro
+     */
+    public void setAsyncPoolSize(int asyncPoolSize) {
+        if (asyncPoolSize < 0)
+            throw new IllegalArgumentException("asyncPoolSize can not be negative");
+        this.asyncPoolSize = asyncPoolSize;
+    }
+
+    /**
+     * 设置异步任务等待队列的容量，需在首次异步调用前设置
+     * 队列已满时由调用线程直接执行任务，以此限制提交速度
+     *
+     * @param asyncQueueCapacity 队列容量
+     */
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        if (asyncQueueCapacity < 1)
+            throw new IllegalArgumentException("asyncQueueCapacity must more than 0");
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    /**
+     * 获取异步执行线程池，首次调用时创建
+     */
+    public ExecutorService getAsyncExecutor() {
+        ExecutorService executor = asyncExecutor;
+        if (executor != null) {
+            return executor;
+        }
+        asyncLock.lock();
+        try {
+            if (asyncExecutor == null) {
+                int poolSize = asyncPoolSize > 0 ? asyncPoolSize : defaultAsyncPoolSize();
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<Runnable>(asyncQueueCapacity),
+                        new AsyncThreadFactory(name),
+                        new ThreadPoolExecutor.CallerRunsPolicy());
+                pool.allowCoreThreadTimeOut(true);
+                asyncExecutor = pool;
+            }
+            return asyncExecutor;
+        } finally {
+            asyncLock.unlock();
+        }
+    }
+
+    /**
+     * 使用外部提供的线程池执行异步调用，当前已创建的线程池会被关闭
+     */
+    public void setAsyncExecutor(ExecutorService executor) {
+        asyncLock.lock();
+        try {
+            ExecutorService old = asyncExecutor;
+            asyncExecutor = executor;
+            if (old != null && old != executor) {
+                old.shutdown();
+            }
+        } finally {
+            asyncLock.unlock();
+        }
+    }
+
+    /**
+     * 关闭异步执行线程池，已提交的任务会执行完毕
+     */
+    public void shutdownAsync() {
+        setAsyncExecutor(null);
+    }
+
+    private int defaultAsyncPoolSize() {
+        for (String methodName : POOL_SIZE_METHODS) {
+            try {
+                Method method = dataSource.getClass().getMethod(methodName);
+                Object size = method.invoke(dataSource);
+                if (size instanceof Number && ((Number) size).intValue() > 0) {
+                    return Math.max(1, ((Number) size).intValue() / 2);
+                }
+            } catch (Exception ignored) {
+                // 非该连接池的方法，尝试下一个
+            }
+        }
+        return DEFAULT_ASYNC_POOL_SIZE;
+    }
+
+    private static final class AsyncThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        AsyncThreadFactory(String configName) {
+            this.prefix = "hyacinth-" + configName + "-async-";
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * 添加只读副本，DbPro/Model 的查询方法从副本读取，写操作与事务使用主库
+     *
+     * @param dataSource 副本数据源
+     * @see #setReplicaPolicy(ReplicaPolicy)
+     */
+    public void addReplica(DataSource dataSource) {
+        if (dataSource == null)
+            throw new IllegalArgumentException("DataSource can not be null");
+        replicaLock.lock();
+        try {
+            List<DataSource> dataSources = getReplicas();
+            dataSources.add(dataSource);
+            replicaSet = new ReplicaSet(dataSources);
+        } finally {
+            replicaLock.unlock();
+        }
+    }
+
+    /**
+     * 移除所有只读副本
+     */
+    public void clearReplicas() {
+        replicaLock.lock();
+        try {
+            replicaSet = null;
+        } finally {
+            replicaLock.unlock();
+        }
+    }
+
+    public List<DataSource> getReplicas() {
+        ReplicaSet replicas = replicaSet;
+        return replicas == null ? new ArrayList<DataSource>() : replicas.getDataSources();
+    }
+
+    public ReplicaPolicy getReplicaPolicy() {
+        return replicaPolicy;
+    }
+
+    /**
+     * 设置副本选择策略，默认轮询
+     */
+    public void setReplicaPolicy(ReplicaPolicy replicaPolicy) {
+        if (replicaPolicy == null)
+            throw new IllegalArgumentException("replicaPolicy can not be null");
+        this.replicaPolicy = replicaPolicy;
+    }
+
+    public long getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    /**
+     * 开启"读己之写"：同一事务上下文（默认为同一线程）获取主库连接（写操作、事务）后的指定时间内，读操作也使用主库，
+     * 避免副本复制延迟导致读不到刚写入的数据；通过 async 提交的读操作沿用提交时的写操作时间。
+     * 窗口应大于写操作耗时与副本延迟之和
+     *
+     * @param millis 时间窗口（毫秒），0 表示不开启（默认）
+     */
+    public void setReadYourWritesWindow(long millis) {
+        if (millis < 0)
+            throw new IllegalArgumentException("readYourWritesWindow can not be negative");
+        this.readYourWritesWindow = millis;
+    }
+
+    /**
+     * 在事务上下文中记录写操作时间，用于"读己之写"窗口
+     */
+    final void markWrite() {
+        if (readYourWritesWindow > 0 && replicaSet != null) {
+            transactionContext.setLastWriteTime(this, System.currentTimeMillis());
+        }
+    }
+
+    private boolean inWriteWindow() {
+        if (readYourWritesWindow == 0) {
+            return false;
+        }
+        long time = transactionContext.getLastWriteTime(this);
+        if (time == 0) {
+            return false;
+        }
+        if (System.currentTimeMillis() - time < readYourWritesWindow) {
+            return true;
+        }
+        transactionContext.setLastWriteTime(this, 0);
+        return false;
+    }
+
+    /**
+     * 包装提交到其他线程执行的任务，使任务沿用提交时事务上下文中的写操作时间，执行完毕后恢复执行线程原有的记录
+     */
+    final <T> Callable<T> carryLastWriteTime(final Callable<T> task) {
+        final long time = readYourWritesWindow > 0 ? transactionContext.getLastWriteTime(this) : 0;
+        if (time == 0) {
+            return task;
+        }
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                TransactionContext context = transactionContext;
+                long previous = context.getLastWriteTime(Config.this);
+                context.setLastWriteTime(Config.this, Math.max(time, previous));
+                try {
+                    return task.call();
+                } finally {
+                    context.setLastWriteTime(Config.this, previous);
+                }
+            }
+        };
+    }
+
+    public TransactionContext getTransactionContext() {
+        return transactionContext;
+    }
+
+    /**
+     * 替换事务上下文，需在没有进行中的事务时设置
+     *
+     * @param transactionContext 事务上下文
+     * @see TransactionContext
+     */
+    public void setTransactionContext(TransactionContext transactionContext) {
+        if (transactionContext == null)
+            throw new IllegalArgumentException("transactionContext can not be null");
+        this.transactionContext = transactionContext;
+    }
+
     public final boolean isInTransaction() {
-        return threadLocal.get() != null;
+        return transactionContext.getConnection(this) != null;
     }
 
     /**
-     * 获取数据库连接
+     * 获取数据库连接（主库），用于写操作与事务；读操作应使用 getReadConnection
+     * <p>
+     * 开启"读己之写"时，在事务外获取主库连接会记录写操作时间
      *
      * @return
      * @throws SQLException
+     * @see #getReadConnection()
      */
     public final Connection getConnection() throws SQLException {
-        Connection conn = threadLocal.get();
+        Connection conn = transactionContext.getConnection(this);
+        if (conn != null)
+            return conn;
+        markWrite();
+        return openConnection(dataSource.getConnection());
+    }
+
+    /**
+     * 获取用于读操作的连接：事务中使用事务连接；配置了只读副本时按副本选择策略从副本获取只读连接，
+     * 处于"读己之写"窗口内或副本均不可用时使用主库
+     */
+    public final Connection getReadConnection() throws SQLException {
+        Connection conn = transactionContext.getConnection(this);
         if (conn != null)
             return conn;
-        return showSql ? new SqlReporter(dataSource.getConnection()).getConnection() : dataSource.getConnection();
+        ReplicaSet replicas = replicaSet;
+        if (replicas != null && !inWriteWindow()) {
+            conn = replicas.getConnection(replicaPolicy);
+        }
+        return openConnection(conn != null ? conn : dataSource.getConnection());
+    }
+
+    private Connection openConnection(Connection conn) {
+        return showSql ? new SqlReporter(conn).getConnection() : conn;
+    }
+
+    /**
+     * 以下三个方法用于创建PreparedStatement，开启语句缓存时优先复用当前连接上已缓存的语句，
+     * 使用完毕后需通过 release 或 close 方法归还
+     */
+    public final PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+        return prepareStatement(conn, sql, Statement.NO_GENERATED_KEYS, null);
+    }
+
+    public final PreparedStatement prepareStatement(Connection conn, String sql, int autoGeneratedKeys) throws SQLException {
+        return prepareStatement(conn, sql, autoGeneratedKeys, null);
+    }
+
+    public final PreparedStatement prepareStatement(Connection conn, String sql, String[] columnNames) throws SQLException {
+        return prepareStatement(conn, sql, Statement.NO_GENERATED_KEYS, columnNames);
+    }
+
+    private PreparedStatement prepareStatement(Connection conn, String sql, int autoGeneratedKeys, String[] columnNames) throws SQLException {
+        if (statementCacheSize == 0) {
+            return createStatement(conn, sql, autoGeneratedKeys, columnNames);
+        }
+        StatementCache cache;
+        statementLock.lock();
+        try {
+            cache = statementCaches.get(conn);
+            if (cache == null) {
+                cache = new StatementCache(statementCacheSize);
+                statementCaches.put(conn, cache);
+            }
+        } finally {
+            statementLock.unlock();
+        }
+        StatementCache.Key key = new StatementCache.Key(sql, autoGeneratedKeys, columnNames);
+        PreparedStatement pst = cache.take(key);
+        if (pst != null) {
+            statementCacheHits.incrementAndGet();
+            if (showSql) {
+                LOGGER.debug("Sql: " + sql);
+            }
+            return pst;
+        }
+        statementCacheMisses.incrementAndGet();
+        pst = createStatement(conn, sql, autoGeneratedKeys, columnNames);
+        cache.register(key, pst);
+        return pst;
+    }
+
+    private static PreparedStatement createStatement(Connection conn, String sql, int autoGeneratedKeys, String[] columnNames) throws SQLException {
+        if (columnNames != null) {
+            return conn.prepareStatement(sql, columnNames);
+        }
+        if (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS) {
+            return conn.prepareStatement(sql, autoGeneratedKeys);
+        }
+        return conn.prepareStatement(sql);
+    }
+
+    /**
+     * 释放结果集与语句，不关闭连接；语句来自该连接的缓存时归还缓存，否则关闭
+     */
+    public final void release(Connection conn, ResultSet rs, Statement st) throws SQLException {
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+        } finally {
+            release(conn, st);
+        }
+    }
+
+    public final void release(Connection conn, Statement st) throws SQLException {
+        if (st == null) {
+            return;
+        }
+        if (conn != null && statementCacheSize > 0) {
+            StatementCache cache = getStatementCache(conn);
+            if (cache != null && cache.release(st)) {
+                return;
+            }
+        }
+        st.close();
+    }
+
+    /**
+     * 关闭连接上缓存的所有语句
+     */
+    private void closeStatements(Connection conn) {
+        StatementCache cache;
+        statementLock.lock();
+        try {
+            cache = statementCaches.remove(conn);
+        } finally {
+            statementLock.unlock();
+        }
+        if (cache != null) {
+            cache.closeAll();
+        }
+    }
+
+    private StatementCache getStatementCache(Connection conn) {
+        statementLock.lock();
+        try {
+            return statementCaches.get(conn);
+        } finally {
+            statementLock.unlock();
+        }
     }
 
     /**
@@ -132,7 +697,7 @@ public class Config {
         }
         if (st != null) {
             try {
-                st.close();
+                release(conn, st);
             } catch (SQLException e) {
                 LOGGER.error(e.getMessage(), e);
             }
@@ -143,7 +708,7 @@ public class Config {
     public final void close(Statement st, Connection conn) {
         if (st != null) {
             try {
-                st.close();
+                release(conn, st);
             } catch (SQLException e) {
                 LOGGER.error(e.getMessage(), e);
             }
@@ -152,15 +717,22 @@ public class Config {
     }
 
     public final void close(Connection conn) {
-        if (threadLocal.get() == null) { // in transaction if conn in threadlocal
-            if (conn != null) {
-                try {
-                    conn.close();
-                } catch (SQLException e) {
-                    throw new HyacinthException(e);
-                }
-            }
+        if (transactionContext.getConnection(this) == null) { // in transaction if conn bound to context
+            closeConnection(conn);
         }
+    }
 
+    /**
+     * 关闭连接以及连接上缓存的语句，不检查事务上下文
+     */
+    final void closeConnection(Connection conn) {
+        if (conn != null) {
+            closeStatements(conn);
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                throw new HyacinthException(e);
+            }
+        }
     }
 }
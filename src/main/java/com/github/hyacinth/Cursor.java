@@ -0,0 +1,186 @@
+package com.github.hyacinth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 流式查询游标
+ * <p>
+ * 逐行从数据库读取数据，不会将整个结果集加载到内存中。游标打开期间一直占用数据库连接，
+ * 遍历结束（hasNext 返回 false）、each 执行完毕或出现异常时自动释放；
+ * 提前结束遍历时必须调用 close 方法释放连接
+ * <pre>
+ * 示例:
+ * Cursor&lt;Map&lt;String, Object&gt;&gt; cursor = Db.cursor(Sqls.User_selectAll);
+ * try {
+ *     for (Map&lt;String, Object&gt; user : cursor) {
+ *         ...
+ *     }
+ * } finally {
+ *     cursor.close();
+ * }
+ * </pre>
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/10/20
+ * Time: 10:20
+ */
+public class Cursor<T> implements Iterator<T>, Iterable<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Cursor.class);
+
+    private final Config config;
+    private final RowMapper<T> mapper;
+    private final String sql;
+
+    private Connection conn;
+    private PreparedStatement pst;
+    private ResultSet rs;
+    //打开游标前连接的autoCommit状态，部分方言开启流式读取时需要修改autoCommit
+    private Boolean autoCommit;
+    //连接是否为打开游标时所在事务的连接，关闭游标时不关闭该连接
+    private boolean transactional;
+
+    //预读的下一行
+    private T nextRow;
+    private boolean fetched = false;
+    private boolean closed = false;
+    //是否登记了 SPOOL 临时文件，关闭时需删除
+    private boolean spooling = false;
+
+    Cursor(Config config, RowMapper<T> mapper, String sql, Object... paras) {
+        this(config, mapper, null, sql, paras);
+    }
+
+    /**
+     * @param lobMode 大字段读取方式，为null时使用 Config 中的设置；SPOOL 写入的临时文件在游标关闭时删除
+     */
+    Cursor(Config config, RowMapper<T> mapper, LobMode lobMode, String sql, Object... paras) {
+        this.config = config;
+        this.mapper = mapper;
+        this.sql = sql;
+        try {
+            transactional = config.isInTransaction();
+            conn = config.getReadConnection();
+            autoCommit = conn.getAutoCommit();
+            pst = config.dialect.prepareStreamingStatement(conn, sql, config.getFetchSize());
+            config.dialect.fillStatement(pst, paras);
+            rs = pst.executeQuery();
+            if (ColumnSchema.effectiveLobMode(config, lobMode, true) == LobMode.SPOOL) {
+                spooling = true;
+                LobHandle.register(rs);
+            }
+            mapper.prepare(ColumnSchema.resolve(config, sql, rs, lobMode, true));
+        } catch (Exception e) {
+            close();
+            throw new HyacinthException(e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!fetched) {
+            try {
+                if (rs.next()) {
+                    nextRow = mapper.map(rs);
+                    fetched = true;
+                } else {
+                    close();
+                }
+            } catch (SQLException e) {
+                close();
+                // 可能是缓存的列结构已过期（表结构变更），丢弃后下次查询重新解析
+                ColumnSchema.invalidate(config, sql);
+                throw new HyacinthException(e);
+            }
+        }
+        return fetched;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T row = nextRow;
+        nextRow = null;
+        fetched = false;
+        return row;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Cursor is read only");
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+    /**
+     * 逐行处理剩余数据，处理完毕后自动关闭游标
+     *
+     * @param handler 行处理回调
+     */
+    public void each(RowHandler<? super T> handler) {
+        try {
+            if (fetched) {
+                handler.handle(next());
+            }
+            while (!closed && rs.next()) {
+                handler.handle(mapper.map(rs));
+            }
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        } finally {
+            close();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 关闭游标，删除 SPOOL 写入的临时文件，释放结果集、Statement以及连接（事务中的连接不会被关闭）
+     * <p>
+     * 按打开游标时是否处于事务中决定是否关闭连接：游标可以在 Transaction.call 之外关闭，也可以在其他事务中关闭
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        nextRow = null;
+        fetched = false;
+        if (spooling) {
+            LobHandle.release(rs);
+        }
+        //先释放结果集与Statement，再恢复autoCommit，最后释放连接
+        config.close(rs, pst, null);
+        if (conn != null && autoCommit != null) {
+            try {
+                if (conn.getAutoCommit() != autoCommit) {
+                    conn.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException e) {
+                LOGGER.error(e.getMessage(), e);
+            }
+        }
+        if (!transactional) {
+            config.closeConnection(conn);
+        }
+    }
+}
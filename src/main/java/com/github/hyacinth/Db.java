@@ -1,10 +1,12 @@
 package com.github.hyacinth;
 
 import com.github.hyacinth.sql.SqlCache;
+import org.reactivestreams.Publisher;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +34,24 @@ public class Db {
         return DbPro.use(configName);
     }
 
+    /**
+     * 在主数据源上开启事务
+     *
+     * @see DbPro#beginTransaction()
+     */
+    public static Transaction beginTransaction() {
+        return DbPro.MAIN.beginTransaction();
+    }
+
+    /**
+     * 主数据源的异步门面
+     *
+     * @see DbPro#async()
+     */
+    public static AsyncDbPro async() {
+        return DbPro.MAIN.async();
+    }
+
     static <T> List<T> query(Config config, Connection conn, String sql, Object... paras) throws SQLException {
         return DbPro.MAIN.query(config, conn, sql, paras);
     }
@@ -349,6 +369,123 @@ public class Db {
         return DbPro.MAIN.find(config, conn, sql, paras);
     }
 
+    /**
+     * @see DbPro#findCompact(String, Object...)
+     */
+    public static List<Record> findCompact(SqlKey sqlKey, Object... paras) {
+        return DbPro.MAIN.findCompact(SqlCache.fixed.get(sqlKey.toString()), paras);
+    }
+
+    public static List<Record> findCompact(SqlKey sqlKey, Map<String, Object> paras) {
+        List<Object> parasValueList = new ArrayList<Object>();
+        String sql = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasValueList);
+        return DbPro.MAIN.findCompact(sql, parasValueList.toArray());
+    }
+
+    public static List<Record> findCompact(SqlKey sqlKey) {
+        return DbPro.MAIN.findCompact(SqlCache.fixed.get(sqlKey.toString()));
+    }
+
+    /**
+     * @see DbPro#queryColumnar(String, Object...)
+     */
+    public static ColumnarResult queryColumnar(SqlKey sqlKey, Object... paras) {
+        return DbPro.MAIN.queryColumnar(SqlCache.fixed.get(sqlKey.toString()), paras);
+    }
+
+    public static ColumnarResult queryColumnar(SqlKey sqlKey, Map<String, Object> paras) {
+        List<Object> parasValueList = new ArrayList<Object>();
+        String sql = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasValueList);
+        return DbPro.MAIN.queryColumnar(sql, parasValueList.toArray());
+    }
+
+    public static ColumnarResult queryColumnar(SqlKey sqlKey) {
+        return DbPro.MAIN.queryColumnar(SqlCache.fixed.get(sqlKey.toString()));
+    }
+
+    /**
+     * 流式查询系列方法
+     *
+     * @param sqlKey sqlKey
+     * @param paras  参数列表
+     * @return 游标
+     * @see DbPro#cursor(String, Object...)
+     */
+    public static Cursor<Map<String, Object>> cursor(SqlKey sqlKey, Object... paras) {
+        return DbPro.MAIN.cursor(SqlCache.fixed.get(sqlKey.toString()), paras);
+    }
+
+    public static Cursor<Map<String, Object>> cursor(SqlKey sqlKey, Map<String, Object> paras) {
+        List<Object> parasValueList = new ArrayList<Object>();
+        String sql = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasValueList);
+        return DbPro.MAIN.cursor(sql, parasValueList.toArray());
+    }
+
+    /**
+     * @see #cursor(SqlKey, Object...)
+     */
+    public static Cursor<Map<String, Object>> cursor(SqlKey sqlKey) {
+        return DbPro.MAIN.cursor(SqlCache.fixed.get(sqlKey.toString()));
+    }
+
+    /**
+     * @see DbPro#cursor(LobMode, String, Object...)
+     */
+    public static Cursor<Map<String, Object>> cursor(LobMode lobMode, SqlKey sqlKey, Object... paras) {
+        return DbPro.MAIN.cursor(lobMode, SqlCache.fixed.get(sqlKey.toString()), paras);
+    }
+
+    /**
+     * @see DbPro#forEach(String, RowHandler, Object...)
+     */
+    public static void forEach(SqlKey sqlKey, RowHandler<Map<String, Object>> handler, Object... paras) {
+        DbPro.MAIN.forEach(SqlCache.fixed.get(sqlKey.toString()), handler, paras);
+    }
+
+    public static void forEach(SqlKey sqlKey, RowHandler<Map<String, Object>> handler, Map<String, Object> paras) {
+        List<Object> parasValueList = new ArrayList<Object>();
+        String sql = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasValueList);
+        DbPro.MAIN.forEach(sql, handler, parasValueList.toArray());
+    }
+
+    public static void forEach(SqlKey sqlKey, RowHandler<Map<String, Object>> handler) {
+        DbPro.MAIN.forEach(SqlCache.fixed.get(sqlKey.toString()), handler);
+    }
+
+    /**
+     * @see DbPro#scan(String, RowHandler, Object...)
+     */
+    public static void scan(SqlKey sqlKey, RowHandler<RowView> visitor, Object... paras) {
+        DbPro.MAIN.scan(SqlCache.fixed.get(sqlKey.toString()), visitor, paras);
+    }
+
+    public static void scan(SqlKey sqlKey, RowHandler<RowView> visitor, Map<String, Object> paras) {
+        List<Object> parasValueList = new ArrayList<Object>();
+        String sql = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasValueList);
+        DbPro.MAIN.scan(sql, visitor, parasValueList.toArray());
+    }
+
+    public static void scan(SqlKey sqlKey, RowHandler<RowView> visitor) {
+        DbPro.MAIN.scan(SqlCache.fixed.get(sqlKey.toString()), visitor);
+    }
+
+    /**
+     * @see DbPro#publish(String, Object...)
+     */
+    public static Publisher<Map<String, Object>> publish(SqlKey sqlKey, Object... paras) {
+        return DbPro.MAIN.publish(SqlCache.fixed.get(sqlKey.toString()), paras);
+    }
+
+    public static Publisher<Map<String, Object>> publish(SqlKey sqlKey, Map<String, Object> paras) {
+        List<Object> parasValueList = new ArrayList<Object>();
+        String sql = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasValueList);
+        return DbPro.MAIN.publish(sql, parasValueList.toArray());
+    }
+
+    public static Publisher<Map<String, Object>> publish(SqlKey sqlKey) {
+        return DbPro.MAIN.publish(SqlCache.fixed.get(sqlKey.toString()));
+    }
+
     /**
      * Record查询，返回第一条记录，如果返回结果集为多条记录，那么只取第一条
      *
@@ -508,6 +645,44 @@ public class Db {
         return DbPro.MAIN.paginate(pageNumber, pageSize, SqlCache.fixed.get(sqlKey.toString()));
     }
 
+    /**
+     * 按指定方式计算总数的分页系列方法
+     *
+     * @see DbPro#paginate(PageMode, int, int, String, Page, Object...)
+     */
+    public static ProvidePage<Map<String, Object>> paginate(PageMode mode, int pageNumber, int pageSize, SqlKey sqlKey, Object... paras) {
+        return DbPro.MAIN.paginate(mode, pageNumber, pageSize, SqlCache.fixed.get(sqlKey.toString()), paras);
+    }
+
+    public static ProvidePage<Map<String, Object>> paginate(PageMode mode, int pageNumber, int pageSize, SqlKey sqlKey, Map<String, Object> paras) {
+        List<Object> parasValueList = new ArrayList<Object>();
+        String sql = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasValueList);
+        return DbPro.MAIN.paginate(mode, pageNumber, pageSize, sql, parasValueList.toArray());
+    }
+
+    public static ProvidePage<Map<String, Object>> paginate(PageMode mode, int pageNumber, int pageSize, SqlKey sqlKey) {
+        return DbPro.MAIN.paginate(mode, pageNumber, pageSize, SqlCache.fixed.get(sqlKey.toString()), DbKit.NULL_PARA_ARRAY);
+    }
+
+    /**
+     * 键集（seek）分页系列方法
+     *
+     * @see DbPro#paginateByKeyset(int, String, Keyset, Object...)
+     */
+    public static ProvidePage<Map<String, Object>> paginateByKeyset(int pageSize, SqlKey sqlKey, Keyset keyset, Object... paras) {
+        return DbPro.MAIN.paginateByKeyset(pageSize, SqlCache.fixed.get(sqlKey.toString()), keyset, paras);
+    }
+
+    public static ProvidePage<Map<String, Object>> paginateByKeyset(int pageSize, SqlKey sqlKey, Keyset keyset, Map<String, Object> paras) {
+        List<Object> parasValueList = new ArrayList<Object>();
+        String sql = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasValueList);
+        return DbPro.MAIN.paginateByKeyset(pageSize, sql, keyset, parasValueList.toArray());
+    }
+
+    public static ProvidePage<Map<String, Object>> paginateByKeyset(int pageSize, SqlKey sqlKey, Keyset keyset) {
+        return DbPro.MAIN.paginateByKeyset(pageSize, SqlCache.fixed.get(sqlKey.toString()), keyset, DbKit.NULL_PARA_ARRAY);
+    }
+
     static boolean save(Config config, Connection conn, String tableName, String primaryKey, Map<String, Object> record) throws SQLException {
         return DbPro.MAIN.save(config, conn, tableName, primaryKey, record);
     }
@@ -589,40 +764,182 @@ public class Db {
     }
 
     /**
+     * 表注册了分片规则时按分片拆分后并行保存
+     *
+     * @see DbPro#batchSave(String, String, List, int)
+     * @see ShardRouter#batchSave(String, String, List, int)
+     */
+    public static int[] batchSave(String tableName, String primaryKey, List<Map<String, Object>> recordList, int batchSize) {
+        return DbPro.MAIN.batchSave(tableName, primaryKey, recordList, batchSize);
+    }
+
+    /**
+     * Model 注册了分片规则时按分片拆分后并行保存
+     *
      * @see DbPro#batchSave(List, int)
+     * @see ShardRouter#batchSave(List, int)
      */
     public static int[] batchSave(List<? extends Model> modelList, int batchSize) {
+        if (isSharded(modelList)) {
+            return ShardRouter.me().batchSave(modelList, batchSize);
+        }
         return DbPro.MAIN.batchSave(modelList, batchSize);
     }
 
     /**
+     * 表注册了分片规则时按分片拆分后并行保存
+     *
      * @see DbPro#batchSave(String, List, int)
+     * @see ShardRouter#batchSave(String, List, int)
      */
     public static int[] batchSave(String tableName, List<Map<String, Object>> recordList, int batchSize) {
         return DbPro.MAIN.batchSave(tableName, recordList, batchSize);
     }
 
     /**
+     * Model 注册了分片规则时按分片拆分后并行更新
+     *
      * @see DbPro#batchUpdate(List, int)
+     * @see ShardRouter#batchUpdate(List, int)
      */
     public static int[] batchUpdate(List<? extends Model> modelList, int batchSize) {
+        if (isSharded(modelList)) {
+            return ShardRouter.me().batchUpdate(modelList, batchSize);
+        }
         return DbPro.MAIN.batchUpdate(modelList, batchSize);
     }
 
+    private static boolean isSharded(List<?> modelList) {
+        return modelList != null && !modelList.isEmpty()
+                && ShardRouter.me().getRule(DbKit.getUsefulClass(((Model<?>) modelList.get(0)).getClass())) != null;
+    }
+
     /**
+     * 表注册了分片规则时按分片拆分后并行更新
+     *
      * @see DbPro#batchUpdate(String, String, List, int)
+     * @see ShardRouter#batchUpdate(String, String, List, int)
      */
     public static int[] batchUpdate(String tableName, String primaryKey, List<Map<String, Object>> recordList, int batchSize) {
         return DbPro.MAIN.batchUpdate(tableName, primaryKey, recordList, batchSize);
     }
 
     /**
+     * 表注册了分片规则时按分片拆分后并行更新
+     *
      * @see DbPro#batchUpdate(String, List, int)
      */
     public static int[] batchUpdate(String tableName, List<Map<String, Object>> recordList, int batchSize) {
         return DbPro.MAIN.batchUpdate(tableName, recordList, batchSize);
     }
 
+    /**
+     * @see DbPro#batch(String, Iterator, int, BatchCallback)
+     */
+    public static BatchResult batch(SqlKey sqlKey, Iterator<Object[]> rows, int batchSize, BatchCallback callback) {
+        return DbPro.MAIN.batch(SqlCache.fixed.get(sqlKey.toString()), rows, batchSize, callback);
+    }
+
+    /**
+     * @see DbPro#batch(String, Iterator, int)
+     */
+    public static BatchResult batch(SqlKey sqlKey, Iterator<Object[]> rows, int batchSize) {
+        return DbPro.MAIN.batch(SqlCache.fixed.get(sqlKey.toString()), rows, batchSize);
+    }
+
+    /**
+     * @see DbPro#batch(String, String, Iterator, int, BatchCallback)
+     */
+    public static BatchResult batch(SqlKey sqlKey, String columns, Iterator<?> modelOrRecords, int batchSize, BatchCallback callback) {
+        return DbPro.MAIN.batch(SqlCache.fixed.get(sqlKey.toString()), columns, modelOrRecords, batchSize, callback);
+    }
+
+    /**
+     * @see DbPro#batch(String, String, Iterator, int)
+     */
+    public static BatchResult batch(SqlKey sqlKey, String columns, Iterator<?> modelOrRecords, int batchSize) {
+        return DbPro.MAIN.batch(SqlCache.fixed.get(sqlKey.toString()), columns, modelOrRecords, batchSize);
+    }
+
+    /**
+     * 流式保存不按分片规则拆分，分片表请使用 batchSave(List, int)
+     *
+     * @see DbPro#batchSave(Iterator, int, BatchCallback)
+     */
+    public static BatchResult batchSave(Iterator<? extends Model<?>> models, int batchSize, BatchCallback callback) {
+        return DbPro.MAIN.batchSave(models, batchSize, callback);
+    }
+
+    /**
+     * @see DbPro#batchSave(Iterator, int)
+     */
+    public static BatchResult batchSave(Iterator<? extends Model<?>> models, int batchSize) {
+        return DbPro.MAIN.batchSave(models, batchSize);
+    }
+
+    /**
+     * @see DbPro#batchSave(String, Iterator, int, BatchCallback)
+     */
+    public static BatchResult batchSave(String tableName, Iterator<Map<String, Object>> records, int batchSize, BatchCallback callback) {
+        return DbPro.MAIN.batchSave(tableName, records, batchSize, callback);
+    }
+
+    /**
+     * @see DbPro#batchSave(String, Iterator, int)
+     */
+    public static BatchResult batchSave(String tableName, Iterator<Map<String, Object>> records, int batchSize) {
+        return DbPro.MAIN.batchSave(tableName, records, batchSize);
+    }
+
+    /**
+     * @see DbPro#parallelBatch(String, Iterator, int, int, BatchCallback)
+     */
+    public static BatchResult parallelBatch(SqlKey sqlKey, Iterator<Object[]> rows, int batchSize, int parallelism, BatchCallback callback) {
+        return DbPro.MAIN.parallelBatch(SqlCache.fixed.get(sqlKey.toString()), rows, batchSize, parallelism, callback);
+    }
+
+    /**
+     * @see DbPro#parallelBatch(String, Iterator, int, int)
+     */
+    public static BatchResult parallelBatch(SqlKey sqlKey, Iterator<Object[]> rows, int batchSize, int parallelism) {
+        return DbPro.MAIN.parallelBatch(SqlCache.fixed.get(sqlKey.toString()), rows, batchSize, parallelism);
+    }
+
+    /**
+     * @see DbPro#parallelBatch(String, String, Iterator, int, int, BatchCallback)
+     */
+    public static BatchResult parallelBatch(SqlKey sqlKey, String columns, Iterator<?> modelOrRecords, int batchSize, int parallelism, BatchCallback callback) {
+        return DbPro.MAIN.parallelBatch(SqlCache.fixed.get(sqlKey.toString()), columns, modelOrRecords, batchSize, parallelism, callback);
+    }
+
+    /**
+     * @see DbPro#parallelBatch(String, String, Iterator, int, int)
+     */
+    public static BatchResult parallelBatch(SqlKey sqlKey, String columns, Iterator<?> modelOrRecords, int batchSize, int parallelism) {
+        return DbPro.MAIN.parallelBatch(SqlCache.fixed.get(sqlKey.toString()), columns, modelOrRecords, batchSize, parallelism);
+    }
+
+    /**
+     * @see DbPro#parallelBatchSave(Iterator, int, int)
+     */
+    public static BatchResult parallelBatchSave(Iterator<? extends Model<?>> models, int batchSize, int parallelism) {
+        return DbPro.MAIN.parallelBatchSave(models, batchSize, parallelism);
+    }
+
+    /**
+     * @see DbPro#parallelBatchSave(String, Iterator, int, int)
+     */
+    public static BatchResult parallelBatchSave(String tableName, Iterator<Map<String, Object>> records, int batchSize, int parallelism) {
+        return DbPro.MAIN.parallelBatchSave(tableName, records, batchSize, parallelism);
+    }
+
+    /**
+     * @see DbPro#bulkLoad(String, String, Iterator)
+     */
+    public static long bulkLoad(String tableName, String columns, Iterator<Object[]> rows) {
+        return DbPro.MAIN.bulkLoad(tableName, columns, rows);
+    }
+
     /**
      * 用于执行存储过程等
      *
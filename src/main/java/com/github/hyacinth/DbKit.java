@@ -72,7 +72,11 @@ public class DbKit {
         }
 
         DbPro.removeDbProWithConfig(configName);
-        return configNameToConfig.remove(configName);
+        Config removed = configNameToConfig.remove(configName);
+        if (removed != null) {
+            removed.shutdownAsync();
+        }
+        return removed;
     }
 
     static void addModelToConfigMapping(Class<? extends Model> modelClass, Config config) {
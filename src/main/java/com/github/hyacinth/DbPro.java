@@ -3,6 +3,7 @@ package com.github.hyacinth;
 import com.github.hyacinth.sql.BuildKit;
 import com.github.hyacinth.tools.StringTools;
 import jetbrick.util.annotation.NotNull;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,6 +21,8 @@ public class DbPro {
     private static final Logger LOGGER = LoggerFactory.getLogger(DbPro.class);
 
     private final Config config;
+    //异步门面，首次使用时创建
+    private volatile AsyncDbPro async;
 
     static DbPro MAIN = null;
     private static final Map<String, DbPro> map = new HashMap<String, DbPro>();
@@ -70,9 +73,32 @@ public class DbPro {
         return MAIN;
     }
 
+    /**
+     * 开启事务，返回可在线程之间传递的事务对象
+     *
+     * @see Transaction
+     */
+    public Transaction beginTransaction() {
+        return Transaction.begin(config);
+    }
+
+    /**
+     * 获取异步门面，调用立即返回 Future，在 Config 所属的有界线程池中执行
+     *
+     * @see AsyncDbPro
+     */
+    public AsyncDbPro async() {
+        AsyncDbPro result = async;
+        if (result == null) {
+            result = new AsyncDbPro(this, config);
+            async = result;
+        }
+        return result;
+    }
+
     <T> List<T> query(Config config, Connection conn, String sql, Object... paras) throws SQLException {
         List result = new ArrayList();
-        PreparedStatement pst = conn.prepareStatement(sql);
+        PreparedStatement pst = config.prepareStatement(conn, sql);
         config.dialect.fillStatement(pst, paras);
         ResultSet rs = pst.executeQuery();
         int colAmount = rs.getMetaData().getColumnCount();
@@ -89,17 +115,19 @@ public class DbPro {
                 result.add(rs.getObject(1));
             }
         }
-        DbKit.close(rs, pst);
+        config.release(conn, rs, pst);
         return result;
     }
 
     /**
+     * 查询方法，列值由驱动 getObject 读取，不受 Config#setLobMode 影响，大字段可能为驱动的 Clob/Blob，连接关闭后不一定可读
+     *
      * @see #query(Config, Connection, String, Object...)
      */
     public <T> List<T> query(String sql, Object... paras) {
         Connection conn = null;
         try {
-            conn = config.getConnection();
+            conn = config.getReadConnection();
             return query(config, conn, sql, paras);
         } catch (Exception e) {
             throw new HyacinthException(e);
@@ -140,7 +168,7 @@ public class DbPro {
     public <T> T queryColumn(String sql, Object... paras) {
         Connection conn = null;
         try {
-            conn = config.getConnection();
+            conn = config.getReadConnection();
             return queryColumn(config, conn, sql, paras);
         } catch (Exception e) {
             throw new HyacinthException(e);
@@ -157,14 +185,14 @@ public class DbPro {
     }
 
     <T> T queryColumn(Config config, Connection conn, String sql, Object... paras) throws SQLException {
-        PreparedStatement pst = conn.prepareStatement(sql);
+        PreparedStatement pst = config.prepareStatement(conn, sql);
         config.dialect.fillStatement(pst, paras);
         ResultSet rs = pst.executeQuery();
         Object obj = null;
         if (rs.next()) {
             obj = rs.getObject(1);
         }
-        DbKit.close(rs, pst);
+        config.release(conn, rs, pst);
         return (T) obj;
     }
 
@@ -305,22 +333,25 @@ public class DbPro {
     }
 
     int update(Config config, Connection conn, String sql, Object... paras) throws SQLException {
-        PreparedStatement pst = conn.prepareStatement(sql);
+        PreparedStatement pst = config.prepareStatement(conn, sql);
         config.dialect.fillStatement(pst, paras);
         int result = pst.executeUpdate();
-        DbKit.close(pst);
+        config.release(conn, pst);
         return result;
     }
 
     /**
      * 查询方法
+     * <p>
+     * 大字段按 Config#setLobMode 读取：LAZY 按 EAGER 处理；SPOOL 返回的 LobHandle 在连接关闭后仍然有效，
+     * 写入临时文件的应在不再使用时调用 free（见 {@link #find(LobMode, String, Object...)}）
      *
      * @see #find(Config, Connection, String, Object...)
      */
     public List<Map<String, Object>> find(String sql, Object... paras) {
         Connection conn = null;
         try {
-            conn = config.getConnection();
+            conn = config.getReadConnection();
             return find(config, conn, sql, paras);
         } catch (Exception e) {
             throw new HyacinthException(e);
@@ -336,15 +367,233 @@ public class DbPro {
         return find(sql, DbKit.NULL_PARA_ARRAY);
     }
 
+    /**
+     * 查询方法，单独指定本次查询的大字段读取方式
+     * <p>
+     * LAZY 按 EAGER 处理。SPOOL 时结果中写入临时文件的 LobHandle 应在不再使用时调用 free 删除临时文件，
+     * 未调用 free 的临时文件在句柄被垃圾回收后或JVM退出时删除
+     *
+     * @param lobMode 大字段读取方式，为null时使用 Config 中的设置
+     * @see #find(String, Object...)
+     * @see Config#setLobMode(LobMode)
+     */
+    public List<Map<String, Object>> find(LobMode lobMode, String sql, Object... paras) {
+        Connection conn = null;
+        try {
+            conn = config.getReadConnection();
+            return find(config, conn, lobMode, sql, paras);
+        } catch (Exception e) {
+            throw new HyacinthException(e);
+        } finally {
+            config.close(conn);
+        }
+    }
+
     List<Map<String, Object>> find(Config config, Connection conn, String sql, Object... paras) throws SQLException {
-        PreparedStatement pst = conn.prepareStatement(sql);
+        return find(config, conn, null, sql, paras);
+    }
+
+    private List<Map<String, Object>> find(Config config, Connection conn, LobMode lobMode, String sql, Object... paras) throws SQLException {
+        PreparedStatement pst = config.prepareStatement(conn, sql);
+        config.dialect.fillStatement(pst, paras);
+        ResultSet rs = pst.executeQuery();
+        List<Map<String, Object>> result = RecordBuilder.buildList(config, sql, rs, lobMode);
+        config.release(conn, rs, pst);
+        return result;
+    }
+
+    /**
+     * 查询方法，返回紧凑型Record，同一结果集的所有行共享列结构，数据按列索引存储，
+     * 内存占用远小于 find 返回的 HashMap，适用于大结果集报表查询
+     *
+     * @param sql   sql语句
+     * @param paras 参数
+     * @return List<Record>
+     * @see Record
+     */
+    public List<Record> findCompact(String sql, Object... paras) {
+        Connection conn = null;
+        try {
+            conn = config.getReadConnection();
+            return findCompact(config, conn, sql, paras);
+        } catch (Exception e) {
+            throw new HyacinthException(e);
+        } finally {
+            config.close(conn);
+        }
+    }
+
+    /**
+     * @see #findCompact(String, Object...)
+     */
+    public List<Record> findCompact(String sql) {
+        return findCompact(sql, DbKit.NULL_PARA_ARRAY);
+    }
+
+    List<Record> findCompact(Config config, Connection conn, String sql, Object... paras) throws SQLException {
+        PreparedStatement pst = config.prepareStatement(conn, sql);
+        config.dialect.fillStatement(pst, paras);
+        ResultSet rs = pst.executeQuery();
+        List<Record> result = RecordBuilder.buildCompactList(config, sql, rs);
+        config.release(conn, rs, pst);
+        return result;
+    }
+
+    /**
+     * 列式查询，结果按列保存在原始类型数组中，适用于大批量数值型数据的分析计算
+     * <pre>
+     * 示例:
+     * ColumnarResult result = DbPro.use().queryColumnar("select id, value from metrics where ts > ?", ts);
+     * double[] values = ((ColumnVector.DoubleVector) result.getColumn(2)).toArray();
+     * </pre>
+     *
+     * @param sql   sql语句
+     * @param paras 参数
+     * @return 列式查询结果
+     * @see ColumnarResult
+     */
+    public ColumnarResult queryColumnar(String sql, Object... paras) {
+        Connection conn = null;
+        try {
+            conn = config.getReadConnection();
+            return queryColumnar(config, conn, sql, paras);
+        } catch (Exception e) {
+            throw new HyacinthException(e);
+        } finally {
+            config.close(conn);
+        }
+    }
+
+    /**
+     * @see #queryColumnar(String, Object...)
+     */
+    public ColumnarResult queryColumnar(String sql) {
+        return queryColumnar(sql, DbKit.NULL_PARA_ARRAY);
+    }
+
+    ColumnarResult queryColumnar(Config config, Connection conn, String sql, Object... paras) throws SQLException {
+        PreparedStatement pst = config.prepareStatement(conn, sql);
         config.dialect.fillStatement(pst, paras);
         ResultSet rs = pst.executeQuery();
-        List<Map<String, Object>> result = RecordBuilder.buildList(config, rs);
-        DbKit.close(rs, pst);
+        ColumnarResult result = new ColumnarResult(ColumnSchema.resolve(config, sql, rs));
+        try {
+            while (rs.next()) {
+                result.append(rs);
+            }
+        } catch (SQLException e) {
+            // 可能是缓存的列结构已过期（表结构变更），丢弃后下次查询重新解析
+            ColumnSchema.invalidate(config, sql);
+            throw e;
+        }
+        config.release(conn, rs, pst);
         return result;
     }
 
+    /**
+     * 流式查询，返回逐行读取数据的游标，适用于大结果集导出等场景
+     * <pre>
+     * 示例:
+     * Cursor&lt;Map&lt;String, Object&gt;&gt; cursor = DbPro.use().cursor("select * from user where age > ?", 18);
+     * try {
+     *     while (cursor.hasNext()) {
+     *         Map&lt;String, Object&gt; user = cursor.next();
+     *     }
+     * } finally {
+     *     cursor.close();
+     * }
+     * </pre>
+     *
+     * @param sql   sql语句
+     * @param paras 参数
+     * @return 游标，遍历结束后自动释放连接，提前结束遍历需调用 close
+     * @see Config#setFetchSize(int)
+     */
+    public Cursor<Map<String, Object>> cursor(String sql, Object... paras) {
+        return new Cursor<Map<String, Object>>(config, new RecordBuilder.RecordMapper(), sql, paras);
+    }
+
+    /**
+     * @see #cursor(String, Object...)
+     */
+    public Cursor<Map<String, Object>> cursor(String sql) {
+        return cursor(sql, DbKit.NULL_PARA_ARRAY);
+    }
+
+    /**
+     * 流式查询，单独指定本次查询的大字段读取方式
+     *
+     * @param lobMode 大字段读取方式，为null时使用 Config 中的设置；SPOOL 写入的临时文件在游标关闭时删除
+     * @see #cursor(String, Object...)
+     * @see Config#setLobMode(LobMode)
+     */
+    public Cursor<Map<String, Object>> cursor(LobMode lobMode, String sql, Object... paras) {
+        return new Cursor<Map<String, Object>>(config, new RecordBuilder.RecordMapper(), lobMode, sql, paras);
+    }
+
+    /**
+     * 流式查询，逐行回调处理，处理完毕后自动释放连接
+     *
+     * @param sql     sql语句
+     * @param handler 行处理回调
+     * @param paras   参数
+     * @see #cursor(String, Object...)
+     */
+    public void forEach(String sql, RowHandler<Map<String, Object>> handler, Object... paras) {
+        cursor(sql, paras).each(handler);
+    }
+
+    /**
+     * @see #forEach(String, RowHandler, Object...)
+     */
+    public void forEach(String sql, RowHandler<Map<String, Object>> handler) {
+        forEach(sql, handler, DbKit.NULL_PARA_ARRAY);
+    }
+
+    /**
+     * 逐行扫描结果集，整个查询过程复用同一个行视图，每行不产生新的对象，适用于千万级数据的扫描统计
+     * <p>
+     * 行视图只在回调期间有效，不能在回调之外保存
+     *
+     * @param sql     sql语句
+     * @param visitor 行视图回调
+     * @param paras   参数
+     * @see RowView
+     */
+    public void scan(String sql, RowHandler<RowView> visitor, Object... paras) {
+        new Cursor<RowView>(config, new RowView.ViewMapper(), sql, paras).each(visitor);
+    }
+
+    /**
+     * @see #scan(String, RowHandler, Object...)
+     */
+    public void scan(String sql, RowHandler<RowView> visitor) {
+        scan(sql, visitor, DbKit.NULL_PARA_ARRAY);
+    }
+
+    /**
+     * 以 Reactive Streams 发布者的形式查询，按订阅者的请求量逐行读取，支持背压
+     *
+     * @param sql   sql语句
+     * @param paras 参数
+     * @return 发布者，每次订阅执行一次查询
+     * @see QueryPublisher
+     */
+    public Publisher<Map<String, Object>> publish(String sql, Object... paras) {
+        return new QueryPublisher<Map<String, Object>>(config, sql, paras) {
+            @Override
+            RowMapper<Map<String, Object>> newMapper() {
+                return new RecordBuilder.RecordMapper();
+            }
+        };
+    }
+
+    /**
+     * @see #publish(String, Object...)
+     */
+    public Publisher<Map<String, Object>> publish(String sql) {
+        return publish(sql, DbKit.NULL_PARA_ARRAY);
+    }
+
     /**
      * 查询第一条记录
      *
@@ -356,7 +605,7 @@ public class DbPro {
     public Map<String, Object> findFirst(String sql, Object... paras) {
         Connection conn = null;
         try {
-            conn = config.getConnection();
+            conn = config.getReadConnection();
             return findFirst(config, conn, sql, paras);
         } catch (SQLException e) {
             throw new HyacinthException(e);
@@ -373,11 +622,11 @@ public class DbPro {
     }
 
     Map<String, Object> findFirst(Config config, Connection conn, String sql, Object... paras) throws SQLException {
-        PreparedStatement pst = conn.prepareStatement(sql);
+        PreparedStatement pst = config.prepareStatement(conn, sql);
         config.dialect.fillStatement(pst, paras);
         ResultSet rs = pst.executeQuery();
-        Map<String, Object> record = RecordBuilder.build(config, rs);
-        DbKit.close(rs, pst);
+        Map<String, Object> record = RecordBuilder.build(config, sql, rs);
+        config.release(conn, rs, pst);
         return record;
     }
 
@@ -449,6 +698,16 @@ public class DbPro {
         String[] pKeys = primaryKey.split(",");
         if (pKeys.length != idValue.length)
             throw new IllegalArgumentException("primary key number must equals id value number");
+        ShardRouter.Rule rule = ShardRouter.me().getRule(tableName);
+        if (rule != null) {
+            // 分片列为主键时按主键路由，否则无法确定数据所在的分片
+            if (pKeys.length != 1 || !pKeys[0].trim().equals(rule.getColumn()))
+                throw new HyacinthException("Table " + tableName + " is sharded by " + rule.getColumn()
+                        + ", it can not be deleted by primary key " + primaryKey);
+            String configName = rule.route(idValue[0]);
+            if (!configName.equals(config.name))
+                return use(configName).deleteById(tableName, primaryKey, idValue);
+        }
 
         String sql = config.dialect.forDbDeleteById(tableName, pKeys);
         return update(sql, idValue) >= 1;
@@ -467,6 +726,9 @@ public class DbPro {
      * @return boolean
      */
     public boolean delete(String tableName, String primaryKey, Map<String, Object> record) {
+        DbPro shard = shard(tableName, record);
+        if (shard != null)
+            return shard.delete(tableName, primaryKey, record);
         String[] pKeys = primaryKey.split(",");
         if (pKeys.length <= 1)
             return deleteById(tableName, primaryKey, record.get(primaryKey));
@@ -490,8 +752,7 @@ public class DbPro {
      * @see #delete(String, String, Map)
      */
     public boolean delete(String tableName, Map<String, Object> record) {
-        String defaultPrimaryKey = config.dialect.getDefaultPrimaryKey();
-        return deleteById(tableName, defaultPrimaryKey, record.get(defaultPrimaryKey));
+        return delete(tableName, config.dialect.getDefaultPrimaryKey(), record);
     }
 
     /**
@@ -505,13 +766,28 @@ public class DbPro {
      * @see #doPaginate(Config, Connection, int, int, String, Page, Object...)
      */
     public void paginate(int pageNumber, int pageSize, String sql, @NotNull Page<Map<String, Object>> page, Object... paras) {
+        paginate(PageMode.EXACT, pageNumber, pageSize, sql, page, paras);
+    }
+
+    /**
+     * 按指定方式计算总数的分页
+     *
+     * @param mode       总数的计算方式
+     * @param pageNumber 当前页
+     * @param pageSize   页大小（每页记录数）
+     * @param sql        sql语句
+     * @param page       自定义的page对象
+     * @param paras      参数列表
+     * @see PageMode
+     */
+    public void paginate(PageMode mode, int pageNumber, int pageSize, String sql, @NotNull Page<Map<String, Object>> page, Object... paras) {
         if (page == null) {
             page = new ProvidePage<Map<String, Object>>();
         }
         Connection conn = null;
         try {
-            conn = config.getConnection();
-            doPaginate(config, conn, pageNumber, pageSize, sql, page, paras);
+            conn = config.getReadConnection();
+            doPaginate(config, conn, mode, pageNumber, pageSize, sql, page, paras);
         } catch (Exception e) {
             throw new HyacinthException(e);
         } finally {
@@ -529,37 +805,75 @@ public class DbPro {
         return paginate(pageNumber, pageSize, sql, DbKit.NULL_PARA_ARRAY);
     }
 
-    ProvidePage<Map<String, Object>> paginate(Config config, Connection conn, int pageNumber, int pageSize, String sql, Object... paras) throws SQLException {
+    /**
+     * @see #paginate(PageMode, int, int, String, Page, Object...)
+     */
+    public ProvidePage<Map<String, Object>> paginate(PageMode mode, int pageNumber, int pageSize, String sql, Object... paras) {
         ProvidePage<Map<String, Object>> page = new ProvidePage<Map<String, Object>>();
-        doPaginate(config, conn, pageNumber, pageSize, sql, page, paras);
+        paginate(mode, pageNumber, pageSize, sql, page, paras);
         return page;
     }
 
-    void doPaginate(Config config, Connection conn, int pageNumber, int pageSize, String sql, @NotNull Page<Map<String, Object>> page, Object... paras) throws SQLException {
-        if (pageNumber < 1 || pageSize < 1) {
-            throw new HyacinthException("pageNumber and pageSize must more than 0");
+    /**
+     * 键集（seek）分页，不使用 offset 也不统计总数，任意页的开销与第一页相同
+     * <pre>
+     * 示例:
+     * ProvidePage&lt;Map&lt;String, Object&gt;&gt; page = DbPro.use().paginateByKeyset(20,
+     *         "select id, title from article where status = ?", Keyset.by("id").after(cursor), 1);
+     * </pre>
+     *
+     * @param pageSize 页大小
+     * @param sql      sql语句，不应包含 order by
+     * @param keyset   排序列与上一页的游标
+     * @param paras    参数列表
+     * @return 分页对象，getNextCursor() 为下一页游标
+     * @see Keyset
+     */
+    public ProvidePage<Map<String, Object>> paginateByKeyset(int pageSize, String sql, Keyset keyset, Object... paras) {
+        Connection conn = null;
+        try {
+            conn = config.getReadConnection();
+            return paginateByKeyset(config, conn, pageSize, sql, keyset, paras);
+        } catch (Exception e) {
+            throw new HyacinthException(e);
+        } finally {
+            config.close(conn);
         }
+    }
 
-        String totalSql = BuildKit.buildTotalSql(sql);
-        long totalRow = Db.queryColumn(config, conn, totalSql, paras);
+    /**
+     * @see #paginateByKeyset(int, String, Keyset, Object...)
+     */
+    public ProvidePage<Map<String, Object>> paginateByKeyset(int pageSize, String sql, Keyset keyset) {
+        return paginateByKeyset(pageSize, sql, keyset, DbKit.NULL_PARA_ARRAY);
+    }
 
-        page.setPageNumber(pageNumber).setPageSize(pageSize);
-        if (totalRow == 0) {
-            page.setList(new ArrayList<Map<String, Object>>(0)).setTotalPage(0).setTotalRow(0);
+    ProvidePage<Map<String, Object>> paginateByKeyset(Config config, Connection conn, int pageSize, String sql, Keyset keyset, Object... paras) throws SQLException {
+        if (pageSize < 1) {
+            throw new HyacinthException("pageSize must more than 0");
         }
+        List<Object> parasList = new ArrayList<Object>(Arrays.asList(paras));
+        String pageSql = config.dialect.forKeysetPaginate(sql, keyset.getColumns(), keyset.isAscending(), keyset.getLastKey(), pageSize + 1, parasList);
+        return keyset.toPage(find(config, conn, pageSql, parasList.toArray()), pageSize);
+    }
 
-        int totalPage = (int) (totalRow / pageSize);
-        if (totalRow % pageSize != 0) {
-            totalPage++;
-        }
+    ProvidePage<Map<String, Object>> paginate(Config config, Connection conn, int pageNumber, int pageSize, String sql, Object... paras) throws SQLException {
+        ProvidePage<Map<String, Object>> page = new ProvidePage<Map<String, Object>>();
+        doPaginate(config, conn, pageNumber, pageSize, sql, page, paras);
+        return page;
+    }
 
-        if (pageNumber > totalPage) {
-            page.setList(new ArrayList<Map<String, Object>>(0)).setTotalPage(totalPage).setTotalRow((int) totalRow);
-        }
+    void doPaginate(Config config, Connection conn, int pageNumber, int pageSize, String sql, @NotNull Page<Map<String, Object>> page, Object... paras) throws SQLException {
+        doPaginate(config, conn, PageMode.EXACT, pageNumber, pageSize, sql, page, paras);
+    }
 
-        String pageSql = config.dialect.forPaginate(pageNumber, pageSize, sql);
-        List<Map<String, Object>> list = find(config, conn, pageSql, paras);
-        page.setList(list).setTotalPage(totalPage).setTotalRow((int) totalRow);
+    void doPaginate(Config config, Connection conn, PageMode mode, int pageNumber, int pageSize, String sql, @NotNull Page<Map<String, Object>> page, Object... paras) throws SQLException {
+        new Paginator<Map<String, Object>>() {
+            @Override
+            List<Map<String, Object>> fetch(Config config, Connection conn, String sql, Object... paras) throws SQLException {
+                return find(config, conn, sql, paras);
+            }
+        }.paginate(config, conn, mode, pageNumber, pageSize, sql, page, paras);
     }
 
     boolean save(Config config, Connection conn, String tableName, String primaryKey, Map<String, Object> record) throws SQLException {
@@ -570,14 +884,14 @@ public class DbPro {
 
         PreparedStatement pst;
         if (config.dialect.isOracle())
-            pst = conn.prepareStatement(sql.toString(), pKeys);
+            pst = config.prepareStatement(conn, sql.toString(), pKeys);
         else
-            pst = conn.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS);
+            pst = config.prepareStatement(conn, sql.toString(), Statement.RETURN_GENERATED_KEYS);
 
         config.dialect.fillStatement(pst, paras);
         int result = pst.executeUpdate();
         getGeneratedKey(pst, record, pKeys);
-        DbKit.close(pst);
+        config.release(conn, pst);
         return result >= 1;
     }
 
@@ -606,6 +920,9 @@ public class DbPro {
      * @param record     Map<String, Object>
      */
     public boolean save(String tableName, String primaryKey, Map<String, Object> record) {
+        DbPro shard = shard(tableName, record);
+        if (shard != null)
+            return shard.save(tableName, primaryKey, record);
         Connection conn = null;
         try {
             conn = config.getConnection();
@@ -659,6 +976,9 @@ public class DbPro {
      * @param record     Map<String, Object>
      */
     public boolean update(String tableName, String primaryKey, Map<String, Object> record) {
+        DbPro shard = shard(tableName, record);
+        if (shard != null)
+            return shard.update(tableName, primaryKey, record);
         Connection conn = null;
         try {
             conn = config.getConnection();
@@ -683,7 +1003,7 @@ public class DbPro {
         return update(tableName, config.dialect.getDefaultPrimaryKey(), record);
     }
 
-    private int[] batch(Config config, Connection conn, String sql, Object[][] paras, int batchSize) throws SQLException {
+    int[] batch(Config config, Connection conn, String sql, Object[][] paras, int batchSize) throws SQLException {
         if (paras == null || paras.length == 0)
             return new int[0];
         if (batchSize < 1)
@@ -693,7 +1013,7 @@ public class DbPro {
         int counter = 0;
         int pointer = 0;
         int[] result = new int[paras.length];
-        PreparedStatement pst = conn.prepareStatement(sql);
+        PreparedStatement pst = config.prepareStatement(conn, sql);
         for (int i = 0; i < paras.length; i++) {
             for (int j = 0; j < paras[i].length; j++) {
                 Object value = paras[i][j];
@@ -722,7 +1042,7 @@ public class DbPro {
             conn.commit();
         for (int k = 0; k < r.length; k++)
             result[pointer++] = r[k];
-        DbKit.close(pst);
+        config.release(conn, pst);
         return result;
     }
 
@@ -759,7 +1079,14 @@ public class DbPro {
         }
     }
 
-    private int[] batch(Config config, Connection conn, String sql, String columns, List list, int batchSize) throws SQLException {
+    int[] batch(Config config, Connection conn, String sql, String columns, List<?> list, int batchSize) throws SQLException {
+        return batch(config, conn, sql, columns, list, batchSize, null);
+    }
+
+    /**
+     * @param keys 需要回写到每一行的自增主键列，为null时不获取主键
+     */
+    int[] batch(Config config, Connection conn, String sql, String columns, List<?> list, int batchSize, String[] keys) throws SQLException {
         if (list == null || list.size() == 0)
             return new int[0];
         Object element = list.get(0);
@@ -773,14 +1100,33 @@ public class DbPro {
         for (int i = 0; i < columnArray.length; i++)
             columnArray[i] = columnArray[i].trim();
 
+        // 驱动不支持批量返回主键时（如 SQL Server），逐行执行以查询结果返回主键的插入语句；
+        // 驱动不保证按插入顺序为每一行返回主键时（如 SQLite 只返回最后一行），逐行执行插入语句后获取主键
+        if (keys != null) {
+            String returningSql = config.dialect.forInsertReturningKeys(sql, keys);
+            if (returningSql != null)
+                return multiRowBatch(config, conn, returningSql, returningSql, 1, columnArray, list, isModel, batchSize, keys, true);
+            if (!config.dialect.supportsBatchGeneratedKeys())
+                return multiRowBatch(config, conn, sql, sql, 1, columnArray, list, isModel, batchSize, keys, false);
+        }
+        if (config.batchInsertMode == BatchInsertMode.MULTI_ROW && config.dialect.supportsMultiRowInsert()) {
+            int rowsPerStatement = Math.min(batchSize, Math.min(list.size(), config.dialect.getMaxInsertRows()));
+            rowsPerStatement = Math.max(1, Math.min(rowsPerStatement, config.dialect.getMaxBindParameters() / columnArray.length));
+            // 每行按 columns 依次绑定参数，占位符个数与列数不一致时不改写
+            String multiRowSql = rowsPerStatement > 1 && BuildKit.countParameters(sql) == columnArray.length
+                    ? config.dialect.forMultiRowInsert(sql, rowsPerStatement) : null;
+            if (multiRowSql != null)
+                return multiRowBatch(config, conn, sql, multiRowSql, rowsPerStatement, columnArray, list, isModel, batchSize, keys, false);
+        }
+
         boolean isInTransaction = config.isInTransaction();
         int counter = 0;
         int pointer = 0;
         int size = list.size();
         int[] result = new int[size];
-        PreparedStatement pst = conn.prepareStatement(sql);
+        PreparedStatement pst = prepareBatchStatement(config, conn, sql, keys);
         for (int i = 0; i < size; i++) {
-            Map map = isModel ? ((Model) list.get(i)).attrsMap() : (Map) list.get(i);
+            Map<?, ?> map = isModel ? ((Model<?>) list.get(i)).attrsMap() : (Map<?, ?>) list.get(i);
             for (int j = 0; j < columnArray.length; j++) {
                 Object value = map.get(columnArray[j]);
                 if (config.dialect.isOracle()) {
@@ -797,6 +1143,8 @@ public class DbPro {
             if (++counter >= batchSize) {
                 counter = 0;
                 int[] r = pst.executeBatch();
+                if (keys != null)
+                    setGeneratedKeys(pst.getGeneratedKeys(), list, pointer, r.length, keys, isModel);
                 if (isInTransaction == false)
                     conn.commit();
                 for (int k = 0; k < r.length; k++)
@@ -804,14 +1152,137 @@ public class DbPro {
             }
         }
         int[] r = pst.executeBatch();
+        if (keys != null && r.length > 0)
+            setGeneratedKeys(pst.getGeneratedKeys(), list, pointer, r.length, keys, isModel);
         if (isInTransaction == false)
             conn.commit();
         for (int k = 0; k < r.length; k++)
             result[pointer++] = r[k];
-        DbKit.close(pst);
+        config.release(conn, pst);
+        return result;
+    }
+
+    /**
+     * 多行插入：每条语句插入 rowsPerStatement 行，最后不足的部分单独生成语句；累计达到 batchSize 行时提交
+     *
+     * @param returning 语句是否以查询结果返回主键（Dialect.forInsertReturningKeys）
+     */
+    private int[] multiRowBatch(Config config, Connection conn, String sql, String multiRowSql, int rowsPerStatement,
+                                String[] columnArray, List<?> list, boolean isModel, int batchSize,
+                                String[] keys, boolean returning) throws SQLException {
+        boolean isInTransaction = config.isInTransaction();
+        int size = list.size();
+        int[] result = new int[size];
+        int uncommitted = 0;
+        String[] statementKeys = returning ? null : keys;
+        PreparedStatement pst = prepareBatchStatement(config, conn, multiRowSql, statementKeys);
+        for (int start = 0; start < size; start += rowsPerStatement) {
+            int rows = Math.min(rowsPerStatement, size - start);
+            PreparedStatement current = rows == rowsPerStatement ? pst
+                    : prepareBatchStatement(config, conn, config.dialect.forMultiRowInsert(sql, rows), statementKeys);
+            int index = 1;
+            for (int i = start; i < start + rows; i++) {
+                Map<?, ?> map = isModel ? ((Model<?>) list.get(i)).attrsMap() : (Map<?, ?>) list.get(i);
+                for (String column : columnArray)
+                    current.setObject(index++, map.get(column));
+            }
+            int count;
+            if (returning) {
+                count = setGeneratedKeys(current.executeQuery(), list, start, rows, keys, isModel);
+            } else {
+                count = current.executeUpdate();
+                if (keys != null)
+                    setGeneratedKeys(current.getGeneratedKeys(), list, start, rows, keys, isModel);
+            }
+            if (current != pst)
+                config.release(conn, current);
+            // 多行语句只返回总数，与行数一致时每行记为 1
+            for (int i = start; i < start + rows; i++)
+                result[i] = count == rows ? 1 : Statement.SUCCESS_NO_INFO;
+            uncommitted += rows;
+            if (uncommitted >= batchSize) {
+                uncommitted = 0;
+                if (isInTransaction == false)
+                    conn.commit();
+            }
+        }
+        if (isInTransaction == false)
+            conn.commit();
+        config.release(conn, pst);
         return result;
     }
 
+    /**
+     * 创建批量执行的语句，需要获取主键时 Oracle 按主键列名获取，其他数据库使用 RETURN_GENERATED_KEYS
+     */
+    private static PreparedStatement prepareBatchStatement(Config config, Connection conn, String sql, String[] keys) throws SQLException {
+        if (keys == null)
+            return config.prepareStatement(conn, sql);
+        if (config.dialect.isOracle())
+            return config.prepareStatement(conn, sql, keys);
+        return config.prepareStatement(conn, sql, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    /**
+     * 将返回的主键按顺序回写到第 from 行开始的 rows 行，Model 按 Table.getColumnType 转换主键类型
+     * 主键列按列名匹配；结果只包含主键列时按位置匹配（如 MySQL 返回的 GENERATED_KEY）
+     * 返回的主键少于 rows 行时无法确定主键对应的行，抛出异常
+     *
+     * @return 读取的行数
+     */
+    @SuppressWarnings("unchecked")
+    private static int setGeneratedKeys(ResultSet rs, List<?> list, int from, int rows, String[] keys, boolean isModel) throws SQLException {
+        try {
+            ResultSetMetaData meta = rs.getMetaData();
+            int columnCount = meta.getColumnCount();
+            int[] index = new int[keys.length];
+            for (int k = 0; k < keys.length; k++) {
+                index[k] = columnCount == keys.length ? k + 1 : 0;
+                for (int i = 1; i <= columnCount; i++) {
+                    if (keys[k].equalsIgnoreCase(meta.getColumnLabel(i))) {
+                        index[k] = i;
+                        break;
+                    }
+                }
+            }
+            Table table = isModel ? TableMapping.me().getMapping(((Model<?>) list.get(from)).getClass()) : null;
+            // 先读取全部主键，行数一致后再回写，避免部分行写入错位的主键
+            Object[][] values = new Object[rows][keys.length];
+            int read = 0;
+            while (read < rows && rs.next()) {
+                Object[] value = values[read++];
+                for (int k = 0; k < keys.length; k++) {
+                    if (index[k] == 0)
+                        continue;
+                    Class<?> colType = isModel ? table.getColumnType(keys[k]) : null;
+                    if (colType == Integer.class || colType == int.class)
+                        value[k] = rs.getInt(index[k]);
+                    else if (colType == Long.class || colType == long.class)
+                        value[k] = rs.getLong(index[k]);
+                    else
+                        value[k] = rs.getObject(index[k]);
+                }
+            }
+            if (read != rows)
+                throw new HyacinthException("The driver returned " + read + " generated keys for " + rows
+                        + " inserted rows, override Dialect.supportsBatchGeneratedKeys() to return false.");
+            for (int r = 0; r < rows; r++) {
+                Object row = list.get(from + r);
+                for (int k = 0; k < keys.length; k++) {
+                    if (index[k] == 0)
+                        continue;
+                    if (isModel)
+                        ((Model<?>) row).set(keys[k], values[r][k]);
+                    else
+                        ((Map<String, Object>) row).put(keys[k], values[r][k]);
+                }
+            }
+            return read;
+        } finally {
+            rs.close();
+        }
+    }
+
     /**
      * 批量执行 insert,update,delete 语句
      * <pre>
@@ -819,6 +1290,7 @@ public class DbPro {
      * String sql = "insert into user(name, cash) values(?, ?)";
      * int[] result = DbPro.use().batch(sql, "name, cash", modelList, 500);
      * </pre>
+     * 批量插入方式为 BatchInsertMode.MULTI_ROW 时，insert 语句合并为多行插入执行
      *
      * @param sql               sql语句
      * @param columns           待处理的属性字段，多个用","号分隔
@@ -827,13 +1299,17 @@ public class DbPro {
      * @return 操作记录数
      */
     public int[] batch(String sql, String columns, List modelOrRecordList, int batchSize) {
+        return batch(sql, columns, modelOrRecordList, batchSize, (String[]) null);
+    }
+
+    private int[] batch(String sql, String columns, List<?> modelOrRecordList, int batchSize, String[] keys) {
         Connection conn = null;
         Boolean autoCommit = null;
         try {
             conn = config.getConnection();
             autoCommit = conn.getAutoCommit();
             conn.setAutoCommit(false);
-            return batch(config, conn, sql, columns, modelOrRecordList, batchSize);
+            return batch(config, conn, sql, columns, modelOrRecordList, batchSize, keys);
         } catch (Exception e) {
             throw new HyacinthException(e);
         } finally {
@@ -913,6 +1389,7 @@ public class DbPro {
 
     /**
      * 批量保存Model
+     * 开启 Config#setBatchGeneratedKeys 且第一个Model的主键为空时，数据库生成的主键按 Table.getColumnType 转换类型后回写到每个Model
      *
      * @param modelList model list
      * @param batchSize 批量操作最大行数
@@ -923,6 +1400,35 @@ public class DbPro {
             return new int[0];
 
         Model model = modelList.get(0);
+        String[] sqlAndColumns = forBatchSave(model);
+        return batch(sqlAndColumns[0], sqlAndColumns[1], modelList, batchSize, generatedKeys(model));
+    }
+
+    /**
+     * 批量保存Model时需要回写的主键列，未开启 Config#setBatchGeneratedKeys 时返回 null
+     */
+    private String[] generatedKeys(Model<?> model) {
+        if (!config.batchGeneratedKeys)
+            return null;
+        return generatedKeys(TableMapping.me().getMapping(model.getClass()).getPrimaryKey(), model.attrsMap());
+    }
+
+    /**
+     * 第一行中值为空的主键列，即批量保存后需要回写数据库生成值的列，没有时返回 null
+     */
+    private static String[] generatedKeys(String[] pKeys, Map<String, Object> first) {
+        List<String> keys = new ArrayList<String>();
+        for (String pKey : pKeys) {
+            if (first.get(pKey.trim()) == null)
+                keys.add(pKey.trim());
+        }
+        return keys.isEmpty() ? null : keys.toArray(new String[keys.size()]);
+    }
+
+    /**
+     * 以第一个Model生成批量保存的Sql与列名
+     */
+    private String[] forBatchSave(Model<?> model) {
         Map<String, Object> attrs = model.attrsMap();
         String[] attrNames = new String[attrs.entrySet().size()];
         int index = 0;
@@ -934,22 +1440,55 @@ public class DbPro {
         StringBuilder sql = new StringBuilder();
         List<Object> parasNoUse = new ArrayList<Object>();
         config.dialect.forModelSave(TableMapping.me().getMapping(model.getClass()), attrs, sql, parasNoUse);
-        return batch(sql.toString(), columns, modelList, batchSize);
+        return new String[]{sql.toString(), columns};
     }
 
     /**
-     * 批量保存
+     * 自定义主键批量保存，并回写数据库生成的主键
+     * 第一条记录的主键为空时，数据库生成的主键回写到每条记录；
+     * SQL Server 的驱动不支持批量返回主键，通过 output inserted.主键 逐行插入并返回主键，表中需存在该主键列
+     * 驱动不能按插入顺序为每一行返回主键时（Dialect.supportsBatchGeneratedKeys 为 false，如 SQLite）逐行插入
      *
      * @param tableName  表名
+     * @param primaryKey 主键列名，复合主键用","号分隔
      * @param recordList List<Map>
      * @param batchSize  批量操作最大行数
      * @return 操作记录数
      */
-    public int[] batchSave(String tableName, List<Map<String, Object>> recordList, int batchSize) {
+    public int[] batchSave(String tableName, String primaryKey, List<Map<String, Object>> recordList, int batchSize) {
         if (recordList == null || recordList.size() == 0)
             return new int[0];
+        if (routesElsewhere(tableName, recordList))
+            return ShardRouter.me().batchSave(tableName, primaryKey, recordList, batchSize);
 
         Map<String, Object> record = recordList.get(0);
+        String[] sqlAndColumns = forBatchSave(tableName, record);
+        return batch(sqlAndColumns[0], sqlAndColumns[1], recordList, batchSize, generatedKeys(primaryKey.split(","), record));
+    }
+
+    /**
+     * 批量保存，不获取数据库生成的主键
+     *
+     * @param tableName  表名
+     * @param recordList List<Map>
+     * @param batchSize  批量操作最大行数
+     * @return 操作记录数
+     * @see #batchSave(String, String, List, int)
+     */
+    public int[] batchSave(String tableName, List<Map<String, Object>> recordList, int batchSize) {
+        if (recordList == null || recordList.size() == 0)
+            return new int[0];
+        if (routesElsewhere(tableName, recordList))
+            return ShardRouter.me().batchSave(tableName, recordList, batchSize);
+
+        String[] sqlAndColumns = forBatchSave(tableName, recordList.get(0));
+        return batch(sqlAndColumns[0], sqlAndColumns[1], recordList, batchSize);
+    }
+
+    /**
+     * 以第一条记录生成批量保存的Sql与列名
+     */
+    private String[] forBatchSave(String tableName, Map<String, Object> record) {
         String[] colNames = new String[record.entrySet().size()];
         int index = 0;
         // the same as the iterator in Dialect.forDbSave() to ensure the order of the columns
@@ -962,7 +1501,301 @@ public class DbPro {
         StringBuilder sql = new StringBuilder();
         List<Object> parasNoUse = new ArrayList<Object>();
         config.dialect.forDbSave(tableName, pKeysNoUse, record, sql, parasNoUse);
-        return batch(sql.toString(), columns, recordList, batchSize);
+        return new String[]{sql.toString(), columns};
+    }
+
+    private BatchResult batch(Config config, Connection conn, String sql, Iterator<Object[]> rows, int batchSize, BatchCallback callback) throws SQLException {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("The batchSize must more than 0.");
+        BatchResult result = new BatchResult();
+        Object[][] chunk = new Object[batchSize][];
+        int counter = 0;
+        while (rows.hasNext()) {
+            chunk[counter++] = rows.next();
+            if (counter == batchSize) {
+                afterChunk(result, batch(config, conn, sql, chunk, batchSize), callback);
+                counter = 0;
+            }
+        }
+        if (counter > 0)
+            afterChunk(result, batch(config, conn, sql, Arrays.copyOf(chunk, counter), batchSize), callback);
+        return result;
+    }
+
+    private BatchResult batch(Config config, Connection conn, String sql, String columns, Iterator<?> modelOrRecords, int batchSize,
+                              BatchCallback callback, String[] keys) throws SQLException {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("The batchSize must more than 0.");
+        BatchResult result = new BatchResult();
+        List<Object> chunk = new ArrayList<Object>(batchSize);
+        while (modelOrRecords.hasNext()) {
+            chunk.add(modelOrRecords.next());
+            if (chunk.size() == batchSize) {
+                afterChunk(result, batch(config, conn, sql, columns, chunk, batchSize, keys), callback);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            afterChunk(result, batch(config, conn, sql, columns, chunk, batchSize, keys), callback);
+        return result;
+    }
+
+    private static void afterChunk(BatchResult result, int[] counts, BatchCallback callback) {
+        long offset = result.getRows();
+        result.add(counts);
+        if (callback != null)
+            callback.afterChunk(offset, counts);
+    }
+
+    /**
+     * 流式批量执行 insert,update,delete 语句：从迭代器中逐行读取，每 batchSize 行执行并提交一次（在事务中时由事务提交），
+     * 内存占用只与 batchSize 有关，返回汇总结果
+     * <pre>
+     * 示例:
+     * String sql = "insert into user(name, cash) values(?, ?)";
+     * BatchResult result = DbPro.use().batch(sql, rowIterator, 1000, new BatchCallback() {
+     *     public void afterChunk(long offset, int[] counts) {
+     *         LOGGER.info("imported " + (offset + counts.length));
+     *     }
+     * });
+     * </pre>
+     *
+     * @param sql       sql语句
+     * @param rows      参数行迭代器
+     * @param batchSize 每批行数
+     * @param callback  每批执行后的回调，可以为null
+     * @return 汇总结果
+     */
+    public BatchResult batch(String sql, Iterator<Object[]> rows, int batchSize, BatchCallback callback) {
+        Connection conn = null;
+        Boolean autoCommit = null;
+        try {
+            conn = config.getConnection();
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            return batch(config, conn, sql, rows, batchSize, callback);
+        } catch (Exception e) {
+            throw new HyacinthException(e);
+        } finally {
+            if (autoCommit != null)
+                try {
+                    conn.setAutoCommit(autoCommit);
+                } catch (Exception e) {
+                    LOGGER.error(e.getMessage(), e);
+                }
+            config.close(conn);
+        }
+    }
+
+    /**
+     * @see #batch(String, Iterator, int, BatchCallback)
+     */
+    public BatchResult batch(String sql, Iterator<Object[]> rows, int batchSize) {
+        return batch(sql, rows, batchSize, null);
+    }
+
+    /**
+     * @see #batch(String, Iterator, int, BatchCallback)
+     */
+    public BatchResult batch(String sql, Iterable<Object[]> rows, int batchSize) {
+        return batch(sql, rows.iterator(), batchSize, null);
+    }
+
+    /**
+     * 流式批量执行 insert,update,delete 语句，参数从 Model 或 Map 中按列名读取
+     *
+     * @param sql             sql语句
+     * @param columns         待处理的属性字段，多个用","号分隔
+     * @param modelOrRecords  Model 或者 Map 的迭代器
+     * @param batchSize       每批行数
+     * @param callback        每批执行后的回调，可以为null
+     * @return 汇总结果
+     * @see #batch(String, Iterator, int, BatchCallback)
+     * @see #batch(String, String, List, int)
+     */
+    public BatchResult batch(String sql, String columns, Iterator<?> modelOrRecords, int batchSize, BatchCallback callback) {
+        return batch(sql, columns, modelOrRecords, batchSize, callback, null);
+    }
+
+    private BatchResult batch(String sql, String columns, Iterator<?> modelOrRecords, int batchSize, BatchCallback callback, String[] keys) {
+        Connection conn = null;
+        Boolean autoCommit = null;
+        try {
+            conn = config.getConnection();
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            return batch(config, conn, sql, columns, modelOrRecords, batchSize, callback, keys);
+        } catch (Exception e) {
+            throw new HyacinthException(e);
+        } finally {
+            if (autoCommit != null)
+                try {
+                    conn.setAutoCommit(autoCommit);
+                } catch (Exception e) {
+                    LOGGER.error(e.getMessage(), e);
+                }
+            config.close(conn);
+        }
+    }
+
+    /**
+     * @see #batch(String, String, Iterator, int, BatchCallback)
+     */
+    public BatchResult batch(String sql, String columns, Iterator<?> modelOrRecords, int batchSize) {
+        return batch(sql, columns, modelOrRecords, batchSize, null);
+    }
+
+    /**
+     * 流式批量保存Model，以第一个Model的属性生成插入Sql，数据库生成的主键回写条件与 batchSave(List, int) 相同
+     *
+     * @param models    Model 迭代器
+     * @param batchSize 每批行数
+     * @param callback  每批执行后的回调，可以为null
+     * @return 汇总结果
+     * @see #batchSave(List, int)
+     */
+    public BatchResult batchSave(Iterator<? extends Model<?>> models, int batchSize, BatchCallback callback) {
+        if (!models.hasNext())
+            return new BatchResult();
+        Model<?> first = models.next();
+        String[] sqlAndColumns = forBatchSave(first);
+        return batch(sqlAndColumns[0], sqlAndColumns[1], prepend(first, models), batchSize, callback, generatedKeys(first));
+    }
+
+    /**
+     * @see #batchSave(Iterator, int, BatchCallback)
+     */
+    public BatchResult batchSave(Iterator<? extends Model<?>> models, int batchSize) {
+        return batchSave(models, batchSize, null);
+    }
+
+    /**
+     * 流式批量保存，以第一条记录的列生成插入Sql，不获取数据库生成的主键
+     *
+     * @param tableName 表名
+     * @param records   记录迭代器
+     * @param batchSize 每批行数
+     * @param callback  每批执行后的回调，可以为null
+     * @return 汇总结果
+     * @see #batchSave(String, List, int)
+     */
+    public BatchResult batchSave(String tableName, Iterator<Map<String, Object>> records, int batchSize, BatchCallback callback) {
+        requireUnsharded(tableName);
+        if (!records.hasNext())
+            return new BatchResult();
+        Map<String, Object> first = records.next();
+        String[] sqlAndColumns = forBatchSave(tableName, first);
+        return batch(sqlAndColumns[0], sqlAndColumns[1], prepend(first, records), batchSize, callback, null);
+    }
+
+    /**
+     * @see #batchSave(String, Iterator, int, BatchCallback)
+     */
+    public BatchResult batchSave(String tableName, Iterator<Map<String, Object>> records, int batchSize) {
+        return batchSave(tableName, records, batchSize, null);
+    }
+
+    /**
+     * 将已读取的第一个元素放回迭代器头部
+     */
+    private static <T> Iterator<T> prepend(final T first, final Iterator<? extends T> rest) {
+        return new Iterator<T>() {
+            private boolean firstReturned;
+
+            @Override
+            public boolean hasNext() {
+                return !firstReturned || rest.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!firstReturned) {
+                    firstReturned = true;
+                    return first;
+                }
+                return rest.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * 并行批量执行 insert,update,delete 语句：启动 parallelism 个分区，每个分区使用一个独立连接，
+     * 从迭代器中每次领取 batchSize 行执行并提交，数据库的写入能力不再受单个会话限制。
+     * 各行之间的执行顺序不确定，适用于幂等、互不依赖的数据（如分区表导入）。
+     * 不能在事务中调用；任一分区失败后其他分区停止领取数据，抛出汇总了各分区异常的 BatchException，
+     * 其中包含已提交部分的结果。callback 会在多个线程中调用
+     * <pre>
+     * 示例:
+     * BatchResult result = DbPro.use().parallelBatch(sql, rowIterator, 1000, 4, null);
+     * </pre>
+     *
+     * @param sql         sql语句
+     * @param rows        参数行迭代器
+     * @param batchSize   每批行数
+     * @param parallelism 并行分区数（同时使用的连接数），实际并行度还受异步线程池大小限制
+     * @param callback    每批执行后的回调，可以为null
+     * @return 汇总结果
+     * @throws BatchException 有分区执行失败时
+     * @see Config#setAsyncPoolSize(int)
+     */
+    public BatchResult parallelBatch(String sql, Iterator<Object[]> rows, int batchSize, int parallelism, BatchCallback callback) {
+        return new ParallelBatch(this, config, sql, null, rows, batchSize, callback).execute(parallelism);
+    }
+
+    /**
+     * @see #parallelBatch(String, Iterator, int, int, BatchCallback)
+     */
+    public BatchResult parallelBatch(String sql, Iterator<Object[]> rows, int batchSize, int parallelism) {
+        return parallelBatch(sql, rows, batchSize, parallelism, null);
+    }
+
+    /**
+     * 并行批量执行，参数从 Model 或 Map 中按列名读取
+     *
+     * @see #parallelBatch(String, Iterator, int, int, BatchCallback)
+     * @see #batch(String, String, List, int)
+     */
+    public BatchResult parallelBatch(String sql, String columns, Iterator<?> modelOrRecords, int batchSize, int parallelism, BatchCallback callback) {
+        return new ParallelBatch(this, config, sql, columns, modelOrRecords, batchSize, callback).execute(parallelism);
+    }
+
+    /**
+     * @see #parallelBatch(String, String, Iterator, int, int, BatchCallback)
+     */
+    public BatchResult parallelBatch(String sql, String columns, Iterator<?> modelOrRecords, int batchSize, int parallelism) {
+        return parallelBatch(sql, columns, modelOrRecords, batchSize, parallelism, null);
+    }
+
+    /**
+     * 并行批量保存Model，以第一个Model的属性生成插入Sql
+     *
+     * @see #parallelBatch(String, Iterator, int, int, BatchCallback)
+     */
+    public BatchResult parallelBatchSave(Iterator<? extends Model<?>> models, int batchSize, int parallelism) {
+        if (!models.hasNext())
+            return new BatchResult();
+        Model<?> first = models.next();
+        String[] sqlAndColumns = forBatchSave(first);
+        return parallelBatch(sqlAndColumns[0], sqlAndColumns[1], prepend(first, models), batchSize, parallelism, null);
+    }
+
+    /**
+     * 并行批量保存，以第一条记录的列生成插入Sql
+     *
+     * @see #parallelBatch(String, Iterator, int, int, BatchCallback)
+     */
+    public BatchResult parallelBatchSave(String tableName, Iterator<Map<String, Object>> records, int batchSize, int parallelism) {
+        requireUnsharded(tableName);
+        if (!records.hasNext())
+            return new BatchResult();
+        Map<String, Object> first = records.next();
+        String[] sqlAndColumns = forBatchSave(tableName, first);
+        return parallelBatch(sqlAndColumns[0], sqlAndColumns[1], prepend(first, records), batchSize, parallelism, null);
     }
 
     /**
@@ -1012,6 +1845,8 @@ public class DbPro {
     public int[] batchUpdate(String tableName, String primaryKey, List<Map<String, Object>> recordList, int batchSize) {
         if (recordList == null || recordList.size() == 0)
             return new int[0];
+        if (routesElsewhere(tableName, recordList))
+            return ShardRouter.me().batchUpdate(tableName, primaryKey, recordList, batchSize);
 
         String[] pKeys = primaryKey.split(",");
         config.dialect.trimPrimaryKeys(pKeys);
@@ -1047,6 +1882,84 @@ public class DbPro {
         return batchUpdate(tableName, config.dialect.getDefaultPrimaryKey(), recordList, batchSize);
     }
 
+    /**
+     * 批量导入，使用数据库原生的导入方式：MySQL 为 LOAD DATA LOCAL INFILE，PostgreSql 为 COPY ... FROM STDIN，
+     * 其他数据库按批量插入执行。行在写入时才从迭代器中读取并编码，不生成临时文件，也不缓存全部数据。
+     * 全部导入后提交（在事务中时由事务提交）
+     * <pre>
+     * 示例:
+     * long count = DbPro.use().bulkLoad("user", "name, cash", rowIterator);
+     * </pre>
+     *
+     * @param tableName 表名
+     * @param columns   列名，多个用","号分隔，与每行的值一一对应
+     * @param rows      行迭代器
+     * @return 导入的行数
+     * @see com.github.hyacinth.dialect.Dialect#bulkLoad(Connection, String, String[], Iterator)
+     */
+    public long bulkLoad(String tableName, String columns, Iterator<Object[]> rows) {
+        requireUnsharded(tableName);
+        String[] columnArray = columns.split(",");
+        for (int i = 0; i < columnArray.length; i++)
+            columnArray[i] = columnArray[i].trim();
+        Connection conn = null;
+        Boolean autoCommit = null;
+        try {
+            conn = config.getConnection();
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            long count = config.dialect.bulkLoad(conn, tableName, columnArray, rows);
+            if (config.isInTransaction() == false)
+                conn.commit();
+            return count;
+        } catch (Exception e) {
+            throw new HyacinthException(e);
+        } finally {
+            if (autoCommit != null)
+                try {
+                    conn.setAutoCommit(autoCommit);
+                } catch (Exception e) {
+                    LOGGER.error(e.getMessage(), e);
+                }
+            config.close(conn);
+        }
+    }
+
+    /**
+     * 表在 ShardRouter 中注册了分片规则且记录不属于当前数据源时，返回记录所在分片；否则返回 null，写入当前数据源
+     */
+    private DbPro shard(String tableName, Map<String, Object> record) {
+        ShardRouter.Rule rule = ShardRouter.me().getRule(tableName);
+        if (rule == null)
+            return null;
+        String configName = rule.route(record.get(rule.getColumn()));
+        return configName.equals(config.name) ? null : use(configName);
+    }
+
+    /**
+     * 表注册了分片规则且存在不属于当前数据源的记录时返回 true，需按分片拆分（ShardRouter）
+     */
+    private boolean routesElsewhere(String tableName, List<Map<String, Object>> recordList) {
+        ShardRouter.Rule rule = ShardRouter.me().getRule(tableName);
+        if (rule == null)
+            return false;
+        for (Map<String, Object> record : recordList) {
+            if (!rule.route(record.get(rule.getColumn())).equals(config.name))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 流式写入无法按分片拆分，分片表需通过 DbPro.use(分片) 指定该表的一个分片
+     */
+    private void requireUnsharded(String tableName) {
+        ShardRouter.Rule rule = ShardRouter.me().getRule(tableName);
+        if (rule != null && !Arrays.asList(rule.getStrategy().getConfigNames()).contains(config.name))
+            throw new HyacinthException("Table " + tableName + " is sharded by " + rule.getColumn()
+                    + ", streaming writes must use DbPro.use(shard)");
+    }
+
     /**
      * 用于执行存储过等其他个性化执行
      *
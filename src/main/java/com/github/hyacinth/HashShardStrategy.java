@@ -0,0 +1,43 @@
+package com.github.hyacinth;
+
+/**
+ * 按分片键取模的分片策略：整数按数值取模，其他类型按 hashCode 取模
+ * <pre>
+ * 示例:
+ * ShardRouter.me().addRule(Order.class, "user_id", new HashShardStrategy("order0", "order1", "order2"));
+ * </pre>
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/8
+ * Time: 9:40
+ */
+public class HashShardStrategy implements ShardStrategy {
+
+    private final String[] configNames;
+
+    public HashShardStrategy(String... configNames) {
+        if (configNames == null || configNames.length == 0)
+            throw new IllegalArgumentException("configNames can not be empty");
+        this.configNames = configNames.clone();
+    }
+
+    @Override
+    public String route(Object shardKey) {
+        long value;
+        if (shardKey instanceof Long || shardKey instanceof Integer || shardKey instanceof Short || shardKey instanceof Byte) {
+            value = ((Number) shardKey).longValue();
+        } else if (shardKey instanceof java.math.BigInteger) {
+            value = ((java.math.BigInteger) shardKey).longValue();
+        } else {
+            value = shardKey.hashCode();
+        }
+        int n = configNames.length;
+        return configNames[(int) (((value % n) + n) % n)];
+    }
+
+    @Override
+    public String[] getConfigNames() {
+        return configNames.clone();
+    }
+}
@@ -0,0 +1,340 @@
+package com.github.hyacinth;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 键集（seek）分页条件：排序列、排序方向与上一页最后一行的键值
+ * <p>
+ * 键集分页不使用 offset，而是以 "where (a, b) > (?, ?) order by a, b" 的方式从上一页的最后一行继续读取，
+ * 配合排序列上的索引，任意页的开销与第一页相同。排序列需为查询结果中的列名（别名），值不能为null，
+ * 且排序列组合需唯一（通常以主键作为最后一列）；所有排序列使用相同的排序方向。
+ * 查询Sql会作为子查询使用，不应包含 order by
+ * <pre>
+ * 示例:
+ * ProvidePage&lt;Map&lt;String, Object&gt;&gt; page = DbPro.use().paginateByKeyset(20,
+ *         "select id, create_time, title from article where status = ?",
+ *         Keyset.by("create_time", "id").desc().after(request.getParameter("cursor")), 1);
+ * String next = page.getNextCursor();   // 为null时表示没有下一页
+ * </pre>
+ * <p>
+ * 游标字符串是对键值的编码（URL安全的Base64），不包含可执行的序列化数据
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/10
+ * Time: 9:20
+ */
+public class Keyset {
+
+    private static final byte VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte STRING = 3;
+    private static final byte DECIMAL = 4;
+    private static final byte BIG_INTEGER = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte TIMESTAMP = 7;
+    private static final byte SQL_DATE = 8;
+    private static final byte SQL_TIME = 9;
+    private static final byte DATE = 10;
+    private static final byte INTEGER = 11;
+
+    private final String[] columns;
+    private boolean ascending = true;
+    //上一页最后一行的键值，为null时查询第一页
+    private Object[] lastKey;
+    private int pageNumber = 1;
+
+    private Keyset(String[] columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * 指定排序列
+     *
+     * @param columns 排序列，组合需唯一
+     */
+    public static Keyset by(String... columns) {
+        if (columns == null || columns.length == 0)
+            throw new IllegalArgumentException("keyset columns can not be empty");
+        return new Keyset(columns.clone());
+    }
+
+    public Keyset asc() {
+        this.ascending = true;
+        return this;
+    }
+
+    public Keyset desc() {
+        this.ascending = false;
+        return this;
+    }
+
+    /**
+     * 从指定键值之后开始读取
+     *
+     * @param lastKey 上一页最后一行的排序列值，与排序列一一对应
+     */
+    public Keyset after(Object... lastKey) {
+        if (lastKey != null && lastKey.length != columns.length)
+            throw new IllegalArgumentException("keyset needs " + columns.length + " key values");
+        this.lastKey = lastKey == null ? null : lastKey.clone();
+        return this;
+    }
+
+    /**
+     * 从游标位置开始读取，游标为空时读取第一页
+     *
+     * @param cursor 上一页返回的 nextCursor
+     * @throws HyacinthException 游标格式错误或与排序列不匹配时
+     */
+    public Keyset after(String cursor) {
+        if (cursor == null || cursor.length() == 0) {
+            this.lastKey = null;
+            this.pageNumber = 1;
+            return this;
+        }
+        decode(cursor);
+        return this;
+    }
+
+    public String[] getColumns() {
+        return columns;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public Object[] getLastKey() {
+        return lastKey;
+    }
+
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    /**
+     * 由多读取一行的查询结果生成分页对象：多出的一行表示存在下一页，此时以本页最后一行生成下一页游标。
+     * 键集分页不统计总数，totalRow/totalPage 为 -1
+     *
+     * @param rows     查询结果，最多 pageSize + 1 行
+     * @param pageSize 页大小
+     */
+    <T> ProvidePage<T> toPage(List<T> rows, int pageSize) {
+        boolean hasNext = rows.size() > pageSize;
+        List<T> list = hasNext ? new ArrayList<T>(rows.subList(0, pageSize)) : rows;
+        ProvidePage<T> page = new ProvidePage<T>();
+        page.setList(list).setPageNumber(pageNumber).setPageSize(pageSize).setTotalRow(-1).setTotalPage(-1);
+        page.setNextCursor(hasNext ? nextCursor(keyOf(list.get(list.size() - 1))) : null)
+                .setMode(PageMode.NO_COUNT)
+                .setHasNext(hasNext);
+        return page;
+    }
+
+    /**
+     * 从行中取出排序列的值
+     */
+    Object[] keyOf(Object row) {
+        Object[] key = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            Object value = row instanceof Model ? ((Model) row).get(columns[i]) : ((Map) row).get(columns[i]);
+            if (value == null)
+                throw new HyacinthException("Keyset column " + columns[i] + " can not be null");
+            key[i] = value;
+        }
+        return key;
+    }
+
+    /**
+     * 生成下一页的游标
+     */
+    String nextCursor(Object[] key) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeInt(pageNumber + 1);
+            out.writeByte(key.length);
+            for (Object value : key) {
+                writeValue(out, value);
+            }
+            out.flush();
+            return encodeBase64(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new HyacinthException(e);
+        }
+    }
+
+    private void decode(String cursor) {
+        try {
+            byte[] data = decodeBase64(cursor);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readByte() != VERSION)
+                throw new HyacinthException("Unsupported keyset cursor: " + cursor);
+            int page = in.readInt();
+            int count = in.readByte();
+            if (page < 1 || count != columns.length)
+                throw new HyacinthException("Keyset cursor does not match columns: " + cursor);
+            Object[] key = new Object[count];
+            for (int i = 0; i < count; i++) {
+                key[i] = readValue(in);
+            }
+            this.lastKey = key;
+            this.pageNumber = page;
+        } catch (IOException e) {
+            throw new HyacinthException("Invalid keyset cursor: " + cursor, e);
+        } catch (IllegalArgumentException e) {
+            throw new HyacinthException("Invalid keyset cursor: " + cursor, e);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(INTEGER);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            out.writeUTF(value.toString());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            out.writeUTF(value.toString());
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof Time) {
+            out.writeByte(SQL_TIME);
+            out.writeLong(((Time) value).getTime());
+        } else if (value instanceof java.util.Date) {
+            out.writeByte(DATE);
+            out.writeLong(((java.util.Date) value).getTime());
+        } else {
+            throw new HyacinthException("Unsupported keyset value type: " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case STRING:
+                return in.readUTF();
+            case DECIMAL:
+                return new BigDecimal(in.readUTF());
+            case BIG_INTEGER:
+                return new BigInteger(in.readUTF());
+            case BOOLEAN:
+                return in.readBoolean();
+            case TIMESTAMP: {
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            }
+            case SQL_DATE:
+                return new java.sql.Date(in.readLong());
+            case SQL_TIME:
+                return new Time(in.readLong());
+            case DATE:
+                return new java.util.Date(in.readLong());
+            default:
+                throw new IOException("Unknown keyset value type: " + type);
+        }
+    }
+
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    /**
+     * URL安全的Base64编码（RFC 4648 base64url），不补 '='
+     */
+    static String encodeBase64(byte[] data) {
+        StringBuilder sb = new StringBuilder((data.length + 2) / 3 * 4);
+        int i = 0;
+        for (; i + 3 <= data.length; i += 3) {
+            int n = (data[i] & 0xff) << 16 | (data[i + 1] & 0xff) << 8 | (data[i + 2] & 0xff);
+            sb.append(BASE64[n >>> 18]).append(BASE64[(n >>> 12) & 0x3f]).append(BASE64[(n >>> 6) & 0x3f]).append(BASE64[n & 0x3f]);
+        }
+        int rest = data.length - i;
+        if (rest > 0) {
+            int n = (data[i] & 0xff) << 16 | (rest == 2 ? (data[i + 1] & 0xff) << 8 : 0);
+            sb.append(BASE64[n >>> 18]).append(BASE64[(n >>> 12) & 0x3f]);
+            if (rest == 2) {
+                sb.append(BASE64[(n >>> 6) & 0x3f]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * URL安全的Base64解码，末尾的 '=' 可有可无
+     *
+     * @throws IllegalArgumentException 包含非法字符或长度不正确
+     */
+    static byte[] decodeBase64(String text) {
+        int length = text.length();
+        while (length > 0 && text.charAt(length - 1) == '=') {
+            length--;
+        }
+        if (length % 4 == 1)
+            throw new IllegalArgumentException("Invalid base64 length");
+        byte[] data = new byte[length * 3 / 4];
+        int buffer = 0, bits = 0, pos = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            int v;
+            if (c >= 'A' && c <= 'Z') {
+                v = c - 'A';
+            } else if (c >= 'a' && c <= 'z') {
+                v = c - 'a' + 26;
+            } else if (c >= '0' && c <= '9') {
+                v = c - '0' + 52;
+            } else if (c == '-' || c == '+') {
+                v = 62;
+            } else if (c == '_' || c == '/') {
+                v = 63;
+            } else {
+                throw new IllegalArgumentException("Invalid base64 character: " + c);
+            }
+            buffer = (buffer << 6) | v;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                data[pos++] = (byte) (buffer >>> bits);
+            }
+        }
+        return data;
+    }
+}
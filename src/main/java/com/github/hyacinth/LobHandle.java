@@ -0,0 +1,571 @@
+package com.github.hyacinth;
+
+import java.io.*;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 大字段句柄，按需以流的方式读取数据，避免每一行都复制一份完整的 byte[]/String
+ * <p>
+ * LAZY 模式下句柄直接引用驱动的 Blob/Clob，只在游标打开期间有效；
+ * SPOOL 模式下数据已读出，超过阈值的保存在临时文件中：由游标读出的句柄在游标关闭时删除临时文件，
+ * 一次性读取全部结果的查询返回的句柄应在不再使用时调用 free 删除临时文件；
+ * 未调用 free 的临时文件在句柄被垃圾回收后（下次写入临时文件时）或JVM退出时删除
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/1
+ * Time: 10:20
+ *
+ * @see LobMode
+ */
+public abstract class LobHandle {
+
+    private static final String CHARSET = "UTF-8";
+    private static final int BUFFER_SIZE = 8192;
+
+    //游标打开期间写入临时文件的句柄，按游标的结果集登记，游标关闭时统一删除
+    private static final ConcurrentMap<ResultSet, Spool> SPOOLS = new ConcurrentHashMap<ResultSet, Spool>();
+    //临时文件句柄的幻象引用，句柄被回收后删除其临时文件
+    private static final ReferenceQueue<LobHandle> COLLECTED = new ReferenceQueue<LobHandle>();
+    private static final Set<SpoolFile> SPOOL_FILES = Collections.newSetFromMap(new ConcurrentHashMap<SpoolFile, Boolean>());
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread("hyacinth-lob-cleaner") {
+            @Override
+            public void run() {
+                for (SpoolFile spoolFile : SPOOL_FILES) {
+                    spoolFile.file.delete();
+                }
+            }
+        });
+    }
+
+    //大字段读取策略 jdbcType:mode:threshold -> reader，同一组合复用同一实例，列结构与映射器缓存据此判断是否相同
+    private static final ConcurrentMap<String, ColumnReader> READERS = new ConcurrentHashMap<String, ColumnReader>();
+
+    LobHandle() {
+    }
+
+    /**
+     * 数据长度，二进制为字节数，文本为字符数
+     */
+    public abstract long length();
+
+    /**
+     * 释放资源（驱动端的Lob或临时文件），释放后不能再读取
+     */
+    public abstract void free();
+
+    /**
+     * 数据是否保存在临时文件中
+     */
+    public boolean isSpooled() {
+        return false;
+    }
+
+    /**
+     * 二进制大字段（BLOB）
+     */
+    public abstract static class Binary extends LobHandle {
+
+        Binary() {
+        }
+
+        /**
+         * 打开数据流，使用完毕后需关闭
+         */
+        public abstract InputStream getBinaryStream();
+
+        /**
+         * 完整读取为 byte[]
+         */
+        public byte[] getBytes() {
+            InputStream is = getBinaryStream();
+            try {
+                return RsKit.readFully(is, (int) Math.min(length(), Integer.MAX_VALUE));
+            } catch (IOException e) {
+                throw new HyacinthException(e);
+            } finally {
+                closeQuietly(is);
+            }
+        }
+    }
+
+    /**
+     * 文本大字段（CLOB/NCLOB）
+     */
+    public abstract static class Text extends LobHandle {
+
+        Text() {
+        }
+
+        /**
+         * 打开字符流，使用完毕后需关闭
+         */
+        public abstract Reader getCharacterStream();
+
+        /**
+         * 完整读取为 String
+         */
+        public String getString() {
+            Reader reader = getCharacterStream();
+            try {
+                return RsKit.readFully(reader, (int) Math.min(length(), Integer.MAX_VALUE));
+            } catch (IOException e) {
+                throw new HyacinthException(e);
+            } finally {
+                closeQuietly(reader);
+            }
+        }
+    }
+
+    /**
+     * 根据读取方式选择大字段的读取策略
+     *
+     * @param jdbcType  列的JDBC类型，CLOB/NCLOB/BLOB
+     * @param mode      读取方式
+     * @param threshold SPOOL 模式下写入临时文件的阈值（字节数/字符数）
+     * @return 读取策略，相同参数返回同一实例
+     */
+    static ColumnReader reader(int jdbcType, LobMode mode, int threshold) {
+        if (mode == LobMode.EAGER) {
+            return ColumnReader.of(jdbcType, true);
+        }
+        // 阈值只对 SPOOL 有效
+        String key = jdbcType + ":" + mode + ":" + (mode == LobMode.SPOOL ? threshold : 0);
+        ColumnReader reader = READERS.get(key);
+        if (reader == null) {
+            reader = createReader(jdbcType, mode, threshold);
+            ColumnReader existing = READERS.putIfAbsent(key, reader);
+            if (existing != null) {
+                reader = existing;
+            }
+        }
+        return reader;
+    }
+
+    private static ColumnReader createReader(final int jdbcType, LobMode mode, final int threshold) {
+        if (mode == LobMode.LAZY) {
+            if (jdbcType == Types.BLOB) {
+                return new ColumnReader(Binary.class) {
+                    @Override
+                    public Object read(ResultSet rs, int index) throws SQLException {
+                        Blob blob = rs.getBlob(index);
+                        return blob == null ? null : new LazyBinary(blob);
+                    }
+                };
+            }
+            return new ColumnReader(Text.class) {
+                @Override
+                public Object read(ResultSet rs, int index) throws SQLException {
+                    Clob clob = jdbcType == Types.NCLOB ? rs.getNClob(index) : rs.getClob(index);
+                    return clob == null ? null : new LazyText(clob);
+                }
+            };
+        }
+        if (mode == LobMode.SPOOL) {
+            if (jdbcType == Types.BLOB) {
+                return new ColumnReader(Binary.class) {
+                    @Override
+                    public Object read(ResultSet rs, int index) throws SQLException {
+                        Blob blob = rs.getBlob(index);
+                        return blob == null ? null : track(rs, spool(blob, threshold));
+                    }
+                };
+            }
+            return new ColumnReader(Text.class) {
+                @Override
+                public Object read(ResultSet rs, int index) throws SQLException {
+                    Clob clob = jdbcType == Types.NCLOB ? rs.getNClob(index) : rs.getClob(index);
+                    return clob == null ? null : track(rs, spool(clob, threshold));
+                }
+            };
+        }
+        return ColumnReader.of(jdbcType, true);
+    }
+
+    /**
+     * 读取Blob，超过阈值时写入临时文件
+     */
+    static Binary spool(Blob blob, int threshold) throws SQLException {
+        InputStream is = blob.getBinaryStream();
+        OutputStream out = null;
+        File file = null;
+        try {
+            ByteArrayOutputStream memory = new ByteArrayOutputStream((int) Math.min(blob.length(), threshold));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long length = 0;
+            int n;
+            while ((n = is.read(buffer)) >= 0) {
+                length += n;
+                if (out == null && length > threshold) {
+                    file = createTempFile();
+                    out = new BufferedOutputStream(new FileOutputStream(file));
+                    memory.writeTo(out);
+                    memory = null;
+                }
+                if (out != null) {
+                    out.write(buffer, 0, n);
+                } else {
+                    memory.write(buffer, 0, n);
+                }
+            }
+            if (out == null) {
+                return new MemoryBinary(memory.toByteArray());
+            }
+            out.close();
+            out = null;
+            return watch(new FileBinary(file, length), file);
+        } catch (IOException e) {
+            if (file != null) {
+                file.delete();
+            }
+            throw new HyacinthException(e);
+        } finally {
+            closeQuietly(out);
+            closeQuietly(is);
+            try {
+                blob.free();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 读取Clob，超过阈值时以UTF-8编码写入临时文件
+     */
+    static Text spool(Clob clob, int threshold) throws SQLException {
+        Reader reader = clob.getCharacterStream();
+        Writer out = null;
+        File file = null;
+        try {
+            StringBuilder memory = new StringBuilder((int) Math.min(clob.length(), threshold));
+            char[] buffer = new char[BUFFER_SIZE];
+            long length = 0;
+            int n;
+            while ((n = reader.read(buffer)) >= 0) {
+                length += n;
+                if (out == null && length > threshold) {
+                    file = createTempFile();
+                    out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), CHARSET));
+                    out.append(memory);
+                    memory = null;
+                }
+                if (out != null) {
+                    out.write(buffer, 0, n);
+                } else {
+                    memory.append(buffer, 0, n);
+                }
+            }
+            if (out == null) {
+                return new MemoryText(memory.toString());
+            }
+            out.close();
+            out = null;
+            return watch(new FileText(file, length), file);
+        } catch (IOException e) {
+            if (file != null) {
+                file.delete();
+            }
+            throw new HyacinthException(e);
+        } finally {
+            closeQuietly(out);
+            closeQuietly(reader);
+            try {
+                clob.free();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    private static File createTempFile() throws IOException {
+        expunge();
+        return File.createTempFile("hyacinth-lob-", ".tmp");
+    }
+
+    /**
+     * 登记临时文件，句柄被回收后删除
+     */
+    private static <H extends LobHandle> H watch(H handle, File file) {
+        SPOOL_FILES.add(new SpoolFile(handle, file));
+        return handle;
+    }
+
+    /**
+     * 删除已被回收的句柄遗留的临时文件
+     */
+    static void expunge() {
+        SpoolFile spoolFile;
+        while ((spoolFile = (SpoolFile) COLLECTED.poll()) != null) {
+            spoolFile.file.delete();
+            SPOOL_FILES.remove(spoolFile);
+        }
+    }
+
+    /**
+     * 游标打开结果集时登记，此后从该结果集读出的临时文件句柄在 {@link #release(ResultSet)} 时删除
+     */
+    static void register(ResultSet rs) {
+        SPOOLS.put(rs, new Spool());
+    }
+
+    /**
+     * 游标关闭时调用，删除从该结果集读出的所有临时文件
+     */
+    static void release(ResultSet rs) {
+        Spool spool = SPOOLS.remove(rs);
+        if (spool != null) {
+            spool.free();
+        }
+    }
+
+    private static <H extends LobHandle> H track(ResultSet rs, H handle) {
+        if (handle.isSpooled()) {
+            Spool spool = SPOOLS.get(rs);
+            if (spool != null) {
+                spool.add(handle);
+            }
+        }
+        return handle;
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static final class SpoolFile extends PhantomReference<LobHandle> {
+        final File file;
+
+        SpoolFile(LobHandle handle, File file) {
+            super(handle, COLLECTED);
+            this.file = file;
+        }
+    }
+
+    /**
+     * 同一游标读出的临时文件句柄
+     */
+    private static final class Spool {
+        private final List<LobHandle> handles = new ArrayList<LobHandle>();
+
+        synchronized void add(LobHandle handle) {
+            handles.add(handle);
+        }
+
+        synchronized void free() {
+            for (LobHandle handle : handles) {
+                handle.free();
+            }
+            handles.clear();
+        }
+    }
+
+    private static final class LazyBinary extends Binary {
+        private final Blob blob;
+
+        LazyBinary(Blob blob) {
+            this.blob = blob;
+        }
+
+        @Override
+        public long length() {
+            try {
+                return blob.length();
+            } catch (SQLException e) {
+                throw new HyacinthException(e);
+            }
+        }
+
+        @Override
+        public InputStream getBinaryStream() {
+            try {
+                return blob.getBinaryStream();
+            } catch (SQLException e) {
+                throw new HyacinthException(e);
+            }
+        }
+
+        @Override
+        public void free() {
+            try {
+                blob.free();
+            } catch (SQLException e) {
+                throw new HyacinthException(e);
+            }
+        }
+    }
+
+    private static final class LazyText extends Text {
+        private final Clob clob;
+
+        LazyText(Clob clob) {
+            this.clob = clob;
+        }
+
+        @Override
+        public long length() {
+            try {
+                return clob.length();
+            } catch (SQLException e) {
+                throw new HyacinthException(e);
+            }
+        }
+
+        @Override
+        public Reader getCharacterStream() {
+            try {
+                return clob.getCharacterStream();
+            } catch (SQLException e) {
+                throw new HyacinthException(e);
+            }
+        }
+
+        @Override
+        public void free() {
+            try {
+                clob.free();
+            } catch (SQLException e) {
+                throw new HyacinthException(e);
+            }
+        }
+    }
+
+    private static final class MemoryBinary extends Binary {
+        private final byte[] data;
+
+        MemoryBinary(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public long length() {
+            return data.length;
+        }
+
+        @Override
+        public InputStream getBinaryStream() {
+            return new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public byte[] getBytes() {
+            return data.clone();
+        }
+
+        @Override
+        public void free() {
+        }
+    }
+
+    private static final class MemoryText extends Text {
+        private final String data;
+
+        MemoryText(String data) {
+            this.data = data;
+        }
+
+        @Override
+        public long length() {
+            return data.length();
+        }
+
+        @Override
+        public Reader getCharacterStream() {
+            return new StringReader(data);
+        }
+
+        @Override
+        public String getString() {
+            return data;
+        }
+
+        @Override
+        public void free() {
+        }
+    }
+
+    private static final class FileBinary extends Binary {
+        private final File file;
+        private final long length;
+
+        FileBinary(File file, long length) {
+            this.file = file;
+            this.length = length;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public boolean isSpooled() {
+            return true;
+        }
+
+        @Override
+        public InputStream getBinaryStream() {
+            try {
+                return new BufferedInputStream(new FileInputStream(file));
+            } catch (FileNotFoundException e) {
+                throw new HyacinthException(e);
+            }
+        }
+
+        @Override
+        public void free() {
+            file.delete();
+        }
+    }
+
+    private static final class FileText extends Text {
+        private final File file;
+        private final long length;
+
+        FileText(File file, long length) {
+            this.file = file;
+            this.length = length;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public boolean isSpooled() {
+            return true;
+        }
+
+        @Override
+        public Reader getCharacterStream() {
+            try {
+                return new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+            } catch (IOException e) {
+                throw new HyacinthException(e);
+            }
+        }
+
+        @Override
+        public void free() {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.hyacinth;
+
+/**
+ * 大字段（CLOB/NCLOB/BLOB）读取方式
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/1
+ * Time: 10:05
+ */
+public enum LobMode {
+
+    /**
+     * 立即完整读取为 String/byte[]（默认）
+     */
+    EAGER,
+
+    /**
+     * 返回 LobHandle，访问时才从数据库读取，只在游标（Cursor/forEach/scan）打开期间有效；
+     * 用于一次性读取全部结果的查询时按 EAGER 处理
+     */
+    LAZY,
+
+    /**
+     * 返回 LobHandle，不超过阈值的数据读入内存，超过阈值时写入临时文件，连接关闭后仍然有效。
+     * 游标读出的临时文件在游标关闭时删除，其他查询读出的应调用 LobHandle#free 删除（未调用时在句柄被回收后删除）
+     *
+     * @see Config#setLobSpoolThreshold(int)
+     */
+    SPOOL
+}
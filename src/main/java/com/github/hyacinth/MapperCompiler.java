@@ -0,0 +1,162 @@
+package com.github.hyacinth;
+
+import com.github.hyacinth.cache.Cache;
+import com.github.hyacinth.cache.LruCache;
+
+import java.lang.reflect.Constructor;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Model映射编译器
+ * <p>
+ * 针对 (Model类, 结果集结构) 生成一次专用的映射器并缓存复用：
+ * 每一列直接绑定对应类型的 getXxx 读取方法（由Table中映射的Java类型决定），
+ * Model通过缓存的构造器实例化，映射时不再有反射查找与逐列类型判断
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/10/25
+ * Time: 10:20
+ */
+public class MapperCompiler {
+
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    //已编译的映射器缓存，有容量上限；列的读取策略均为共享实例（大字段见 LobHandle#reader），可按引用比较
+    private static volatile Cache<Shape, CompiledMapper<?>> compiled = new LruCache<Shape, CompiledMapper<?>>("compiledMapper", DEFAULT_CACHE_SIZE);
+
+    private MapperCompiler() {
+    }
+
+    /**
+     * 设置已编译映射器缓存的容量
+     *
+     * @param size 最多缓存的映射器个数
+     */
+    public static void setCacheSize(int size) {
+        compiled = new LruCache<Shape, CompiledMapper<?>>("compiledMapper", size);
+    }
+
+    /**
+     * 获取（或编译）映射器
+     *
+     * @param modelClass model类
+     * @param schema     结果集列结构
+     * @return 映射器
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <M extends Model> CompiledMapper<M> compile(Class<M> modelClass, ColumnSchema schema) {
+        Shape shape = new Shape(modelClass, schema.labelNames, schema.types, schema.readers);
+        Cache<Shape, CompiledMapper<?>> cache = compiled;
+        CompiledMapper<M> mapper = (CompiledMapper<M>) cache.get(shape);
+        if (mapper == null) {
+            mapper = new CompiledMapper<M>(modelClass, schema);
+            cache.put(shape, mapper);
+        }
+        return mapper;
+    }
+
+    /**
+     * 清除已编译的映射器，Model映射发生变化时使用
+     */
+    public static void clear() {
+        compiled.clear();
+    }
+
+    /**
+     * 编译后的映射器，线程安全，可在多个查询之间共享
+     */
+    @SuppressWarnings("rawtypes")
+    public static final class CompiledMapper<M extends Model> {
+        private final Constructor<M> constructor;
+        private final int columnCount;
+        private final String[] labelNames;
+        private final ColumnReader[] readers;
+
+        CompiledMapper(Class<M> modelClass, ColumnSchema schema) {
+            try {
+                this.constructor = modelClass.getDeclaredConstructor();
+                this.constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                throw new HyacinthException("Model must have a no-argument constructor: " + modelClass.getName(), e);
+            }
+            Table table = TableMapping.me().getMapping(modelClass);
+            this.columnCount = schema.columnCount;
+            this.labelNames = schema.labelNames;
+            this.readers = new ColumnReader[columnCount + 1];
+            // Model中映射了Java类型的列按Java类型读取，其余列以及大字段沿用结果集结构中选定的策略
+            for (int i = 1; i <= columnCount; i++) {
+                Class<?> javaType = table != null ? table.getColumnType(labelNames[i]) : null;
+                if (javaType == null || ColumnReader.isLob(schema.types[i])) {
+                    readers[i] = schema.readers[i];
+                } else {
+                    readers[i] = ColumnReader.of(javaType, schema.types[i]);
+                }
+            }
+        }
+
+        public M newModel() {
+            try {
+                return constructor.newInstance();
+            } catch (Exception e) {
+                throw new HyacinthException(e);
+            }
+        }
+
+        /**
+         * 将结果集当前行读取到Model中
+         */
+        public void fetch(ResultSet rs, M model) throws SQLException {
+            Map<String, Object> attrs = ((Model<?>) model).attrsMap();
+            for (int i = 1; i <= columnCount; i++) {
+                attrs.put(labelNames[i], readers[i].read(rs, i));
+            }
+        }
+
+        public M map(ResultSet rs) throws SQLException {
+            M model = newModel();
+            fetch(rs, model);
+            return model;
+        }
+    }
+
+    /**
+     * 缓存key：Model类 + 结果集结构
+     */
+    private static final class Shape {
+        private final Class<?> modelClass;
+        private final String[] labelNames;
+        private final int[] types;
+        private final ColumnReader[] readers;
+        private final int hash;
+
+        Shape(Class<?> modelClass, String[] labelNames, int[] types, ColumnReader[] readers) {
+            this.modelClass = modelClass;
+            this.labelNames = labelNames;
+            this.types = types;
+            this.readers = readers;
+            this.hash = 31 * (31 * modelClass.hashCode() + Arrays.hashCode(labelNames)) + Arrays.hashCode(types);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Shape))
+                return false;
+            Shape other = (Shape) o;
+            return modelClass == other.modelClass
+                    && Arrays.equals(types, other.types)
+                    && Arrays.equals(readers, other.readers)
+                    && Arrays.equals(labelNames, other.labelNames);
+        }
+    }
+}
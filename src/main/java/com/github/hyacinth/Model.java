@@ -3,6 +3,7 @@ package com.github.hyacinth;
 import com.github.hyacinth.sql.BuildKit;
 import com.github.hyacinth.sql.SqlCache;
 import jetbrick.util.annotation.NotNull;
+import org.reactivestreams.Publisher;
 
 import java.io.Serializable;
 import java.sql.*;
@@ -69,6 +70,20 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
         return (M) this;
     }
 
+    /**
+     * 按分片键切换数据源，Model需已在 ShardRouter 中注册分片规则
+     *
+     * @param shardKey 分片键的值
+     * @see ShardRouter#addRule(Class, String, ShardStrategy)
+     */
+    public M shard(Object shardKey) {
+        ShardRouter.Rule rule = ShardRouter.me().getRule(getUsefulClass());
+        if (rule == null) {
+            throw new HyacinthException("No shard rule registered for " + getUsefulClass().getName());
+        }
+        return use(rule.route(shardKey));
+    }
+
     protected Config getConfig() {
         if (configName != null) {
             return DbKit.getConfig(configName);
@@ -76,6 +91,52 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
         return DbKit.getConfig(getUsefulClass());
     }
 
+    /**
+     * 分片规则，显式指定了数据源（use/shard）时不做路由
+     */
+    private ShardRouter.Rule getShardRule() {
+        return configName == null ? ShardRouter.me().getRule(getUsefulClass()) : null;
+    }
+
+    /**
+     * 只能在单个数据源上执行的查询（分页、游标、发布者等）使用的数据源：
+     * 注册了分片规则但未指定数据源（use/shard）时无法确定分片，抛出异常而不是只查询默认数据源
+     */
+    private Config getSingleConfig() {
+        if (getShardRule() != null) {
+            throw new HyacinthException(getUsefulClass().getName() + " is sharded, call use(configName) or shard(shardKey) before paginate/cursor/publish");
+        }
+        return getConfig();
+    }
+
+    /**
+     * 写操作使用的数据源：按当前属性中的分片键路由
+     */
+    private Config getWriteConfig() {
+        ShardRouter.Rule rule = getShardRule();
+        if (rule == null) {
+            return getConfig();
+        }
+        return DbKit.getConfig(rule.route(attrsMap.get(rule.getColumn())));
+    }
+
+    /**
+     * 按主键操作使用的数据源：分片列即单一主键时按主键路由，否则返回 null 表示需要在所有分片上执行
+     */
+    private Config getConfigById(Table table, Object[] idValues) {
+        ShardRouter.Rule rule = getShardRule();
+        if (rule == null) {
+            return getConfig();
+        }
+        String[] pKeys = table.getPrimaryKey();
+        for (int i = 0; i < pKeys.length; i++) {
+            if (pKeys[i].equalsIgnoreCase(rule.getColumn())) {
+                return DbKit.getConfig(rule.route(idValues[i]));
+            }
+        }
+        return null;
+    }
+
     private Table getMapping() {
         return TableMapping.me().getMapping(getUsefulClass());
     }
@@ -218,14 +279,14 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
         if (sql == null) {
             throw new HyacinthException("Sql can not find! key:" + sqlKey.toString());
         }
-        Config config = getConfig();
+        Config config = getSingleConfig();
         doPaginate(config, pageNumber, pageSize, sql, page, paras);
     }
 
     public void paginate(int pageNumber, int pageSize, SqlKey sqlKey, @NotNull Page<M> page, Map<String, Object> paras) {
         List<Object> parasValueList = new ArrayList<Object>();
         String sql = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasValueList);
-        Config config = getConfig();
+        Config config = getSingleConfig();
         doPaginate(config, pageNumber, pageSize, sql, page, parasValueList.toArray());
     }
 
@@ -261,7 +322,7 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
      * @return 分页数据
      */
     public void paginate(int pageNumber, int pageSize, @NotNull Page<M> page) {
-        Config config = getConfig();
+        Config config = getSingleConfig();
         String sql = config.dialect.forModelFindAll(getMapping(), "*");
         doPaginate(config, pageNumber, pageSize, sql, page, DbKit.NULL_PARA_ARRAY);
     }
@@ -275,36 +336,114 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
         return page;
     }
 
-    private void doPaginate(Config config, int pageNumber, int pageSize, String sql, @NotNull Page<M> page, Object... paras) {
+    /**
+     * 键集（seek）分页，不使用 offset 也不统计总数，任意页的开销与第一页相同
+     *
+     * @param pageSize 页大小
+     * @param sqlKey   sqlKey，对应的Sql不应包含 order by
+     * @param keyset   排序列与上一页的游标
+     * @param paras    参数列表
+     * @return 分页对象，getNextCursor() 为下一页游标
+     * @see Keyset
+     */
+    public ProvidePage<M> paginateByKeyset(int pageSize, SqlKey sqlKey, Keyset keyset, Object... paras) {
+        String sql = SqlCache.fixed.get(sqlKey.toString());
+        if (sql == null) {
+            throw new HyacinthException("Sql can not find! key:" + sqlKey.toString());
+        }
+        return doPaginateByKeyset(getSingleConfig(), pageSize, sql, keyset, paras);
+    }
+
+    public ProvidePage<M> paginateByKeyset(int pageSize, SqlKey sqlKey, Keyset keyset, Map<String, Object> paras) {
+        List<Object> parasValueList = new ArrayList<Object>();
+        String sql = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasValueList);
+        return doPaginateByKeyset(getSingleConfig(), pageSize, sql, keyset, parasValueList.toArray());
+    }
+
+    public ProvidePage<M> paginateByKeyset(int pageSize, SqlKey sqlKey, Keyset keyset) {
+        return paginateByKeyset(pageSize, sqlKey, keyset, DbKit.NULL_PARA_ARRAY);
+    }
+
+    /**
+     * 键集分页查询所有数据
+     *
+     * @see #paginateByKeyset(int, SqlKey, Keyset, Object...)
+     */
+    public ProvidePage<M> paginateByKeyset(int pageSize, Keyset keyset) {
+        Config config = getSingleConfig();
+        String sql = config.dialect.forModelFindAll(getMapping(), "*");
+        return doPaginateByKeyset(config, pageSize, sql, keyset, DbKit.NULL_PARA_ARRAY);
+    }
+
+    private ProvidePage<M> doPaginateByKeyset(Config config, int pageSize, String sql, Keyset keyset, Object... paras) {
+        if (pageSize < 1) {
+            throw new HyacinthException("pageSize must more than 0");
+        }
+        List<Object> parasList = new ArrayList<Object>(Arrays.asList(paras));
+        String pageSql = config.dialect.forKeysetPaginate(sql, keyset.getColumns(), keyset.isAscending(), keyset.getLastKey(), pageSize + 1, parasList);
         Connection conn = null;
         try {
-            conn = config.getConnection();
-            if (pageNumber < 1 || pageSize < 1) {
-                throw new HyacinthException("PageNumber and pageSize must more than 0");
-            }
-
-            String totalSql = BuildKit.buildTotalSql(sql);
-            long totalRow = Db.queryColumn(config, conn, totalSql, paras);
+            conn = config.getReadConnection();
+            return keyset.toPage(find(config, conn, pageSql, parasList.toArray()), pageSize);
+        } catch (Exception e) {
+            throw new HyacinthException(e);
+        } finally {
+            config.close(conn);
+        }
+    }
 
-            page.setPageNumber(pageNumber).setPageSize(pageSize);
-            if (totalRow == 0) {
-                page.setList(new ArrayList<M>(0)).setTotalPage(0).setTotalRow(0);
-            }
+    /**
+     * 按指定方式计算总数的分页
+     *
+     * @param mode       总数的计算方式
+     * @param pageNumber 页码
+     * @param pageSize   页大小
+     * @param sqlKey     sqlKey
+     * @param paras      参数列表
+     * @see PageMode
+     */
+    public ProvidePage<M> paginate(PageMode mode, int pageNumber, int pageSize, SqlKey sqlKey, Object... paras) {
+        String sql = SqlCache.fixed.get(sqlKey.toString());
+        if (sql == null) {
+            throw new HyacinthException("Sql can not find! key:" + sqlKey.toString());
+        }
+        ProvidePage<M> page = new ProvidePage<M>();
+        doPaginate(getSingleConfig(), mode, pageNumber, pageSize, sql, page, paras);
+        return page;
+    }
 
-            int totalPage = (int) (totalRow / pageSize);
-            if (totalRow % pageSize != 0) {
-                totalPage++;
-            }
+    public ProvidePage<M> paginate(PageMode mode, int pageNumber, int pageSize, SqlKey sqlKey, Map<String, Object> paras) {
+        List<Object> parasValueList = new ArrayList<Object>();
+        String sql = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasValueList);
+        ProvidePage<M> page = new ProvidePage<M>();
+        doPaginate(getSingleConfig(), mode, pageNumber, pageSize, sql, page, parasValueList.toArray());
+        return page;
+    }
 
-            if (pageNumber > totalPage) {
-                page.setList(new ArrayList<M>(0)).setTotalPage(totalPage).setTotalRow((int) totalRow);
-            }
+    public ProvidePage<M> paginate(PageMode mode, int pageNumber, int pageSize, SqlKey sqlKey) {
+        return paginate(mode, pageNumber, pageSize, sqlKey, DbKit.NULL_PARA_ARRAY);
+    }
 
-            // --------
-            String pageSql = config.dialect.forPaginate(pageNumber, pageSize, sql);
+    private void doPaginate(Config config, int pageNumber, int pageSize, String sql, @NotNull Page<M> page, Object... paras) {
+        doPaginate(config, PageMode.EXACT, pageNumber, pageSize, sql, page, paras);
+    }
 
-            List<M> list = find(conn, pageSql, paras);
-            page.setList(list).setTotalPage(totalPage).setTotalRow((int) totalRow);
+    private void doPaginate(Config config, PageMode mode, int pageNumber, int pageSize, String sql, @NotNull Page<M> page, Object... paras) {
+        Connection conn = null;
+        try {
+            conn = config.getReadConnection();
+            new Paginator<M>() {
+                @Override
+                List<M> fetch(Config config, Connection conn, String sql, Object... paras) throws SQLException {
+                    try {
+                        return find(config, conn, sql, paras);
+                    } catch (SQLException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new HyacinthException(e);
+                    }
+                }
+            }.paginate(config, conn, mode, pageNumber, pageSize, sql, page, paras);
         } catch (Exception e) {
             throw new HyacinthException(e);
         } finally {
@@ -336,7 +475,7 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
     public boolean save() {
         filter(FILTER_BY_SAVE);
 
-        Config config = getConfig();
+        Config config = getWriteConfig();
         Table table = getMapping();
 
         StringBuilder sql = new StringBuilder();
@@ -353,7 +492,7 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
     public boolean saveOrUpdate() {
         filter(FILTER_BY_SAVE);
 
-        Config config = getConfig();
+        Config config = getWriteConfig();
         Table table = getMapping();
 
         StringBuilder sql = new StringBuilder();
@@ -369,9 +508,9 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
         try {
             conn = config.getConnection();
             if (config.dialect.isOracle()) {
-                pst = conn.prepareStatement(sql.toString(), table.getPrimaryKey());
+                pst = config.prepareStatement(conn, sql.toString(), table.getPrimaryKey());
             } else {
-                pst = conn.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS);
+                pst = config.prepareStatement(conn, sql.toString(), Statement.RETURN_GENERATED_KEYS);
             }
 
             config.dialect.fillStatement(pst, paras);
@@ -407,7 +546,7 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
             }
         }
 
-        Config config = getConfig();
+        Config config = getWriteConfig();
         StringBuilder sql = new StringBuilder();
         List<Object> paras = new ArrayList<Object>();
         config.dialect.forModelUpdate(table, attrsMap, getModifyFlag(), sql, paras);
@@ -472,6 +611,10 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
                 throw new HyacinthException("You can't delete model without primary key value, " + pKeys[i] + " is null");
             }
         }
+        ShardRouter.Rule rule = getShardRule();
+        if (rule != null && attrsMap.get(rule.getColumn()) != null) {
+            return deleteById(getWriteConfig(), table, ids);
+        }
         return deleteById(table, ids);
     }
 
@@ -504,7 +647,19 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
     }
 
     private boolean deleteById(Table table, Object... idValues) {
-        Config config = getConfig();
+        Config config = getConfigById(table, idValues);
+        if (config != null) {
+            return deleteById(config, table, idValues);
+        }
+        // 无法按主键确定分片，在所有分片上删除
+        boolean deleted = false;
+        for (String name : getShardRule().getStrategy().getConfigNames()) {
+            deleted |= deleteById(DbKit.getConfig(name), table, idValues);
+        }
+        return deleted;
+    }
+
+    private boolean deleteById(Config config, Table table, Object... idValues) {
         Connection conn = null;
         try {
             conn = config.getConnection();
@@ -521,14 +676,17 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
      * 查询Model
      */
     private List<M> find(Connection conn, String sql, Object... paras) throws Exception {
-        Config config = getConfig();
+        return find(getConfig(), conn, sql, paras);
+    }
+
+    private List<M> find(Config config, Connection conn, String sql, Object... paras) throws Exception {
         Class<M> modelClass = getUsefulClass();
 
-        PreparedStatement pst = conn.prepareStatement(sql);
+        PreparedStatement pst = config.prepareStatement(conn, sql);
         config.dialect.fillStatement(pst, paras);
         ResultSet rs = pst.executeQuery();
-        List<M> result = ModelBuilder.buildList(rs, modelClass);
-        DbKit.close(rs, pst);
+        List<M> result = ModelBuilder.buildList(config, sql, rs, modelClass);
+        config.release(conn, rs, pst);
         return result;
     }
 
@@ -544,11 +702,24 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
     }
 
     private List<M> find(String sql, Object... paras) {
-        Config config = getConfig();
+        ShardRouter.Rule rule = getShardRule();
+        if (rule != null) {
+            return scatter(rule, sql, BuildKit.getTrailingLimit(sql), paras);
+        }
+        return find(getConfig(), sql, paras);
+    }
+
+    private M findFirst(String sql, Object... paras) {
+        ShardRouter.Rule rule = getShardRule();
+        List<M> result = rule != null ? scatter(rule, sql, 1, paras) : find(getConfig(), sql, paras);
+        return result.size() > 0 ? result.get(0) : null;
+    }
+
+    private List<M> find(Config config, String sql, Object... paras) {
         Connection conn = null;
         try {
-            conn = config.getConnection();
-            return find(conn, sql, paras);
+            conn = config.getReadConnection();
+            return find(config, conn, sql, paras);
         } catch (Exception e) {
             throw new HyacinthException(e);
         } finally {
@@ -556,6 +727,28 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
         }
     }
 
+    /**
+     * 未指定分片时在所有分片上并行查询：Sql 带 order by 时按排序子句归并，否则按分片顺序拼接
+     *
+     * @param limit 合并后的最大行数，0 表示不限制
+     */
+    private List<M> scatter(ShardRouter.Rule rule, String sql, int limit, Object... paras) {
+        ScatterQuery query = ScatterQuery.on(rule.getStrategy().getConfigNames()).failOnError(true).limit(limit);
+        String orderBy = BuildKit.getOrderBy(sql);
+        try {
+            if (orderBy == null) {
+                throw new IllegalArgumentException("order by can not be resolved");
+            }
+            if (orderBy.length() > 0) {
+                query.orderBy(orderBy);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new HyacinthException("Can not merge ordered results of " + getUsefulClass().getName()
+                    + " across shards, call use(configName) or shard(shardKey): " + e.getMessage());
+        }
+        return query.find(getUsefulClass(), sql, paras).getList();
+    }
+
     /**
      * @see #find(String, Object...)
      */
@@ -587,15 +780,126 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
     public List<M> findAll() {
         Config config = getConfig();
         String sql = config.dialect.forModelFindAll(getMapping(), "*");
-        Connection conn = null;
-        try {
-            conn = config.getConnection();
-            return find(conn, sql, DbKit.NULL_PARA_ARRAY);
-        } catch (Exception e) {
-            throw new HyacinthException(e);
-        } finally {
-            config.close(conn);
-        }
+        return find(sql, DbKit.NULL_PARA_ARRAY);
+    }
+
+    /**
+     * 流式查询Model，逐行读取数据，适用于大结果集
+     *
+     * @param sqlKey sqlKey
+     * @param paras  fixed 参数
+     * @return 游标，遍历结束后自动释放连接，提前结束遍历需调用 close
+     * @see DbPro#cursor(String, Object...)
+     */
+    public Cursor<M> cursor(SqlKey sqlKey, Object... paras) {
+        return cursor(SqlCache.fixed.get(sqlKey.toString()), paras);
+    }
+
+    /**
+     * @see #cursor(SqlKey, Object...)
+     */
+    public Cursor<M> cursor(SqlKey sqlKey, Map<String, Object> paras) {
+        List<Object> parasList = new ArrayList<Object>();
+        String sqlStr = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasList);
+        return cursor(sqlStr, parasList.toArray());
+    }
+
+    /**
+     * @see #cursor(SqlKey, Object...)
+     */
+    public Cursor<M> cursor(SqlKey sqlKey) {
+        return cursor(SqlCache.fixed.get(sqlKey.toString()), DbKit.NULL_PARA_ARRAY);
+    }
+
+    /**
+     * 流式查询所有数据
+     *
+     * @see #findAll()
+     */
+    public Cursor<M> cursorAll() {
+        String sql = getConfig().dialect.forModelFindAll(getMapping(), "*");
+        return cursor(sql, DbKit.NULL_PARA_ARRAY);
+    }
+
+    /**
+     * 流式查询Model，单独指定本次查询的大字段读取方式
+     *
+     * @param lobMode 大字段读取方式，为null时使用 Config 中的设置；SPOOL 写入的临时文件在游标关闭时删除
+     * @see #cursor(SqlKey, Object...)
+     */
+    public Cursor<M> cursor(LobMode lobMode, SqlKey sqlKey, Object... paras) {
+        return cursor(lobMode, SqlCache.fixed.get(sqlKey.toString()), paras);
+    }
+
+    private Cursor<M> cursor(String sql, Object... paras) {
+        return cursor(null, sql, paras);
+    }
+
+    private Cursor<M> cursor(LobMode lobMode, String sql, Object... paras) {
+        return new Cursor<M>(getSingleConfig(), new ModelBuilder.ModelMapper<M>(getUsefulClass()), lobMode, sql, paras);
+    }
+
+    /**
+     * 流式查询Model，逐行回调处理，处理完毕后自动释放连接
+     *
+     * @param sqlKey  sqlKey
+     * @param handler 行处理回调
+     * @param paras   fixed 参数
+     */
+    public void forEach(SqlKey sqlKey, RowHandler<M> handler, Object... paras) {
+        cursor(sqlKey, paras).each(handler);
+    }
+
+    /**
+     * @see #forEach(SqlKey, RowHandler, Object...)
+     */
+    public void forEach(SqlKey sqlKey, RowHandler<M> handler, Map<String, Object> paras) {
+        cursor(sqlKey, paras).each(handler);
+    }
+
+    /**
+     * @see #forEach(SqlKey, RowHandler, Object...)
+     */
+    public void forEach(SqlKey sqlKey, RowHandler<M> handler) {
+        cursor(sqlKey).each(handler);
+    }
+
+    /**
+     * 以 Reactive Streams 发布者的形式查询Model，按订阅者的请求量逐行读取，支持背压
+     *
+     * @param sqlKey sqlKey
+     * @param paras  fixed 参数
+     * @return 发布者，每次订阅执行一次查询
+     * @see DbPro#publish(String, Object...)
+     */
+    public Publisher<M> publish(SqlKey sqlKey, Object... paras) {
+        return publish(SqlCache.fixed.get(sqlKey.toString()), paras);
+    }
+
+    /**
+     * @see #publish(SqlKey, Object...)
+     */
+    public Publisher<M> publish(SqlKey sqlKey, Map<String, Object> paras) {
+        List<Object> parasList = new ArrayList<Object>();
+        String sqlStr = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasList);
+        return publish(sqlStr, parasList.toArray());
+    }
+
+    /**
+     * @see #publish(SqlKey, Object...)
+     */
+    public Publisher<M> publish(SqlKey sqlKey) {
+        return publish(SqlCache.fixed.get(sqlKey.toString()), DbKit.NULL_PARA_ARRAY);
+    }
+
+    private Publisher<M> publish(String sql, Object... paras) {
+        final Class<M> modelClass = getUsefulClass();
+        return new QueryPublisher<M>(getSingleConfig(), sql, paras) {
+            @Override
+            RowMapper<M> newMapper() {
+                return new ModelBuilder.ModelMapper<M>(modelClass);
+            }
+        };
     }
 
     /**
@@ -604,11 +908,11 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
      * @return column list
      */
     public <T> List<T> findAllLoadColumns(String column) {
-        Config config = getConfig();
+        Config config = getSingleConfig();
         String sql = config.dialect.forModelFindAll(getMapping(), column);
         Connection conn = null;
         try {
-            conn = config.getConnection();
+            conn = config.getReadConnection();
             return Db.query(config, conn, sql, DbKit.NULL_PARA_ARRAY);
         } catch (Exception e) {
             throw new HyacinthException(e);
@@ -635,8 +939,7 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
      * @return Model
      */
     public M findFirst(SqlKey sqlKey, Object... paras) {
-        List<M> result = find(SqlCache.fixed.get(sqlKey.toString()), paras);
-        return result.size() > 0 ? result.get(0) : null;
+        return findFirst(SqlCache.fixed.get(sqlKey.toString()), paras);
     }
 
     /**
@@ -696,7 +999,8 @@ public abstract class Model<M extends Model> implements Bean, Serializable {
             throw new IllegalArgumentException("id values error, need " + table.getPrimaryKey().length + " id value");
 
         String sql = getConfig().dialect.forModelFindById(table, columns);
-        List<M> result = find(sql, idValues);
+        Config config = getConfigById(table, idValues);
+        List<M> result = config != null ? find(config, sql, idValues) : scatter(getShardRule(), sql, 1, idValues);
         return result.size() > 0 ? result.get(0) : null;
     }
 
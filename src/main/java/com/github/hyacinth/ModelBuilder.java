@@ -24,18 +24,29 @@ public class ModelBuilder {
      * @return model 如果查询结果集为空则返回null
      */
     public static <M extends Model> M build(ResultSet rs, Class<M> modelClass) throws SQLException, IllegalAccessException, InstantiationException {
+        return build(null, null, rs, modelClass);
+    }
+
+    /**
+     * @param config 配置，用于缓存结果集列结构
+     * @param sql    查询sql，用于缓存结果集列结构
+     * @see #build(ResultSet, Class)
+     */
+    @SuppressWarnings("rawtypes")
+    public static <M extends Model> M build(Config config, String sql, ResultSet rs, Class<M> modelClass) throws SQLException, IllegalAccessException, InstantiationException {
         M model = null;
-        // 获取结果集数据结构以及相应列的数据类型
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int columnCount = rsmd.getColumnCount();
-        // +1 是为了和ResultSet中索引同步（ResultSet索引从1开始），统一循环的起始索引为1
-        String[] labelNames = new String[columnCount + 1];
-        int[] types = new int[columnCount + 1];
-        RsKit.bindLabelNamesAndTypes(rsmd, labelNames, types);
+        ModelMapper<M> mapper = new ModelMapper<M>(modelClass);
+        mapper.prepare(ColumnSchema.resolve(config, sql, rs));
 
-        if (rs.next()) {
-            model = modelClass.newInstance();
-            RsKit.fetch(rs, columnCount, labelNames, types, model.attrsMap());
+        try {
+            if (rs.next()) {
+                model = mapper.newModel();
+                mapper.fetch(rs, model);
+            }
+        } catch (SQLException e) {
+            // 可能是缓存的列结构已过期（表结构变更），丢弃后下次查询重新解析
+            ColumnSchema.invalidate(config, sql);
+            throw e;
         }
         return model;
     }
@@ -49,22 +60,62 @@ public class ModelBuilder {
      * @return List<model></>
      */
     public static <M extends Model> List<M> buildList(ResultSet rs, Class<M> modelClass) throws SQLException, IllegalAccessException, InstantiationException {
+        return buildList(null, null, rs, modelClass);
+    }
+
+    /**
+     * @param config 配置，用于缓存结果集列结构
+     * @param sql    查询sql，用于缓存结果集列结构
+     * @see #buildList(ResultSet, Class)
+     */
+    @SuppressWarnings("rawtypes")
+    public static <M extends Model> List<M> buildList(Config config, String sql, ResultSet rs, Class<M> modelClass) throws SQLException, IllegalAccessException, InstantiationException {
         List<M> list = new ArrayList<M>();
-        // 获取结果集数据结构以及相应列的数据类型
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int columnCount = rsmd.getColumnCount();
-        // +1 是为了和ResultSet中索引同步（ResultSet索引从1开始），统一循环的起始索引为1
-        String[] labelNames = new String[columnCount + 1];
-        int[] types = new int[columnCount + 1];
-        RsKit.bindLabelNamesAndTypes(rsmd, labelNames, types);
+        ModelMapper<M> mapper = new ModelMapper<M>(modelClass);
+        mapper.prepare(ColumnSchema.resolve(config, sql, rs));
 
-        while (rs.next()) {
-            M model = modelClass.newInstance();
-            RsKit.fetch(rs, columnCount, labelNames, types, model.attrsMap());
-            list.add(model);
+        try {
+            while (rs.next()) {
+                M model = mapper.newModel();
+                mapper.fetch(rs, model);
+                list.add(model);
+            }
+        } catch (SQLException e) {
+            // 可能是缓存的列结构已过期（表结构变更），丢弃后下次查询重新解析
+            ColumnSchema.invalidate(config, sql);
+            throw e;
         }
         return list;
     }
 
+    /**
+     * Model行映射器，结果集结构只解析一次，实际映射由 MapperCompiler 编译后的映射器完成
+     */
+    @SuppressWarnings("rawtypes")
+    public static class ModelMapper<M extends Model> implements RowMapper<M> {
+        private final Class<M> modelClass;
+        private MapperCompiler.CompiledMapper<M> compiled;
+
+        public ModelMapper(Class<M> modelClass) {
+            this.modelClass = modelClass;
+        }
+
+        @Override
+        public void prepare(ColumnSchema schema) {
+            compiled = schema.compiledMapper(modelClass);
+        }
+
+        @Override
+        public M map(ResultSet rs) throws SQLException {
+            return compiled.map(rs);
+        }
+
+        M newModel() {
+            return compiled.newModel();
+        }
 
+        void fetch(ResultSet rs, M model) throws SQLException {
+            compiled.fetch(rs, model);
+        }
+    }
 }
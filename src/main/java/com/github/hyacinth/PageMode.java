@@ -0,0 +1,32 @@
+package com.github.hyacinth;
+
+/**
+ * 分页总数的计算方式
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/10
+ * Time: 15:10
+ *
+ * @see ProvidePage#getMode()
+ */
+public enum PageMode {
+    /**
+     * 执行 count 查询得到精确的总数（默认）
+     */
+    EXACT,
+    /**
+     * 不统计总数，多读取一行判断是否有下一页，totalRow/totalPage 为 -1
+     */
+    NO_COUNT,
+    /**
+     * 由方言根据执行计划估算总数（MySQL/PostgreSql 的 EXPLAIN），总数为近似值；
+     * 同样多读取一行判断是否有下一页，读到最后一页时总数为精确值。方言不支持估算时退化为 EXACT
+     */
+    ESTIMATED,
+    /**
+     * 在分页查询中追加 COUNT(*) OVER()，从第一行读取精确总数，只需一次查询；只有页为空时才另外执行 count 查询。
+     * 方言或数据库版本不支持窗口函数、以及 union/distinct 查询时退化为 EXACT
+     */
+    WINDOW
+}
@@ -0,0 +1,163 @@
+package com.github.hyacinth;
+
+import com.github.hyacinth.sql.BuildKit;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按 PageMode 执行分页查询，DbPro 与 Model 共用
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/10
+ * Time: 15:30
+ */
+abstract class Paginator<T> {
+
+    //窗口函数总数列的别名
+    static final String TOTAL_LABEL = "hyacinth_total_";
+
+    /**
+     * 查询一页数据
+     */
+    abstract List<T> fetch(Config config, Connection conn, String sql, Object... paras) throws SQLException;
+
+    void paginate(Config config, Connection conn, PageMode mode, int pageNumber, int pageSize, String sql, Page<T> page, Object... paras) throws SQLException {
+        if (pageNumber < 1 || pageSize < 1) {
+            throw new HyacinthException("pageNumber and pageSize must more than 0");
+        }
+        page.setPageNumber(pageNumber).setPageSize(pageSize);
+
+        if ((mode == PageMode.NO_COUNT || mode == PageMode.ESTIMATED) && !config.dialect.supportsPaginateOffset()) {
+            // 方言无法多读取一行判断是否有下一页，改用 count 查询
+            mode = PageMode.EXACT;
+        }
+        long estimated = -1;
+        if (mode == PageMode.ESTIMATED) {
+            estimated = config.dialect.estimateRowCount(conn, sql, paras);
+            if (estimated < 0) {
+                mode = PageMode.EXACT;
+            }
+        }
+        if (mode == PageMode.WINDOW) {
+            String windowSql = config.dialect.supportsWindowTotal(conn) ? config.dialect.forWindowTotal(sql, TOTAL_LABEL) : null;
+            if (windowSql != null) {
+                paginateWindow(config, conn, pageNumber, pageSize, sql, windowSql, page, paras);
+                return;
+            }
+            mode = PageMode.EXACT;
+        }
+        if (mode == PageMode.EXACT) {
+            paginateExact(config, conn, pageNumber, pageSize, sql, page, paras);
+            return;
+        }
+
+        // 多读取一行判断是否有下一页
+        int offset = (pageNumber - 1) * pageSize;
+        List<T> list = fetchPage(config, conn, offset, pageSize + 1, sql, paras);
+        boolean hasNext = list.size() > pageSize;
+        if (hasNext) {
+            list = new ArrayList<T>(list.subList(0, pageSize));
+        }
+        page.setList(list);
+
+        long totalRow = -1;
+        boolean approximate = false;
+        if (mode == PageMode.ESTIMATED) {
+            if (!hasNext && (!list.isEmpty() || pageNumber == 1)) {
+                // 已读到最后一页，总数是精确的
+                totalRow = offset + list.size();
+            } else {
+                totalRow = Math.max(estimated, offset + list.size() + (hasNext ? 1 : 0));
+                approximate = true;
+            }
+            page.setTotalRow((int) totalRow).setTotalPage(totalPage(totalRow, pageSize));
+        } else {
+            page.setTotalRow(-1).setTotalPage(-1);
+        }
+        if (page instanceof ProvidePage) {
+            ((ProvidePage<T>) page).setMode(mode).setHasNext(hasNext).setApproximate(approximate);
+        }
+    }
+
+    private void paginateExact(Config config, Connection conn, int pageNumber, int pageSize, String sql, Page<T> page, Object... paras) throws SQLException {
+        String totalSql = BuildKit.buildTotalSql(sql);
+        long totalRow = Db.<Number>queryColumn(config, conn, totalSql, paras).longValue();
+        int totalPage = totalPage(totalRow, pageSize);
+
+        List<T> list;
+        if (totalRow == 0 || pageNumber > totalPage) {
+            list = new ArrayList<T>(0);
+        } else {
+            list = fetchPage(config, conn, (pageNumber - 1) * pageSize, pageSize, sql, paras);
+        }
+        page.setList(list).setTotalPage(totalPage).setTotalRow((int) totalRow);
+        if (page instanceof ProvidePage) {
+            ((ProvidePage<T>) page).setMode(PageMode.EXACT).setHasNext(pageNumber < totalPage).setApproximate(false);
+        }
+    }
+
+    private void paginateWindow(Config config, Connection conn, int pageNumber, int pageSize, String sql, String windowSql, Page<T> page, Object... paras) throws SQLException {
+        List<T> list = fetchPage(config, conn, (pageNumber - 1) * pageSize, pageSize, windowSql, paras);
+        long totalRow;
+        if (!list.isEmpty()) {
+            Object total = null;
+            for (T row : list) {
+                Object value = removeTotal(row);
+                if (total == null) {
+                    total = value;
+                }
+            }
+            if (!(total instanceof Number)) {
+                throw new HyacinthException("Window total column not found in result: " + TOTAL_LABEL);
+            }
+            totalRow = ((Number) total).longValue();
+        } else if (pageNumber == 1) {
+            totalRow = 0;
+        } else {
+            // 超出最后一页，单独查询总数
+            totalRow = Db.<Number>queryColumn(config, conn, BuildKit.buildTotalSql(sql), paras).longValue();
+        }
+        int totalPage = totalPage(totalRow, pageSize);
+        page.setList(list).setTotalPage(totalPage).setTotalRow((int) totalRow);
+        if (page instanceof ProvidePage) {
+            ((ProvidePage<T>) page).setMode(PageMode.WINDOW).setHasNext(pageNumber < totalPage).setApproximate(false);
+        }
+    }
+
+    /**
+     * 使用参数化的分页Sql读取一页，不同页码的Sql文本相同
+     */
+    private List<T> fetchPage(Config config, Connection conn, int offset, int limit, String sql, Object... paras) throws SQLException {
+        List<Object> pageParas = new ArrayList<Object>(paras.length + 2);
+        Collections.addAll(pageParas, paras);
+        String pageSql = config.dialect.forPaginateOffset(offset, limit, sql, pageParas);
+        return fetch(config, conn, pageSql, pageParas.toArray());
+    }
+
+    /**
+     * 从行中移除总数列并返回其值，列名大小写取决于数据库（如 Oracle 为大写）
+     */
+    @SuppressWarnings("unchecked")
+    private static Object removeTotal(Object row) {
+        Map<String, Object> attrs = row instanceof Model ? ((Model<?>) row).attrsMap() : (Map<String, Object>) row;
+        Object value = attrs.remove(TOTAL_LABEL);
+        if (value == null) {
+            value = attrs.remove(TOTAL_LABEL.toUpperCase());
+        }
+        return value;
+    }
+
+    static int totalPage(long totalRow, int pageSize) {
+        int totalPage = (int) (totalRow / pageSize);
+        if (totalRow % pageSize != 0) {
+            totalPage++;
+        }
+        return totalPage;
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.hyacinth;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 并行批量执行：多个分区在异步线程池中各自使用一个连接，从同一个迭代器中按 batchSize 行领取数据执行，
+ * 每批单独提交。任一分区失败后其他分区不再领取新的数据，结束后汇总异常抛出 BatchException
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/15
+ * Time: 15:00
+ */
+final class ParallelBatch {
+
+    private final DbPro dbPro;
+    private final Config config;
+    private final String sql;
+    //为null时每行为 Object[] 参数，否则每行为 Model 或 Map
+    private final String columns;
+    private final Iterator<?> rows;
+    private final int batchSize;
+    private final BatchCallback callback;
+
+    private final BatchResult result = new BatchResult();
+    private final List<Throwable> errors = new ArrayList<Throwable>();
+    private final List<Long> errorOffsets = new ArrayList<Long>();
+    private volatile boolean failed;
+    //已领取的行数，在 rows 上同步访问
+    private long pulled;
+
+    ParallelBatch(DbPro dbPro, Config config, String sql, String columns, Iterator<?> rows, int batchSize, BatchCallback callback) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("The batchSize must more than 0.");
+        this.dbPro = dbPro;
+        this.config = config;
+        this.sql = sql;
+        this.columns = columns;
+        this.rows = rows;
+        this.batchSize = batchSize;
+        this.callback = callback;
+    }
+
+    BatchResult execute(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("The parallelism must more than 0.");
+        // 各分区使用独立连接并各自提交，无法加入当前事务
+        if (config.isInTransaction())
+            throw new HyacinthException("Parallel batch can not be executed in a transaction");
+        ExecutorService executor = config.getAsyncExecutor();
+        List<Future<?>> futures = new ArrayList<Future<?>>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(-1, e);
+                break;
+            } catch (ExecutionException e) {
+                fail(-1, e.getCause());
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new BatchException("Parallel batch failed in " + errors.size() + " partitions at rows " + errorOffsets
+                    + ", " + result.getRows() + " rows committed", result, new ArrayList<Throwable>(errors));
+        }
+        return result;
+    }
+
+    private void work() {
+        Connection conn = null;
+        Boolean autoCommit = null;
+        long offset = -1;
+        try {
+            conn = config.getConnection();
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            List<Object> chunk = new ArrayList<Object>(batchSize);
+            while (!failed) {
+                offset = pull(chunk);
+                if (chunk.isEmpty())
+                    break;
+                int[] counts = columns == null
+                        ? dbPro.batch(config, conn, sql, chunk.toArray(new Object[chunk.size()][]), batchSize)
+                        : dbPro.batch(config, conn, sql, columns, chunk, batchSize);
+                synchronized (result) {
+                    result.add(counts);
+                }
+                if (callback != null)
+                    callback.afterChunk(offset, counts);
+                chunk.clear();
+            }
+        } catch (Throwable e) {
+            fail(offset, e);
+            if (conn != null)
+                try {
+                    conn.rollback();
+                } catch (Exception ignored) {
+                    // 连接不可用时回滚失败，未提交的数据随连接关闭丢弃
+                }
+        } finally {
+            if (autoCommit != null)
+                try {
+                    conn.setAutoCommit(autoCommit);
+                } catch (Exception ignored) {
+                    // 连接即将关闭
+                }
+            config.close(conn);
+        }
+    }
+
+    /**
+     * 领取下一批数据，返回第一行的序号
+     */
+    private long pull(List<Object> chunk) {
+        synchronized (rows) {
+            long offset = pulled;
+            while (chunk.size() < batchSize && rows.hasNext()) {
+                chunk.add(rows.next());
+            }
+            pulled += chunk.size();
+            return offset;
+        }
+    }
+
+    private void fail(long offset, Throwable e) {
+        failed = true;
+        synchronized (errors) {
+            errors.add(e);
+            errorOffsets.add(offset);
+        }
+    }
+}
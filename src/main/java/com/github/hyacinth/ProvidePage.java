@@ -21,6 +21,14 @@ public class ProvidePage<T> implements Page<T> {
     private int totalRow;
     //数据主体
     private List<T> list;
+    //键集分页的下一页游标，为null时没有下一页
+    private String nextCursor;
+    //总数的计算方式
+    private PageMode mode = PageMode.EXACT;
+    //是否有下一页
+    private boolean hasNext;
+    //总数是否为估算值
+    private boolean approximate;
 
     public int getPageNumber() {
         return pageNumber;
@@ -42,6 +50,53 @@ public class ProvidePage<T> implements Page<T> {
         return list;
     }
 
+    /**
+     * 键集分页的下一页游标，传给 Keyset.after(String) 读取下一页；为null时没有下一页
+     *
+     * @see Keyset
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public ProvidePage<T> setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+        return this;
+    }
+
+    /**
+     * 产生 totalRow/totalPage 的方式：EXACT 为精确值，NO_COUNT 时为 -1，ESTIMATED 时见 isApproximate()
+     */
+    public PageMode getMode() {
+        return mode;
+    }
+
+    public ProvidePage<T> setMode(PageMode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public ProvidePage<T> setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+        return this;
+    }
+
+    /**
+     * 总数是否为估算值
+     */
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    public ProvidePage<T> setApproximate(boolean approximate) {
+        this.approximate = approximate;
+        return this;
+    }
+
     @Override
     public Page<T> setList(List<T> list) {
         this.list = list;
@@ -0,0 +1,183 @@
+package com.github.hyacinth;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 查询结果发布者（Reactive Streams），按订阅者的请求量逐行读取结果集
+ * <p>
+ * 每次订阅执行一次查询：首次 request 时打开流式游标（见 Cursor），之后只读取订阅者请求数量的行，
+ * 不会缓存整个结果集；读取在调用 request 的线程中进行。完成、取消或出错时释放连接
+ * <pre>
+ * 示例:
+ * Publisher&lt;Map&lt;String, Object&gt;&gt; users = DbPro.use().publish("select * from user where age > ?", 18);
+ * Flowable.fromPublisher(users).buffer(500).subscribe(...);
+ * </pre>
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/6
+ * Time: 14:20
+ */
+public abstract class QueryPublisher<T> implements Publisher<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryPublisher.class);
+
+    private final Config config;
+    private final String sql;
+    private final Object[] paras;
+
+    QueryPublisher(Config config, String sql, Object... paras) {
+        this.config = config;
+        this.sql = sql;
+        this.paras = paras;
+    }
+
+    /**
+     * 每次订阅创建新的行映射器
+     */
+    abstract RowMapper<T> newMapper();
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber can not be null");
+        }
+        subscriber.onSubscribe(new QuerySubscription(subscriber));
+    }
+
+    private final class QuerySubscription implements Subscription {
+        private final Subscriber<? super T> subscriber;
+        //未满足的请求数量
+        private final AtomicLong requested = new AtomicLong();
+        //保证同一时刻只有一个线程读取结果集
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        //非法请求量产生的错误，由读取循环发送
+        private volatile Throwable pendingError;
+        private boolean done;
+        private Cursor<T> cursor;
+
+        QuerySubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                pendingError = new IllegalArgumentException("request amount must be positive, but was " + n);
+                drain();
+                return;
+            }
+            long current, next;
+            do {
+                current = requested.get();
+                if (current == Long.MAX_VALUE) {
+                    break;
+                }
+                next = current + n;
+                if (next < 0) {
+                    next = Long.MAX_VALUE;
+                }
+            } while (!requested.compareAndSet(current, next));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        /**
+         * 按请求量读取并发送数据，onNext 中再次调用 request 时只增加请求量，由当前循环继续发送
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            for (; ; ) {
+                long demand = requested.get();
+                long emitted = 0;
+                while (emitted != demand) {
+                    if (terminated()) {
+                        return;
+                    }
+                    T row;
+                    try {
+                        if (cursor == null) {
+                            cursor = new Cursor<T>(config, newMapper(), sql, paras);
+                        }
+                        if (!cursor.hasNext()) {
+                            done = true;
+                            subscriber.onComplete();
+                            return;
+                        }
+                        row = cursor.next();
+                    } catch (Throwable e) {
+                        done = true;
+                        release();
+                        subscriber.onError(e);
+                        return;
+                    }
+                    try {
+                        subscriber.onNext(row);
+                    } catch (Throwable e) {
+                        // 订阅者违反规范抛出异常，视为取消
+                        LOGGER.error(e.getMessage(), e);
+                        done = true;
+                        release();
+                        return;
+                    }
+                    emitted++;
+                }
+                if (terminated()) {
+                    return;
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 是否已结束（完成、取消或出错），结束时释放游标
+         */
+        private boolean terminated() {
+            if (done) {
+                release();
+                return true;
+            }
+            if (cancelled) {
+                done = true;
+                release();
+                return true;
+            }
+            Throwable error = pendingError;
+            if (error != null) {
+                done = true;
+                release();
+                subscriber.onError(error);
+                return true;
+            }
+            return false;
+        }
+
+        private void release() {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.github.hyacinth;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * 紧凑型记录行
+ * <p>
+ * 数据保存在 Object[] 中，同一结果集的所有行共享一份不可变的列结构（列名 -> 索引），
+ * 相比每行一个 HashMap 省去了哈希表、Entry 对象以及重复的 key 引用，适用于大结果集报表查询。
+ * 可以像普通 Map 一样使用，也可以通过列索引直接访问；put 不在列结构中的 key 时存入额外的Map
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/10/26
+ * Time: 15:30
+ */
+public class Record extends AbstractMap<String, Object> implements Serializable {
+
+    private static final long serialVersionUID = -3563918420185032163L;
+
+    //标记列已被移除
+    private static final Object ABSENT = new Absent();
+
+    private final Schema schema;
+    private final Object[] values;
+    //列结构之外的属性
+    private Map<String, Object> extra;
+    private int size;
+
+    Record(Schema schema, Object[] values) {
+        this.schema = schema;
+        this.values = values;
+        this.size = schema.size;
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * 根据列索引获取值，索引从1开始，与ResultSet一致
+     */
+    public Object getValue(int index) {
+        Object value = values[index - 1];
+        return value == ABSENT ? null : value;
+    }
+
+    /**
+     * 根据列索引设置值，索引从1开始
+     */
+    public void setValue(int index, Object value) {
+        if (values[index - 1] == ABSENT && schema.labels[index - 1] != null) {
+            size++;
+        }
+        values[index - 1] = value;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = schema.indexOf(key);
+        if (index >= 0) {
+            Object value = values[index];
+            return value == ABSENT ? null : value;
+        }
+        return extra == null ? null : extra.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int index = schema.indexOf(key);
+        if (index >= 0) {
+            return values[index] != ABSENT;
+        }
+        return extra != null && extra.containsKey(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int index = schema.indexOf(key);
+        if (index >= 0) {
+            Object old = values[index];
+            values[index] = value;
+            if (old == ABSENT) {
+                size++;
+                return null;
+            }
+            return old;
+        }
+        if (extra == null) {
+            extra = new LinkedHashMap<String, Object>();
+        }
+        int before = extra.size();
+        Object old = extra.put(key, value);
+        size += extra.size() - before;
+        return old;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int index = schema.indexOf(key);
+        if (index >= 0) {
+            Object old = values[index];
+            if (old == ABSENT) {
+                return null;
+            }
+            values[index] = ABSENT;
+            size--;
+            return old;
+        }
+        if (extra != null && extra.containsKey(key)) {
+            size--;
+            return extra.remove(key);
+        }
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, ABSENT);
+        extra = null;
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+        private int cursor = advance(0);
+        private int last = -1;
+        private Iterator<Entry<String, Object>> extraIterator;
+
+        private int advance(int from) {
+            while (from < values.length && (values[from] == ABSENT || schema.labels[from] == null)) {
+                from++;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (cursor < values.length) {
+                return true;
+            }
+            if (extra == null) {
+                return false;
+            }
+            if (extraIterator == null) {
+                extraIterator = extra.entrySet().iterator();
+            }
+            return extraIterator.hasNext();
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (cursor < values.length) {
+                last = cursor;
+                cursor = advance(cursor + 1);
+                return new ColumnEntry(last);
+            }
+            last = -1;
+            return extraIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (last >= 0) {
+                values[last] = ABSENT;
+                last = -1;
+                size--;
+            } else if (extraIterator != null) {
+                extraIterator.remove();
+                size--;
+            } else {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    private final class ColumnEntry implements Entry<String, Object> {
+        private final int index;
+
+        ColumnEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return schema.labels[index];
+        }
+
+        @Override
+        public Object getValue() {
+            Object value = values[index];
+            return value == ABSENT ? null : value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object old = getValue();
+            values[index] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry))
+                return false;
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            Object value = getValue();
+            return getKey().equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * 列结构，同一结果集的所有Record共享，创建后不可修改
+     */
+    public static final class Schema implements Serializable {
+
+        private static final long serialVersionUID = 5140863215312400217L;
+
+        //列名，重复的列名只保留最后一列（与HashMap行为一致），被覆盖的列为null
+        private final String[] labels;
+        private final Map<String, Integer> index;
+        private final int size;
+
+        /**
+         * @param labelNames 列名数组，索引从1开始（与RsKit.bindLabelNamesAndTypes一致）
+         */
+        Schema(String[] labelNames) {
+            int columnCount = labelNames.length - 1;
+            this.labels = new String[columnCount];
+            this.index = new HashMap<String, Integer>(columnCount * 2);
+            for (int i = 1; i <= columnCount; i++) {
+                Integer previous = index.put(labelNames[i], i - 1);
+                if (previous != null) {
+                    labels[previous] = null;
+                }
+                labels[i - 1] = labelNames[i];
+            }
+            this.size = index.size();
+        }
+
+        /**
+         * 列索引，从0开始，不存在时返回 -1
+         */
+        int indexOf(Object label) {
+            Integer i = index.get(label);
+            return i == null ? -1 : i;
+        }
+
+        public int getColumnCount() {
+            return labels.length;
+        }
+
+        /**
+         * 获取列名，索引从1开始
+         */
+        public String getLabel(int index) {
+            return labels[index - 1];
+        }
+    }
+
+    private static final class Absent implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Object readResolve() {
+            return ABSENT;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.github.hyacinth;
 
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -25,23 +24,28 @@ public class RecordBuilder {
      * @param config
      * @return Record
      * @throws SQLException
-     * @throws IllegalAccessException
-     * @throws InstantiationException
      */
     public static Map<String, Object> build(Config config, ResultSet rs) throws SQLException {
+        return build(config, null, rs);
+    }
+
+    /**
+     * @param sql 查询sql，用于缓存结果集列结构
+     * @see #build(Config, ResultSet)
+     */
+    public static Map<String, Object> build(Config config, String sql, ResultSet rs) throws SQLException {
         Map<String, Object> data = null;
-        // 获取结果集数据结构以及相应列的数据类型
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int columnCount = rsmd.getColumnCount();
-        // +1 是为了和ResultSet中索引同步（ResultSet索引从1开始），统一循环的起始索引为1
-        String[] labelNames = new String[columnCount + 1];
-        int[] types = new int[columnCount + 1];
-        RsKit.bindLabelNamesAndTypes(rsmd, labelNames, types);
-
-        if (rs.next()) {
-            data = new HashMap<String, Object>();
-            RsKit.fetch(rs, columnCount, labelNames, types, data);
+        RecordMapper mapper = new RecordMapper();
+        mapper.prepare(ColumnSchema.resolve(config, sql, rs));
 
+        try {
+            if (rs.next()) {
+                data = mapper.map(rs);
+            }
+        } catch (SQLException e) {
+            // 可能是缓存的列结构已过期（表结构变更），丢弃后下次查询重新解析
+            ColumnSchema.invalidate(config, sql);
+            throw e;
         }
         return data;
     }
@@ -53,24 +57,110 @@ public class RecordBuilder {
      * @param config
      * @return List<Record>
      * @throws SQLException
-     * @throws IllegalAccessException
-     * @throws InstantiationException
      */
     public static List<Map<String, Object>> buildList(Config config, ResultSet rs) throws SQLException {
+        return buildList(config, null, rs);
+    }
+
+    /**
+     * @param sql 查询sql，用于缓存结果集列结构
+     * @see #buildList(Config, ResultSet)
+     */
+    public static List<Map<String, Object>> buildList(Config config, String sql, ResultSet rs) throws SQLException {
+        return buildList(config, sql, rs, null);
+    }
+
+    /**
+     * @param lobMode 大字段读取方式，为null时使用 Config 中的设置
+     * @see #buildList(Config, String, ResultSet)
+     */
+    static List<Map<String, Object>> buildList(Config config, String sql, ResultSet rs, LobMode lobMode) throws SQLException {
         List<Map<String, Object>> list = new ArrayList<Map<String, Object>>();
-        // 获取结果集数据结构以及相应列的数据类型
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int columnCount = rsmd.getColumnCount();
-        // +1 是为了和ResultSet中索引同步（ResultSet索引从1开始），统一循环的起始索引为1
-        String[] labelNames = new String[columnCount + 1];
-        int[] types = new int[columnCount + 1];
-        RsKit.bindLabelNamesAndTypes(rsmd, labelNames, types);
-
-        while (rs.next()) {
-            Map<String, Object> record = new HashMap<String, Object>();
-            RsKit.fetch(rs, columnCount, labelNames, types, record);
-            list.add(record);
+        RecordMapper mapper = new RecordMapper();
+        mapper.prepare(ColumnSchema.resolve(config, sql, rs, lobMode, false));
+
+        try {
+            while (rs.next()) {
+                list.add(mapper.map(rs));
+            }
+        } catch (SQLException e) {
+            // 可能是缓存的列结构已过期（表结构变更），丢弃后下次查询重新解析
+            ColumnSchema.invalidate(config, sql);
+            throw e;
         }
         return list;
     }
+
+    /**
+     * 用于处理需要获取多条结果集，返回紧凑型Record，所有行共享同一份列结构
+     *
+     * @param config
+     * @param sql    查询sql，用于缓存结果集列结构
+     * @param rs     结果集
+     * @return List<Record>
+     * @throws SQLException
+     * @see Record
+     */
+    public static List<Record> buildCompactList(Config config, String sql, ResultSet rs) throws SQLException {
+        List<Record> list = new ArrayList<Record>();
+        CompactMapper mapper = new CompactMapper();
+        mapper.prepare(ColumnSchema.resolve(config, sql, rs));
+
+        try {
+            while (rs.next()) {
+                list.add(mapper.map(rs));
+            }
+        } catch (SQLException e) {
+            // 可能是缓存的列结构已过期（表结构变更），丢弃后下次查询重新解析
+            ColumnSchema.invalidate(config, sql);
+            throw e;
+        }
+        return list;
+    }
+
+    /**
+     * Record行映射器，结果集结构只解析一次
+     */
+    public static class RecordMapper implements RowMapper<Map<String, Object>> {
+        private int columnCount;
+        private String[] labelNames;
+        private ColumnReader[] readers;
+
+        @Override
+        public void prepare(ColumnSchema schema) {
+            columnCount = schema.columnCount;
+            labelNames = schema.labelNames;
+            readers = schema.readers;
+        }
+
+        @Override
+        public Map<String, Object> map(ResultSet rs) throws SQLException {
+            Map<String, Object> record = new HashMap<String, Object>();
+            RsKit.fetch(rs, columnCount, labelNames, readers, record);
+            return record;
+        }
+    }
+
+    /**
+     * 紧凑型Record行映射器，所有行共享同一份列结构
+     */
+    public static class CompactMapper implements RowMapper<Record> {
+        private int columnCount;
+        private ColumnReader[] readers;
+        private Record.Schema schema;
+
+        @Override
+        public void prepare(ColumnSchema schema) {
+            columnCount = schema.columnCount;
+            readers = schema.readers;
+            this.schema = schema.recordSchema();
+        }
+
+        @Override
+        public Record map(ResultSet rs) throws SQLException {
+            Object[] values = new Object[columnCount];
+            RsKit.fetch(rs, columnCount, readers, values);
+            return new Record(schema, values);
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package com.github.hyacinth;
+
+/**
+ * 只读副本的选择策略
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/9
+ * Time: 9:30
+ *
+ * @see Config#addReplica(javax.sql.DataSource)
+ */
+public enum ReplicaPolicy {
+    /**
+     * 轮询
+     */
+    ROUND_ROBIN,
+    /**
+     * 选择当前借出连接数最少的副本
+     */
+    LEAST_OUTSTANDING,
+    /**
+     * 按最近连接使用耗时的指数移动平均值加权随机选择，耗时越短被选中的概率越大
+     */
+    LATENCY_WEIGHTED
+}
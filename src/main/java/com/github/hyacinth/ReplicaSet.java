@@ -0,0 +1,166 @@
+package com.github.hyacinth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 只读副本集合，按 ReplicaPolicy 选择副本并统计每个副本的借出连接数与使用耗时
+ * <p>
+ * 副本连接为只读连接（setReadOnly(true)），关闭时更新统计信息
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/9
+ * Time: 9:40
+ */
+final class ReplicaSet {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaSet.class);
+
+    //耗时移动平均的平滑系数
+    private static final double ALPHA = 0.2;
+    //尚无耗时统计时使用的初始值（毫秒）
+    private static final double INITIAL_LATENCY = 1.0;
+
+    private final Replica[] replicas;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Random random = new Random();
+
+    ReplicaSet(List<DataSource> dataSources) {
+        this.replicas = new Replica[dataSources.size()];
+        for (int i = 0; i < replicas.length; i++) {
+            replicas[i] = new Replica(dataSources.get(i));
+        }
+    }
+
+    List<DataSource> getDataSources() {
+        List<DataSource> list = new ArrayList<DataSource>(replicas.length);
+        for (Replica replica : replicas) {
+            list.add(replica.dataSource);
+        }
+        return list;
+    }
+
+    /**
+     * 从副本获取只读连接，首选副本不可用时依次尝试其他副本，全部不可用时返回 null
+     */
+    Connection getConnection(ReplicaPolicy policy) {
+        int first = select(policy);
+        for (int i = 0; i < replicas.length; i++) {
+            Replica replica = replicas[(first + i) % replicas.length];
+            try {
+                return replica.open();
+            } catch (SQLException e) {
+                LOGGER.warn("Replica connection failed: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private int select(ReplicaPolicy policy) {
+        if (replicas.length == 1) {
+            return 0;
+        }
+        switch (policy) {
+            case LEAST_OUTSTANDING: {
+                int best = 0;
+                for (int i = 1; i < replicas.length; i++) {
+                    if (replicas[i].outstanding.get() < replicas[best].outstanding.get()) {
+                        best = i;
+                    }
+                }
+                return best;
+            }
+            case LATENCY_WEIGHTED: {
+                double[] weights = new double[replicas.length];
+                double total = 0;
+                for (int i = 0; i < replicas.length; i++) {
+                    weights[i] = 1.0 / Math.max(replicas[i].latency, 0.01);
+                    total += weights[i];
+                }
+                double r = random.nextDouble() * total;
+                for (int i = 0; i < replicas.length; i++) {
+                    r -= weights[i];
+                    if (r < 0) {
+                        return i;
+                    }
+                }
+                return replicas.length - 1;
+            }
+            default:
+                return (next.getAndIncrement() & Integer.MAX_VALUE) % replicas.length;
+        }
+    }
+
+    private static final class Replica {
+        final DataSource dataSource;
+        //当前借出的连接数
+        final AtomicInteger outstanding = new AtomicInteger();
+        //连接使用耗时的指数移动平均值（毫秒），统计值有少量竞争误差不影响选择
+        volatile double latency = INITIAL_LATENCY;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        Connection open() throws SQLException {
+            Connection conn = dataSource.getConnection();
+            try {
+                conn.setReadOnly(true);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+            outstanding.incrementAndGet();
+            TrackedConnection handler = new TrackedConnection(this, conn);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+        }
+
+        void returned(long elapsed) {
+            outstanding.decrementAndGet();
+            latency = latency + ALPHA * (elapsed - latency);
+        }
+    }
+
+    /**
+     * 副本连接代理，关闭时更新副本统计
+     */
+    private static final class TrackedConnection implements InvocationHandler {
+        private final Replica replica;
+        private final Connection conn;
+        private final long start = System.currentTimeMillis();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        TrackedConnection(Replica replica, Connection conn) {
+            this.replica = replica;
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName()) && method.getParameterTypes().length == 0) {
+                if (closed.compareAndSet(false, true)) {
+                    replica.returned(System.currentTimeMillis() - start);
+                }
+            }
+            try {
+                return method.invoke(conn, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
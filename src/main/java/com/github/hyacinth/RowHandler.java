@@ -0,0 +1,19 @@
+package com.github.hyacinth;
+
+/**
+ * 逐行处理回调，用于流式查询
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/10/20
+ * Time: 10:15
+ */
+public interface RowHandler<T> {
+
+    /**
+     * 处理一行数据
+     *
+     * @param row 当前行
+     */
+    void handle(T row);
+}
@@ -0,0 +1,33 @@
+package com.github.hyacinth;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 结果集行映射器
+ * <p>
+ * 每次查询使用一个独立的映射器实例：先调用 prepare 传入结果集列结构（只调用一次），
+ * 之后每读取一行调用一次 map
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/10/20
+ * Time: 10:12
+ */
+public interface RowMapper<T> {
+
+    /**
+     * 传入结果集列结构（列名、数据类型），每次查询只调用一次
+     *
+     * @param schema 结果集列结构
+     */
+    void prepare(ColumnSchema schema) throws SQLException;
+
+    /**
+     * 将结果集当前行映射为对象
+     *
+     * @param rs 结果集，游标已指向当前行
+     * @return 映射后的对象
+     */
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,224 @@
+package com.github.hyacinth;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 可复用的行视图（享元），用于超大结果集的逐行扫描
+ * <p>
+ * 整个查询过程只有一个RowView实例，列名与数据类型只解析一次，每读取一行不会产生新的对象；
+ * 视图只在当前行的回调期间有效，不能在回调之外保存或使用，需要保留数据时请调用 toMap 复制
+ * <pre>
+ * 示例:
+ * DbPro.use().scan("select id, amount from orders", new RowHandler&lt;RowView&gt;() {
+ *     public void handle(RowView row) {
+ *         long id = row.getLong(1);
+ *         double amount = row.getDouble(2);
+ *     }
+ * });
+ * </pre>
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/10/23
+ * Time: 14:05
+ */
+public final class RowView {
+
+    private ResultSet rs;
+    private int columnCount;
+    private String[] labelNames;
+    private int[] types;
+    private ColumnReader[] readers;
+    //列名 -> 列索引
+    private Map<String, Integer> labelIndex;
+
+    RowView() {
+    }
+
+    /**
+     * 列总数
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * 获取列名（别名），索引从1开始
+     */
+    public String getLabel(int index) {
+        return labelNames[index];
+    }
+
+    /**
+     * 获取列的数据类型 java.sql.Types，索引从1开始
+     */
+    public int getType(int index) {
+        return types[index];
+    }
+
+    /**
+     * 根据列名获取列索引，不存在时返回 -1
+     */
+    public int indexOf(String label) {
+        Integer index = labelIndex.get(label);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * 以下方法用于获取指定列的值，索引从1开始，与ResultSet一致
+     * 数值类型的方法在值为null时返回0，可通过 wasNull 判断
+     */
+    public long getLong(int index) {
+        try {
+            return rs.getLong(index);
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        }
+    }
+
+    public int getInt(int index) {
+        try {
+            return rs.getInt(index);
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        }
+    }
+
+    public double getDouble(int index) {
+        try {
+            return rs.getDouble(index);
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        }
+    }
+
+    public float getFloat(int index) {
+        try {
+            return rs.getFloat(index);
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        }
+    }
+
+    public boolean getBoolean(int index) {
+        try {
+            return rs.getBoolean(index);
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        }
+    }
+
+    public String getString(int index) {
+        try {
+            return rs.getString(index);
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        }
+    }
+
+    public java.math.BigDecimal getBigDecimal(int index) {
+        try {
+            return rs.getBigDecimal(index);
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        }
+    }
+
+    public java.sql.Timestamp getTimestamp(int index) {
+        try {
+            return rs.getTimestamp(index);
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        }
+    }
+
+    public byte[] getBytes(int index) {
+        try {
+            return rs.getBytes(index);
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        }
+    }
+
+    public Object getObject(int index) {
+        try {
+            return rs.getObject(index);
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        }
+    }
+
+    /**
+     * 按列的读取策略获取值，整数、浮点数列通过 getLong/getInt/getDouble 读取，
+     * 结果类型与 Record/Model 中的一致
+     */
+    public Object getValue(int index) {
+        try {
+            return readers[index].read(rs, index);
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        }
+    }
+
+    /**
+     * 获取列的读取策略，可通过 readLong/readDouble 直接读取原始类型，索引从1开始
+     */
+    public ColumnReader getReader(int index) {
+        return readers[index];
+    }
+
+    /**
+     * 最近一次读取的列值是否为null
+     */
+    public boolean wasNull() {
+        try {
+            return rs.wasNull();
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        }
+    }
+
+    /**
+     * 将当前行复制为Map，用于需要在回调之外保留数据的场景
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> record = new HashMap<String, Object>();
+        try {
+            RsKit.fetch(rs, columnCount, labelNames, readers, record);
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        }
+        return record;
+    }
+
+    /**
+     * 行视图映射器，每一行都返回同一个RowView实例
+     */
+    static class ViewMapper implements RowMapper<RowView> {
+        private final RowView view = new RowView();
+
+        @Override
+        public void prepare(ColumnSchema schema) {
+            int columnCount = schema.columnCount;
+            Map<String, Integer> labelIndex = new HashMap<String, Integer>(columnCount * 2);
+            for (int i = columnCount; i >= 1; i--) {
+                labelIndex.put(schema.labelNames[i], i);
+            }
+
+            view.columnCount = columnCount;
+            view.labelNames = schema.labelNames;
+            view.types = schema.types;
+            view.readers = schema.readers;
+            view.labelIndex = labelIndex;
+        }
+
+        @Override
+        public RowView map(ResultSet rs) throws SQLException {
+            view.rs = rs;
+            return view;
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.github.hyacinth;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.sql.*;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -13,26 +15,48 @@ import java.util.Map;
  * Time: 17:16
  */
 public class RsKit {
+
+    private static final int BUFFER_SIZE = 8192;
+
     /**
      * 从ResultSet获取数据
      *
      * @param rs          ResultSet
      * @param columnCount 列总数
      * @param labelNames  列名集合（别名）
-     * @param types       列的数据类型
+     * @param readers     每一列的读取策略
      * @param attrs       装载map
      */
-    static void fetch(ResultSet rs, int columnCount, String[] labelNames, int[] types, Map<String, Object> attrs) throws SQLException {
+    static void fetch(ResultSet rs, int columnCount, String[] labelNames, ColumnReader[] readers, Map<String, Object> attrs) throws SQLException {
         for (int i = 1; i <= columnCount; i++) {
-            if (types[i] < Types.BLOB) {
-                attrs.put(labelNames[i], rs.getObject(i));
-            } else if (types[i] == Types.CLOB) {
-                attrs.put(labelNames[i], handleClob(rs.getClob(i)));
-            } else if (types[i] == Types.NCLOB) {
-                attrs.put(labelNames[i], handleClob(rs.getNClob(i)));
-            } else if (types[i] == Types.BLOB) {
-                attrs.put(labelNames[i], handleBlob(rs.getBlob(i)));
-            }
+            attrs.put(labelNames[i], readers[i].read(rs, i));
+        }
+    }
+
+    /**
+     * 从ResultSet获取数据，按列顺序装载到数组中
+     *
+     * @param rs          ResultSet
+     * @param columnCount 列总数
+     * @param readers     每一列的读取策略
+     * @param values      装载数组，长度为列总数（索引从0开始）
+     */
+    static void fetch(ResultSet rs, int columnCount, ColumnReader[] readers, Object[] values) throws SQLException {
+        for (int i = 1; i <= columnCount; i++) {
+            values[i - 1] = readers[i].read(rs, i);
+        }
+    }
+
+    /**
+     * 获取每一列的读取策略，根据JDBC类型选定
+     *
+     * @param rsmd    ResultSetMetaData
+     * @param types   列的数据类型
+     * @param readers 读取策略数组，索引从1开始
+     */
+    static void bindReaders(ResultSetMetaData rsmd, int[] types, ColumnReader[] readers) throws SQLException {
+        for (int i = 1; i < readers.length; i++) {
+            readers[i] = ColumnReader.of(types[i], rsmd.isSigned(i));
         }
     }
 
@@ -51,7 +75,7 @@ public class RsKit {
     }
 
     /**
-     * 处理二进制
+     * 处理二进制，按块完整读取（单次 read 可能读不满）
      *
      * @param blob 二进制
      * @return byte数组
@@ -66,11 +90,10 @@ public class RsKit {
             if (is == null) {
                 return null;
             }
-            byte[] data = new byte[(int) blob.length()];        // byte[] data = new byte[is.available()];
+            byte[] data = readFully(is, (int) blob.length());
             if (data.length == 0) {
                 return null;
             }
-            is.read(data);
             return data;
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -85,7 +108,7 @@ public class RsKit {
     }
 
     /**
-     * 处理文本
+     * 处理文本，按块完整读取（单次 read 可能读不满）
      *
      * @param clob 文本
      * @return 文本字符串
@@ -101,12 +124,11 @@ public class RsKit {
             if (reader == null) {
                 return null;
             }
-            char[] buffer = new char[(int) clob.length()];
-            if (buffer.length == 0) {
+            String data = readFully(reader, (int) clob.length());
+            if (data.length() == 0) {
                 return null;
             }
-            reader.read(buffer);
-            return new String(buffer);
+            return data;
         } catch (IOException e) {
             throw new RuntimeException(e);
         } finally {
@@ -118,4 +140,68 @@ public class RsKit {
                 }
         }
     }
+
+    /**
+     * 读取流中的全部数据
+     *
+     * @param is       输入流
+     * @param sizeHint 预计长度（如 Blob.length），实际长度不一致时以流为准
+     * @return byte数组
+     */
+    static byte[] readFully(InputStream is, int sizeHint) throws IOException {
+        byte[] data = new byte[Math.max(sizeHint, 0)];
+        int n = 0;
+        while (n < data.length) {
+            int read = is.read(data, n, data.length - n);
+            if (read < 0) {
+                return Arrays.copyOf(data, n);
+            }
+            n += read;
+        }
+        int next = is.read();
+        if (next < 0) {
+            return data;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(n * 2, BUFFER_SIZE));
+        out.write(data, 0, n);
+        out.write(next);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = is.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 读取字符流中的全部数据
+     *
+     * @param reader   字符流
+     * @param sizeHint 预计长度（如 Clob.length），实际长度不一致时以流为准
+     * @return 字符串
+     */
+    static String readFully(Reader reader, int sizeHint) throws IOException {
+        char[] data = new char[Math.max(sizeHint, 0)];
+        int n = 0;
+        while (n < data.length) {
+            int read = reader.read(data, n, data.length - n);
+            if (read < 0) {
+                return new String(data, 0, n);
+            }
+            n += read;
+        }
+        int next = reader.read();
+        if (next < 0) {
+            return new String(data);
+        }
+        StringBuilder out = new StringBuilder(Math.max(n * 2, BUFFER_SIZE));
+        out.append(data, 0, n);
+        out.append((char) next);
+        char[] buffer = new char[BUFFER_SIZE];
+        int read;
+        while ((read = reader.read(buffer)) >= 0) {
+            out.append(buffer, 0, read);
+        }
+        return out.toString();
+    }
 }
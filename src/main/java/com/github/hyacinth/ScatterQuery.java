@@ -0,0 +1,405 @@
+package com.github.hyacinth;
+
+import com.github.hyacinth.sql.SqlCache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+
+/**
+ * 多数据源并行查询（scatter-gather）
+ * <p>
+ * 在多个结构相同的数据源（DbKit.addConfig 注册）上并行执行同一条Sql，各数据源的查询在其 Config 的异步线程池中执行，
+ * 总耗时取决于最慢的数据源。结果按配置名顺序拼接，或在指定排序列时按排序列归并排序（要求各数据源的Sql自身已按相同方式排序），
+ * 可限制合并后的总行数。执行失败或超时的数据源记录在结果中，默认不影响其他数据源
+ * <pre>
+ * 示例:
+ * ScatterResult&lt;Map&lt;String, Object&gt;&gt; result = ScatterQuery.on("db1", "db2", "db3")
+ *         .orderBy("create_time", false)
+ *         .limit(100)
+ *         .timeout(5000)
+ *         .find("select * from orders order by create_time desc limit 100");
+ * </pre>
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/7
+ * Time: 10:10
+ */
+public class ScatterQuery {
+
+    //可在内存中比较的排序项：列名，可带表别名与引号
+    private static final Pattern ORDER_COLUMN = Pattern.compile("[\\w`\"\\[\\]]+(\\.[\\w`\"\\[\\]]+)*");
+
+    private final String[] configNames;
+    //归并排序列及方向，为null时按配置名顺序拼接
+    private String[] orderBy;
+    private boolean[] ascending;
+    //合并后的最大行数，0 表示不限制
+    private int limit;
+    //等待所有数据源的超时时间（毫秒），0 表示一直等待
+    private long timeout;
+    //有数据源失败时是否抛出异常
+    private boolean failOnError;
+
+    private ScatterQuery(String[] configNames) {
+        this.configNames = configNames;
+    }
+
+    /**
+     * 指定参与查询的数据源
+     *
+     * @param configNames 配置名
+     */
+    public static ScatterQuery on(String... configNames) {
+        if (configNames == null || configNames.length == 0)
+            throw new IllegalArgumentException("configNames can not be empty");
+        for (String configName : configNames) {
+            if (DbKit.getConfig(configName) == null)
+                throw new IllegalArgumentException("Config not found by configName: " + configName);
+        }
+        return new ScatterQuery(configNames.clone());
+    }
+
+    /**
+     * 在所有已注册的数据源上查询
+     */
+    public static ScatterQuery onAll() {
+        List<String> names = new ArrayList<String>();
+        for (Map.Entry<String, Config> entry : DbKit.getConfigSet()) {
+            names.add(entry.getKey());
+        }
+        return on(names.toArray(new String[names.size()]));
+    }
+
+    /**
+     * 按指定列归并排序，各数据源的Sql需已按该列同方向排序
+     *
+     * @param column    列名（别名）
+     * @param ascending 是否升序
+     */
+    public ScatterQuery orderBy(String column, boolean ascending) {
+        if (column == null)
+            throw new IllegalArgumentException("column can not be null");
+        this.orderBy = new String[]{column};
+        this.ascending = new boolean[]{ascending};
+        return this;
+    }
+
+    /**
+     * 按排序子句归并排序，各数据源的Sql需已按相同子句排序
+     * <p>
+     * 子句格式同 Sql 的 order by（不含关键字），如 "t.create_time desc, id"，
+     * 只支持列名（表别名与引号会被去除），列需出现在查询结果中
+     *
+     * @param orderBy 排序子句
+     * @throws IllegalArgumentException 子句中包含表达式等无法在内存中比较的排序项
+     */
+    public ScatterQuery orderBy(String orderBy) {
+        if (orderBy == null || orderBy.trim().length() == 0)
+            throw new IllegalArgumentException("orderBy can not be empty");
+        String[] items = orderBy.split(",");
+        String[] columns = new String[items.length];
+        boolean[] directions = new boolean[items.length];
+        for (int i = 0; i < items.length; i++) {
+            String[] parts = items[i].trim().split("\\s+");
+            if (parts.length > 2 || !ORDER_COLUMN.matcher(parts[0]).matches())
+                throw new IllegalArgumentException("Can not merge by order item: " + items[i].trim());
+            boolean asc = true;
+            if (parts.length == 2) {
+                if ("desc".equalsIgnoreCase(parts[1])) {
+                    asc = false;
+                } else if (!"asc".equalsIgnoreCase(parts[1])) {
+                    throw new IllegalArgumentException("Can not merge by order item: " + items[i].trim());
+                }
+            }
+            String column = parts[0].substring(parts[0].lastIndexOf('.') + 1);
+            columns[i] = column.replaceAll("[`\"\\[\\]]", "");
+            directions[i] = asc;
+        }
+        this.orderBy = columns;
+        this.ascending = directions;
+        return this;
+    }
+
+    /**
+     * 限制合并后的总行数，各数据源的Sql宜同时限制行数以减少传输
+     */
+    public ScatterQuery limit(int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("limit can not be negative");
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * 等待所有数据源的超时时间，超时的数据源记为失败
+     *
+     * @param timeout 毫秒
+     */
+    public ScatterQuery timeout(long timeout) {
+        if (timeout < 0)
+            throw new IllegalArgumentException("timeout can not be negative");
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * 有数据源执行失败时抛出 HyacinthException，默认只记录在结果中
+     */
+    public ScatterQuery failOnError(boolean failOnError) {
+        this.failOnError = failOnError;
+        return this;
+    }
+
+    public ScatterResult<Map<String, Object>> find(SqlKey sqlKey, Object... paras) {
+        return find(SqlCache.fixed.get(sqlKey.toString()), paras);
+    }
+
+    public ScatterResult<Map<String, Object>> find(SqlKey sqlKey, Map<String, Object> paras) {
+        List<Object> parasValueList = new ArrayList<Object>();
+        String sql = DbKit.sqlBuilder.build(sqlKey.toString(), paras, parasValueList);
+        return find(sql, parasValueList.toArray());
+    }
+
+    public ScatterResult<Map<String, Object>> find(SqlKey sqlKey) {
+        return find(SqlCache.fixed.get(sqlKey.toString()), DbKit.NULL_PARA_ARRAY);
+    }
+
+    /**
+     * 在所有数据源上并行执行查询
+     *
+     * @param sql   sql语句
+     * @param paras 参数
+     * @return 合并结果以及各数据源的执行情况
+     */
+    public ScatterResult<Map<String, Object>> find(final String sql, final Object... paras) {
+        return gather(new Fetcher<Map<String, Object>>() {
+            @Override
+            public List<Map<String, Object>> fetch(String configName, DbPro dbPro) {
+                return dbPro.find(sql, paras);
+            }
+        });
+    }
+
+    /**
+     * 在所有数据源上并行查询Model
+     *
+     * @param modelClass Model类
+     * @param sql        sql语句
+     * @param paras      参数
+     * @return 合并结果以及各数据源的执行情况
+     */
+    @SuppressWarnings("rawtypes")
+    public <M extends Model> ScatterResult<M> find(final Class<M> modelClass, final String sql, final Object... paras) {
+        return gather(new Fetcher<M>() {
+            @Override
+            public List<M> fetch(String configName, DbPro dbPro) throws Exception {
+                Config config = DbKit.getConfig(configName);
+                Connection conn = null;
+                PreparedStatement pst = null;
+                ResultSet rs = null;
+                try {
+                    conn = config.getReadConnection();
+                    pst = config.prepareStatement(conn, sql);
+                    config.dialect.fillStatement(pst, paras);
+                    rs = pst.executeQuery();
+                    return ModelBuilder.buildList(config, sql, rs, modelClass);
+                } finally {
+                    config.close(rs, pst, conn);
+                }
+            }
+        });
+    }
+
+    private <T> ScatterResult<T> gather(final Fetcher<T> fetcher) {
+        int count = configNames.length;
+        List<Future<ScatterResult.Shard<T>>> futures = new ArrayList<Future<ScatterResult.Shard<T>>>(count);
+        for (final String configName : configNames) {
+            final DbPro dbPro = DbPro.use(configName);
+            futures.add(dbPro.async().submit(new Callable<ScatterResult.Shard<T>>() {
+                @Override
+                public ScatterResult.Shard<T> call() {
+                    long start = System.currentTimeMillis();
+                    try {
+                        List<T> list = fetcher.fetch(configName, dbPro);
+                        return new ScatterResult.Shard<T>(configName, list, System.currentTimeMillis() - start, null);
+                    } catch (Throwable e) {
+                        List<T> empty = Collections.emptyList();
+                        return new ScatterResult.Shard<T>(configName, empty, System.currentTimeMillis() - start, e);
+                    }
+                }
+            }));
+        }
+
+        long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+        List<ScatterResult.Shard<T>> shards = new ArrayList<ScatterResult.Shard<T>>(count);
+        for (int i = 0; i < count; i++) {
+            shards.add(await(configNames[i], futures.get(i), deadline));
+        }
+
+        ScatterResult<T> result = new ScatterResult<T>(merge(shards), shards);
+        if (failOnError && result.hasErrors()) {
+            ScatterResult.Shard<T> failed = result.getFailedShards().get(0);
+            throw new HyacinthException("Scatter query failed on " + result.getFailedShards(), failed.getError());
+        }
+        return result;
+    }
+
+    /**
+     * 单个数据源上的查询
+     */
+    private interface Fetcher<T> {
+        List<T> fetch(String configName, DbPro dbPro) throws Exception;
+    }
+
+    private static <T> ScatterResult.Shard<T> await(String configName, Future<ScatterResult.Shard<T>> future, long deadline) {
+        long start = System.currentTimeMillis();
+        try {
+            if (deadline == 0) {
+                return future.get();
+            }
+            return future.get(Math.max(0, deadline - start), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return failed(configName, System.currentTimeMillis() - start, e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return failed(configName, System.currentTimeMillis() - start, e);
+        } catch (ExecutionException e) {
+            return failed(configName, System.currentTimeMillis() - start, e.getCause());
+        }
+    }
+
+    private static <T> ScatterResult.Shard<T> failed(String configName, long elapsed, Throwable error) {
+        List<T> empty = Collections.emptyList();
+        return new ScatterResult.Shard<T>(configName, empty, elapsed, error);
+    }
+
+    /**
+     * 合并各数据源的结果
+     */
+    private <T> List<T> merge(List<ScatterResult.Shard<T>> shards) {
+        int total = 0;
+        for (ScatterResult.Shard<T> shard : shards) {
+            total += shard.getList().size();
+        }
+        int size = limit > 0 ? Math.min(limit, total) : total;
+        List<T> merged = new ArrayList<T>(size);
+        if (orderBy == null) {
+            for (ScatterResult.Shard<T> shard : shards) {
+                for (T row : shard.getList()) {
+                    if (merged.size() == size) {
+                        return merged;
+                    }
+                    merged.add(row);
+                }
+            }
+            return merged;
+        }
+
+        // 多路归并：队列中保存每个数据源的当前行
+        final KeyComparator comparator = new KeyComparator(orderBy, ascending);
+        for (ScatterResult.Shard<T> shard : shards) {
+            if (!shard.getList().isEmpty()) {
+                comparator.check(shard.getList().get(0));
+            }
+        }
+        PriorityQueue<Head<T>> heads = new PriorityQueue<Head<T>>(Math.max(1, shards.size()), new Comparator<Head<T>>() {
+            @Override
+            public int compare(Head<T> a, Head<T> b) {
+                int c = comparator.compare(a.row(), b.row());
+                return c != 0 ? c : a.shard - b.shard;
+            }
+        });
+        for (int i = 0; i < shards.size(); i++) {
+            List<T> list = shards.get(i).getList();
+            if (!list.isEmpty()) {
+                heads.add(new Head<T>(i, list));
+            }
+        }
+        while (merged.size() < size && !heads.isEmpty()) {
+            Head<T> head = heads.poll();
+            merged.add(head.row());
+            if (++head.position < head.list.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private static final class Head<T> {
+        final int shard;
+        final List<T> list;
+        int position;
+
+        Head(int shard, List<T> list) {
+            this.shard = shard;
+            this.list = list;
+        }
+
+        T row() {
+            return list.get(position);
+        }
+    }
+
+    /**
+     * 按列值依次比较（行为 Map 或 Model），null 排在最前（降序时排在最后）
+     */
+    private static final class KeyComparator implements Comparator<Object> {
+        private final String[] columns;
+        private final boolean[] ascending;
+
+        KeyComparator(String[] columns, boolean[] ascending) {
+            this.columns = columns;
+            this.ascending = ascending;
+        }
+
+        /**
+         * 校验排序列存在于结果中，否则所有行的排序值都为 null，归并结果没有意义
+         */
+        void check(Object row) {
+            for (String column : columns) {
+                boolean exists = row instanceof Model ? ((Model<?>) row).attrsMap().containsKey(column) : ((Map<?, ?>) row).containsKey(column);
+                if (!exists)
+                    throw new HyacinthException("Order column " + column + " not found in scatter query result");
+            }
+        }
+
+        private static Object valueOf(Object row, String column) {
+            if (row instanceof Model) {
+                return ((Model<?>) row).get(column);
+            }
+            return ((Map<?, ?>) row).get(column);
+        }
+
+        @Override
+        public int compare(Object a, Object b) {
+            for (int i = 0; i < columns.length; i++) {
+                int c = compareValue(valueOf(a, columns[i]), valueOf(b, columns[i]));
+                if (c != 0) {
+                    return ascending[i] ? c : -c;
+                }
+            }
+            return 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static int compareValue(Object x, Object y) {
+            if (x == y) {
+                return 0;
+            } else if (x == null) {
+                return -1;
+            } else if (y == null) {
+                return 1;
+            } else if (x instanceof Number && y instanceof Number && x.getClass() != y.getClass()) {
+                return Double.compare(((Number) x).doubleValue(), ((Number) y).doubleValue());
+            }
+            return ((Comparable<Object>) x).compareTo(y);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.hyacinth;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 多数据源并行查询（ScatterQuery）的结果：合并后的数据以及每个数据源的执行情况
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/7
+ * Time: 10:40
+ */
+public class ScatterResult<T> {
+
+    //合并后的数据
+    private final List<T> list;
+    //每个数据源的执行情况，按配置名顺序
+    private final List<Shard<T>> shards;
+
+    ScatterResult(List<T> list, List<Shard<T>> shards) {
+        this.list = list;
+        this.shards = Collections.unmodifiableList(shards);
+    }
+
+    public List<T> getList() {
+        return list;
+    }
+
+    public List<Shard<T>> getShards() {
+        return shards;
+    }
+
+    /**
+     * 是否有数据源执行失败（含超时）
+     */
+    public boolean hasErrors() {
+        for (Shard<T> shard : shards) {
+            if (shard.error != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 执行失败的数据源
+     */
+    public List<Shard<T>> getFailedShards() {
+        List<Shard<T>> failed = new ArrayList<Shard<T>>();
+        for (Shard<T> shard : shards) {
+            if (shard.error != null) {
+                failed.add(shard);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * 单个数据源的执行情况
+     */
+    public static class Shard<T> {
+        private final String configName;
+        private final List<T> list;
+        //执行耗时（毫秒），从任务开始执行计算，不含排队时间
+        private final long elapsed;
+        private final Throwable error;
+
+        Shard(String configName, List<T> list, long elapsed, Throwable error) {
+            this.configName = configName;
+            this.list = list;
+            this.elapsed = elapsed;
+            this.error = error;
+        }
+
+        public String getConfigName() {
+            return configName;
+        }
+
+        /**
+         * 该数据源返回的数据，执行失败时为空列表
+         */
+        public List<T> getList() {
+            return list;
+        }
+
+        public long getElapsed() {
+            return elapsed;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return configName + (error == null ? ": " + list.size() + " rows" : ": " + error) + ", " + elapsed + "ms";
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.github.hyacinth;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * 分片路由
+ * <p>
+ * 为Model（或表名）注册分片列与分片策略后：
+ * Model 的 save/update/delete 按分片列的值路由到对应数据源，findById/deleteById 在分片列为主键时按主键路由，
+ * 否则在所有分片上执行；Model 的 find/findFirst 没有显式指定数据源（use/shard）时在所有分片上并行查询（ScatterQuery），
+ * Sql 带 order by 时按排序列归并、末尾带 limit n 时限制合并后的行数；分页、游标、publish 无法跨分片合并，
+ * 必须先指定数据源，否则抛出异常。Db 的批量保存/更新按分片拆分后并行执行。显式调用 Model.use(configName) 时不做路由
+ * <p>
+ * 为表名注册分片规则后，Db/DbPro 按表名的 save/update/delete 按记录中分片列的值路由，deleteById 在分片列为主键时按主键路由，
+ * 批量保存/更新按分片拆分后并行执行；数据都属于当前数据源时直接写入。
+ * 流式批量（迭代器）与 bulkLoad 无法拆分，需通过 DbPro.use(分片) 指定该表的一个分片，否则抛出异常；
+ * 直接执行的Sql（update/batch）不做路由
+ * <pre>
+ * 示例:
+ * ShardRouter.me().addRule(Order.class, "user_id", new HashShardStrategy("order0", "order1"));
+ * new Order().set("user_id", 10).set("amount", 100).save();    // 保存到 order0
+ * Order.dao.shard(11).find(Sqls.Order_findByUser, 11);          // 在 order1 上查询
+ * </pre>
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/8
+ * Time: 10:00
+ */
+public class ShardRouter {
+
+    private final Map<Class<?>, Rule> modelRules = new ConcurrentHashMap<Class<?>, Rule>();
+    private final Map<String, Rule> tableRules = new ConcurrentHashMap<String, Rule>();
+
+    private static final ShardRouter me = new ShardRouter();
+
+    private ShardRouter() {
+    }
+
+    public static ShardRouter me() {
+        return me;
+    }
+
+    /**
+     * 注册Model的分片规则
+     *
+     * @param modelClass  Model类
+     * @param shardColumn 分片列
+     * @param strategy    分片策略
+     */
+    public void addRule(Class<? extends Model<?>> modelClass, String shardColumn, ShardStrategy strategy) {
+        modelRules.put(modelClass, new Rule(shardColumn, strategy));
+    }
+
+    /**
+     * 注册表的分片规则，用于 Db/DbPro 按表名保存、更新、删除以及批量保存、更新
+     *
+     * @param tableName   表名
+     * @param shardColumn 分片列
+     * @param strategy    分片策略
+     */
+    public void addRule(String tableName, String shardColumn, ShardStrategy strategy) {
+        tableRules.put(tableName, new Rule(shardColumn, strategy));
+    }
+
+    public void removeRule(Class<?> modelClass) {
+        modelRules.remove(modelClass);
+    }
+
+    public void removeRule(String tableName) {
+        tableRules.remove(tableName);
+    }
+
+    public Rule getRule(Class<?> modelClass) {
+        return modelRules.isEmpty() ? null : modelRules.get(modelClass);
+    }
+
+    public Rule getRule(String tableName) {
+        return tableRules.isEmpty() ? null : tableRules.get(tableName);
+    }
+
+    /**
+     * 按分片规则拆分后并行批量保存，返回值与输入顺序一致
+     * 各分片独立提交，某个分片失败时其他分片的数据已写入
+     *
+     * @see DbPro#batchSave(List, int)
+     */
+    @SuppressWarnings("rawtypes")
+    public int[] batchSave(List<? extends Model> modelList, final int batchSize) {
+        return batchModels(modelList, batchSize, true);
+    }
+
+    /**
+     * 按分片规则拆分后并行批量更新，返回值与输入顺序一致
+     *
+     * @see DbPro#batchUpdate(List, int)
+     */
+    @SuppressWarnings("rawtypes")
+    public int[] batchUpdate(List<? extends Model> modelList, final int batchSize) {
+        return batchModels(modelList, batchSize, false);
+    }
+
+    /**
+     * 按表的分片规则拆分后并行批量保存，返回值与输入顺序一致
+     *
+     * @see DbPro#batchSave(String, List, int)
+     */
+    public int[] batchSave(String tableName, List<Map<String, Object>> recordList, int batchSize) {
+        return batchRecords(tableName, null, recordList, batchSize, true);
+    }
+
+    /**
+     * 按表的分片规则拆分后并行批量保存，数据库生成的主键回写到每条记录
+     *
+     * @see DbPro#batchSave(String, String, List, int)
+     */
+    public int[] batchSave(String tableName, String primaryKey, List<Map<String, Object>> recordList, int batchSize) {
+        return batchRecords(tableName, primaryKey, recordList, batchSize, true);
+    }
+
+    /**
+     * 按表的分片规则拆分后并行批量更新，返回值与输入顺序一致
+     *
+     * @see DbPro#batchUpdate(String, String, List, int)
+     */
+    public int[] batchUpdate(String tableName, String primaryKey, List<Map<String, Object>> recordList, int batchSize) {
+        return batchRecords(tableName, primaryKey, recordList, batchSize, false);
+    }
+
+    /**
+     * @param primaryKey 主键列，为null时保存不获取主键、更新使用默认主键
+     */
+    private int[] batchRecords(final String tableName, final String primaryKey, List<Map<String, Object>> recordList,
+                               final int batchSize, final boolean save) {
+        if (recordList == null || recordList.isEmpty())
+            return new int[0];
+        Rule rule = requireRule(getRule(tableName), tableName);
+        Map<String, List<Map<String, Object>>> parts = new LinkedHashMap<String, List<Map<String, Object>>>();
+        Map<String, List<Integer>> positions = new HashMap<String, List<Integer>>();
+        for (int i = 0; i < recordList.size(); i++) {
+            Map<String, Object> record = recordList.get(i);
+            String configName = rule.route(record.get(rule.column));
+            partition(parts, positions, configName, record, i);
+        }
+        Map<String, Callable<int[]>> tasks = new LinkedHashMap<String, Callable<int[]>>();
+        for (final Map.Entry<String, List<Map<String, Object>>> entry : parts.entrySet()) {
+            tasks.put(entry.getKey(), new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    DbPro dbPro = DbPro.use(entry.getKey());
+                    if (save)
+                        return primaryKey == null ? dbPro.batchSave(tableName, entry.getValue(), batchSize)
+                                : dbPro.batchSave(tableName, primaryKey, entry.getValue(), batchSize);
+                    return primaryKey == null ? dbPro.batchUpdate(tableName, entry.getValue(), batchSize)
+                            : dbPro.batchUpdate(tableName, primaryKey, entry.getValue(), batchSize);
+                }
+            });
+        }
+        return execute(tasks, positions, recordList.size());
+    }
+
+    @SuppressWarnings("rawtypes")
+    private int[] batchModels(List<? extends Model> modelList, final int batchSize, final boolean save) {
+        if (modelList == null || modelList.isEmpty())
+            return new int[0];
+        Class<?> modelClass = DbKit.getUsefulClass(modelList.get(0).getClass());
+        Rule rule = requireRule(getRule(modelClass), modelClass.getName());
+        Map<String, List<Model>> parts = new LinkedHashMap<String, List<Model>>();
+        Map<String, List<Integer>> positions = new HashMap<String, List<Integer>>();
+        for (int i = 0; i < modelList.size(); i++) {
+            Model model = modelList.get(i);
+            String configName = rule.route(model.attrsMap().get(rule.column));
+            partition(parts, positions, configName, model, i);
+        }
+        Map<String, Callable<int[]>> tasks = new LinkedHashMap<String, Callable<int[]>>();
+        for (final Map.Entry<String, List<Model>> entry : parts.entrySet()) {
+            tasks.put(entry.getKey(), new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    DbPro dbPro = DbPro.use(entry.getKey());
+                    return save ? dbPro.batchSave(entry.getValue(), batchSize) : dbPro.batchUpdate(entry.getValue(), batchSize);
+                }
+            });
+        }
+        return execute(tasks, positions, modelList.size());
+    }
+
+    private static <T> void partition(Map<String, List<T>> parts, Map<String, List<Integer>> positions, String configName, T row, int index) {
+        List<T> part = parts.get(configName);
+        if (part == null) {
+            part = new ArrayList<T>();
+            parts.put(configName, part);
+            positions.put(configName, new ArrayList<Integer>());
+        }
+        part.add(row);
+        positions.get(configName).add(index);
+    }
+
+    /**
+     * 在各分片的异步线程池中并行执行，按原始顺序汇总每一行的结果
+     */
+    private static int[] execute(Map<String, Callable<int[]>> tasks, Map<String, List<Integer>> positions, int total) {
+        Map<String, Future<int[]>> futures = new LinkedHashMap<String, Future<int[]>>();
+        for (Map.Entry<String, Callable<int[]>> entry : tasks.entrySet()) {
+            futures.put(entry.getKey(), DbPro.use(entry.getKey()).async().submit(entry.getValue()));
+        }
+        int[] result = new int[total];
+        List<String> failed = new ArrayList<String>();
+        Throwable cause = null;
+        for (Map.Entry<String, Future<int[]>> entry : futures.entrySet()) {
+            try {
+                int[] counts = entry.getValue().get();
+                List<Integer> index = positions.get(entry.getKey());
+                for (int i = 0; i < counts.length && i < index.size(); i++) {
+                    result[index.get(i)] = counts[i];
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.add(entry.getKey());
+                cause = cause == null ? e : cause;
+            } catch (ExecutionException e) {
+                failed.add(entry.getKey());
+                cause = cause == null ? e.getCause() : cause;
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new HyacinthException("Batch failed on shards " + failed, cause);
+        }
+        return result;
+    }
+
+    private static Rule requireRule(Rule rule, String name) {
+        if (rule == null)
+            throw new HyacinthException("No shard rule registered for " + name);
+        return rule;
+    }
+
+    /**
+     * 分片规则：分片列 + 分片策略
+     */
+    public static final class Rule {
+        private final String column;
+        private final ShardStrategy strategy;
+
+        Rule(String column, ShardStrategy strategy) {
+            if (column == null || strategy == null)
+                throw new IllegalArgumentException("shard column and strategy can not be null");
+            this.column = column;
+            this.strategy = strategy;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public ShardStrategy getStrategy() {
+            return strategy;
+        }
+
+        /**
+         * 计算分片键所在的数据源
+         */
+        public String route(Object shardKey) {
+            if (shardKey == null)
+                throw new HyacinthException("Shard key " + column + " can not be null");
+            return strategy.route(shardKey);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.hyacinth;
+
+/**
+ * 分片策略：根据分片键计算数据所在的数据源
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/8
+ * Time: 9:30
+ *
+ * @see ShardRouter
+ */
+public interface ShardStrategy {
+
+    /**
+     * 计算分片键所在的数据源
+     *
+     * @param shardKey 分片键，不为null
+     * @return 配置名（DbKit.addConfig 注册的名称）
+     */
+    String route(Object shardKey);
+
+    /**
+     * 所有分片的配置名，没有分片键的查询在这些数据源上并行执行
+     */
+    String[] getConfigNames();
+}
@@ -0,0 +1,144 @@
+package com.github.hyacinth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * 单个连接上的PreparedStatement缓存（LRU）
+ * <p>
+ * 语句在使用期间从缓存中取出（同一Sql被嵌套使用时会另外创建），使用完毕后放回缓存；
+ * 超出容量时淘汰最近最少使用的语句并关闭。连接真正关闭前由 Config 关闭所有缓存的语句
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/10/30
+ * Time: 11:20
+ */
+class StatementCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementCache.class);
+
+    //空闲的语句
+    private final LinkedHashMap<Key, PreparedStatement> idle;
+    //使用中的语句 -> key
+    private final Map<Statement, Key> inUse = new IdentityHashMap<Statement, Key>();
+
+    StatementCache(final int maxSize) {
+        this.idle = new LinkedHashMap<Key, PreparedStatement>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, PreparedStatement> eldest) {
+                if (size() > maxSize) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 取出缓存的语句，没有时返回null
+     */
+    PreparedStatement take(Key key) {
+        PreparedStatement pst = idle.remove(key);
+        if (pst != null) {
+            inUse.put(pst, key);
+        }
+        return pst;
+    }
+
+    /**
+     * 登记新创建的语句，使用完毕后可以放回缓存
+     */
+    void register(Key key, PreparedStatement pst) {
+        inUse.put(pst, key);
+    }
+
+    /**
+     * 语句使用完毕，放回缓存
+     *
+     * @return 语句不属于当前缓存时返回false，由调用方关闭
+     */
+    boolean release(Statement st) {
+        Key key = inUse.remove(st);
+        if (key == null) {
+            return false;
+        }
+        PreparedStatement pst = (PreparedStatement) st;
+        try {
+            pst.clearParameters();
+            pst.clearBatch();
+        } catch (SQLException e) {
+            closeQuietly(pst);
+            return true;
+        }
+        PreparedStatement replaced = idle.put(key, pst);
+        if (replaced != null && replaced != pst) {
+            closeQuietly(replaced);
+        }
+        return true;
+    }
+
+    /**
+     * 关闭所有语句
+     */
+    void closeAll() {
+        for (PreparedStatement pst : idle.values()) {
+            closeQuietly(pst);
+        }
+        idle.clear();
+        for (Statement st : inUse.keySet()) {
+            closeQuietly(st);
+        }
+        inUse.clear();
+    }
+
+    private static void closeQuietly(Statement st) {
+        try {
+            st.close();
+        } catch (SQLException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 缓存key：Sql + 主键返回方式
+     */
+    static final class Key {
+        private final String sql;
+        private final int autoGeneratedKeys;
+        private final String[] columnNames;
+        private final int hash;
+
+        Key(String sql, int autoGeneratedKeys, String[] columnNames) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+            this.columnNames = columnNames;
+            this.hash = 31 * (31 * sql.hashCode() + autoGeneratedKeys) + Arrays.hashCode(columnNames);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            return autoGeneratedKeys == other.autoGeneratedKeys
+                    && sql.equals(other.sql)
+                    && Arrays.equals(columnNames, other.columnNames);
+        }
+    }
+}
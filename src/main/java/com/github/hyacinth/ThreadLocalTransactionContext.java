@@ -0,0 +1,47 @@
+package com.github.hyacinth;
+
+import java.sql.Connection;
+
+/**
+ * 基于 ThreadLocal 的事务上下文（默认），每个 Config 一个实例
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/3
+ * Time: 10:25
+ */
+public class ThreadLocalTransactionContext implements TransactionContext {
+
+    private final ThreadLocal<Connection> threadLocal = new ThreadLocal<Connection>();
+    private final ThreadLocal<Long> lastWriteTime = new ThreadLocal<Long>();
+
+    @Override
+    public Connection getConnection(Config config) {
+        return threadLocal.get();
+    }
+
+    @Override
+    public void bind(Config config, Connection conn) {
+        threadLocal.set(conn);
+    }
+
+    @Override
+    public void unbind(Config config) {
+        threadLocal.remove();
+    }
+
+    @Override
+    public void setLastWriteTime(Config config, long time) {
+        if (time == 0) {
+            lastWriteTime.remove();
+        } else {
+            lastWriteTime.set(time);
+        }
+    }
+
+    @Override
+    public long getLastWriteTime(Config config) {
+        Long time = lastWriteTime.get();
+        return time == null ? 0 : time;
+    }
+}
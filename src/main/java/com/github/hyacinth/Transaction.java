@@ -0,0 +1,181 @@
+package com.github.hyacinth;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 显式传递的事务
+ * <p>
+ * 事务对象持有一个关闭了自动提交的连接，可以在线程之间传递：在任意线程中通过 call/run 执行的
+ * DbPro、Db、Model 操作都使用该连接。同一时刻只允许一个线程使用事务（使用 Lock 而非 synchronized，
+ * 不会钉住虚拟线程的载体线程）
+ * <pre>
+ * 示例:
+ * Transaction tx = DbPro.use().beginTransaction();
+ * try {
+ *     tx.run(new Runnable() {
+ *         public void run() {
+ *             Db.update(Sqls.Account_decrease, 100, fromId);
+ *             Db.update(Sqls.Account_increase, 100, toId);
+ *         }
+ *     });
+ *     tx.commit();
+ * } finally {
+ *     tx.close();
+ * }
+ * </pre>
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/3
+ * Time: 10:40
+ *
+ * @see TransactionContext
+ */
+public class Transaction {
+
+    private final Config config;
+    private final Connection conn;
+    private final boolean autoCommit;
+    private final Lock lock = new ReentrantLock();
+    //是否有未提交的操作
+    private boolean dirty;
+    private boolean closed;
+
+    private Transaction(Config config, Connection conn, boolean autoCommit) {
+        this.config = config;
+        this.conn = conn;
+        this.autoCommit = autoCommit;
+    }
+
+    /**
+     * 开启事务
+     *
+     * @param config 配置
+     * @return 事务，使用完毕后必须调用 close
+     */
+    public static Transaction begin(Config config) {
+        if (config.isInTransaction()) {
+            throw new HyacinthException("Transaction already exists in current context, nested transaction is not supported");
+        }
+        Connection conn = null;
+        try {
+            conn = config.getConnection();
+            boolean autoCommit = conn.getAutoCommit();
+            if (autoCommit) {
+                conn.setAutoCommit(false);
+            }
+            return new Transaction(config, conn, autoCommit);
+        } catch (SQLException e) {
+            config.close(conn);
+            throw new HyacinthException(e);
+        }
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    /**
+     * 在事务中执行任务，执行期间事务连接绑定到当前上下文，结束后恢复原有绑定
+     *
+     * @param task 任务
+     * @return 任务返回值
+     */
+    public <T> T call(Callable<T> task) {
+        lock.lock();
+        TransactionContext context = config.getTransactionContext();
+        Connection previous = context.getConnection(config);
+        try {
+            if (closed) {
+                throw new HyacinthException("Transaction is closed");
+            }
+            dirty = true;
+            context.bind(config, conn);
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new HyacinthException(e);
+        } finally {
+            if (previous == null) {
+                context.unbind(config);
+            } else {
+                context.bind(config, previous);
+            }
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @see #call(Callable)
+     */
+    public void run(final Runnable task) {
+        call(new Callable<Object>() {
+            @Override
+            public Object call() {
+                task.run();
+                return null;
+            }
+        });
+    }
+
+    public void commit() {
+        lock.lock();
+        try {
+            conn.commit();
+            dirty = false;
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void rollback() {
+        lock.lock();
+        try {
+            conn.rollback();
+            dirty = false;
+        } catch (SQLException e) {
+            throw new HyacinthException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 结束事务，回滚未提交的操作并释放连接，可重复调用
+     */
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (dirty) {
+                    conn.rollback();
+                }
+                if (autoCommit) {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new HyacinthException(e);
+            } finally {
+                config.closeConnection(conn);
+                config.markWrite();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.hyacinth;
+
+import java.sql.Connection;
+
+/**
+ * 事务上下文，保存当前执行环境中绑定的事务连接
+ * <p>
+ * Config 获取连接时优先使用上下文中绑定的连接，释放资源时不会关闭该连接；
+ * DbPro、Db、Model 均通过 Config 获取与释放连接，因此都遵循同一个上下文。
+ * 默认实现基于 ThreadLocal（见 ThreadLocalTransactionContext），
+ * 需要在线程之间传递事务时可使用 Transaction 显式传递，或通过 Config#setTransactionContext 替换为其他实现
+ * （如基于请求作用域的实现），实现类不应在持有监视器锁（synchronized）时调用JDBC。
+ * 上下文同时保存"读己之写"的最近写操作时间，与事务连接处于同一作用域；通过 async 提交的任务会携带提交时的写操作时间
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/3
+ * Time: 10:10
+ *
+ * @see Transaction
+ */
+public interface TransactionContext {
+
+    /**
+     * 获取当前绑定的事务连接
+     *
+     * @param config 配置
+     * @return 事务连接，未绑定时返回null
+     */
+    Connection getConnection(Config config);
+
+    /**
+     * 绑定事务连接
+     *
+     * @param config 配置
+     * @param conn   事务连接
+     */
+    void bind(Config config, Connection conn);
+
+    /**
+     * 解除绑定
+     *
+     * @param config 配置
+     */
+    void unbind(Config config);
+
+    /**
+     * 记录最近一次写操作的时间
+     *
+     * @param config 配置
+     * @param time   写操作时间（毫秒），0 表示清除
+     * @see Config#setReadYourWritesWindow(long)
+     */
+    void setLastWriteTime(Config config, long time);
+
+    /**
+     * 获取最近一次写操作的时间
+     *
+     * @param config 配置
+     * @return 写操作时间（毫秒），没有记录时返回 0
+     */
+    long getLastWriteTime(Config config);
+}
@@ -0,0 +1,177 @@
+package com.github.hyacinth.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有容量上限的线程安全缓存，超出容量时淘汰最近最少使用的数据
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/10/27
+ * Time: 10:05
+ */
+public class LruCache<K, V> implements Cache<K, V> {
+    //标识
+    private final String name;
+    //容量上限
+    private final int maxSize;
+    private final LinkedHashMap<K, V> cache;
+    //LinkedHashMap 按访问顺序排序时 get 也会修改内部结构，读写均需加锁
+    private final Lock lock = new ReentrantLock();
+
+    public LruCache(String name, final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must more than 0");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.maxSize;
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public V get(K key) {
+        lock.lock();
+        try {
+            return cache.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<? extends K, ? extends V> getAll(Iterator<? extends K> keys) {
+        lock.lock();
+        try {
+            Map<K, V> map = new HashMap<K, V>();
+            while (keys.hasNext()) {
+                K key = keys.next();
+                V value = cache.get(key);
+                if (value != null) {
+                    map.put(key, value);
+                }
+            }
+            return map;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            cache.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        lock.lock();
+        try {
+            cache.putAll(entries);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        lock.lock();
+        try {
+            return cache.containsKey(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            cache.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidateAll(Iterator<? extends K> keys) {
+        lock.lock();
+        try {
+            while (keys.hasNext()) {
+                cache.remove(keys.next());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        clear();
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return cache.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            cache.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<? extends K, ? extends V> asMap() {
+        lock.lock();
+        try {
+            return new ConcurrentHashMap<K, V>(cache);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return cache.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.github.hyacinth.dialect;
 
 import com.github.hyacinth.Table;
+import com.github.hyacinth.sql.BuildKit;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -18,6 +24,9 @@ import java.util.Set;
  */
 public abstract class Dialect {
 
+    //默认批量导入实现每次执行的行数
+    public static final int BULK_BATCH_SIZE = 1000;
+
     /**
      * 用于生成Model时，从数据库查询对应表的表结构信息
      *
@@ -36,6 +45,295 @@ public abstract class Dialect {
      */
     public abstract String forPaginate(int pageNumber, int pageSize, String sql);
 
+    /**
+     * 生成按偏移量读取的分页Sql，用于读取的行数与页大小不同的场景（如多读取一行判断是否有下一页）
+     * 默认实现只支持偏移量为读取行数整数倍的情况，覆盖此方法支持任意偏移量的方言应同时覆盖 supportsPaginateOffset
+     *
+     * @see #supportsPaginateOffset()
+     *
+     * @param offset 跳过的行数
+     * @param limit  读取的行数
+     * @param sql    未进行分页处理的查询sql
+     * @return 生成好的分页查询Sql
+     */
+    public String forPaginateOffset(int offset, int limit, String sql) {
+        if (offset % limit != 0) {
+            throw new UnsupportedOperationException(getClass().getName() + " does not support offset paginate");
+        }
+        return forPaginate(offset / limit + 1, limit, sql);
+    }
+
+    /**
+     * forPaginateOffset 是否支持任意偏移量；不支持时 PageMode.NO_COUNT/ESTIMATED（需要多读取一行）按 EXACT 分页
+     */
+    public boolean supportsPaginateOffset() {
+        return false;
+    }
+
+    /**
+     * 是否支持窗口函数 COUNT(*) OVER()，用于 PageMode.WINDOW 分页
+     *
+     * @param conn 数据库连接，可用于判断数据库版本
+     */
+    public boolean supportsWindowTotal(Connection conn) throws SQLException {
+        return false;
+    }
+
+    /**
+     * 在查询中追加窗口函数总数列，返回 null 表示该查询不适用（如 union、distinct），需改用 count 查询
+     *
+     * @param sql   未进行分页处理的查询sql
+     * @param label 总数列的别名
+     * @return 带总数列的查询sql
+     */
+    public String forWindowTotal(String sql, String label) {
+        return BuildKit.buildWindowTotalSql(sql, label);
+    }
+
+    /**
+     * 估算查询结果的行数，用于 PageMode.ESTIMATED 分页，不执行 count 查询
+     *
+     * @param conn  数据库连接
+     * @param sql   查询sql
+     * @param paras 参数
+     * @return 估算的行数，不支持估算时返回 -1
+     */
+    public long estimateRowCount(Connection conn, String sql, Object... paras) throws SQLException {
+        return -1;
+    }
+
+    /**
+     * 是否支持 insert ... values (...), (...) 多行插入，用于 BatchInsertMode.MULTI_ROW
+     */
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
+    /**
+     * 单条语句最多允许的绑定参数个数，多行插入按此限制拆分语句
+     */
+    public int getMaxBindParameters() {
+        return 32767;
+    }
+
+    /**
+     * 单条多行插入语句最多允许的行数
+     */
+    public int getMaxInsertRows() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * 将单行插入Sql改写为 rows 行的多行插入Sql，返回 null 表示该Sql不能改写，按单行批量执行
+     *
+     * @param sql  单行插入sql：insert into table(a, b) values(?, ?)
+     * @param rows 行数
+     * @return 多行插入sql
+     */
+    public String forMultiRowInsert(String sql, int rows) {
+        return BuildKit.buildMultiRowInsertSql(sql, rows);
+    }
+
+    /**
+     * 批量执行（executeBatch）与多行插入后，驱动是否通过 getGeneratedKeys 按插入顺序为每一行返回一个主键
+     * <p>
+     * 默认 false：需要回写主键时逐行执行插入语句。部分驱动只返回最后一行的主键（如 SQLite 的 last_insert_rowid()），
+     * 按位置回写会把最后一行的主键写到第一行
+     */
+    public boolean supportsBatchGeneratedKeys() {
+        return false;
+    }
+
+    /**
+     * 生成以查询结果返回主键的插入Sql，用于驱动不支持在批量执行后通过 getGeneratedKeys 返回主键的数据库；
+     * 返回 null（默认）表示通过 getGeneratedKeys 获取。返回的Sql逐行执行，不与多行插入合并
+     *
+     * @param sql  单行插入sql
+     * @param keys 需要返回的主键列
+     * @return 执行查询即返回主键的插入sql
+     */
+    public String forInsertReturningKeys(String sql, String[] keys) {
+        return null;
+    }
+
+    /**
+     * 批量导入：将行迭代器中的数据写入表，数据库有原生导入方式时由方言覆盖（MySQL LOAD DATA、PostgreSql COPY），
+     * 默认实现按 BULK_BATCH_SIZE 行一批执行批量插入。行从迭代器中逐行读取，不会一次性加载到内存；
+     * 不提交事务，由调用方提交
+     *
+     * @param conn      数据库连接
+     * @param tableName 表名
+     * @param columns   列名，与每行的值一一对应
+     * @param rows      行迭代器
+     * @return 导入的行数
+     */
+    public long bulkLoad(Connection conn, String tableName, String[] columns, Iterator<Object[]> rows) throws SQLException {
+        StringBuilder sql = new StringBuilder("insert into ").append(tableName).append("(");
+        StringBuilder temp = new StringBuilder(") values(");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+                temp.append(", ");
+            }
+            sql.append(columns[i]);
+            temp.append("?");
+        }
+        sql.append(temp).append(")");
+        PreparedStatement pst = conn.prepareStatement(sql.toString());
+        try {
+            long total = 0;
+            int counter = 0;
+            while (rows.hasNext()) {
+                Object[] row = rows.next();
+                if (row == null || row.length != columns.length)
+                    throw new IllegalArgumentException("Each row must have " + columns.length + " values");
+                fillStatement(pst, row);
+                pst.addBatch();
+                total++;
+                if (++counter >= BULK_BATCH_SIZE) {
+                    counter = 0;
+                    pst.executeBatch();
+                }
+            }
+            if (counter > 0) {
+                pst.executeBatch();
+            }
+            return total;
+        } finally {
+            pst.close();
+        }
+    }
+
+    /**
+     * 加载JDBC驱动中的类，不存在时返回 null，用于通过反射调用驱动的专有接口
+     */
+    protected static Class<?> loadDriverClass(String className) {
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if (loader == null) {
+                return null;
+            }
+            try {
+                return Class.forName(className, false, loader);
+            } catch (ClassNotFoundException ignored) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 反射调用驱动方法，还原方法抛出的 SQLException
+     */
+    protected static Object invokeDriverMethod(Method method, Object target, Object... args) throws SQLException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getTargetException();
+            if (cause instanceof SQLException)
+                throw (SQLException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new SQLException(cause.getMessage(), cause);
+        } catch (IllegalAccessException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 生成参数化的分页查询Sql：limit/offset（或 rownum 边界）以占位符表示，不同页码生成的Sql相同，
+     * 数据库与连接池的语句缓存可以复用
+     *
+     * @param pageNumber 当前查询页码
+     * @param pageSize   页大小
+     * @param sql        未进行分页处理的查询sql
+     * @param paras      查询参数，调用前为原查询的参数，分页参数按占位符位置加入此列表
+     * @return 生成好的分页查询Sql
+     */
+    public String forPaginate(int pageNumber, int pageSize, String sql, List<Object> paras) {
+        return forPaginateOffset((pageNumber - 1) * pageSize, pageSize, sql, paras);
+    }
+
+    /**
+     * 生成参数化的按偏移量读取的分页Sql，默认实现不参数化，各方言应覆盖此方法
+     *
+     * @see #forPaginate(int, int, String, List)
+     */
+    public String forPaginateOffset(int offset, int limit, String sql, List<Object> paras) {
+        return forPaginateOffset(offset, limit, sql);
+    }
+
+    /**
+     * 生成键集（seek）分页查询Sql：以原Sql为子查询，从上一页最后一行的键值之后按排序列读取 limit 行
+     *
+     * @param sql       未进行分页处理的查询sql，不应包含 order by
+     * @param columns   排序列
+     * @param ascending 是否升序
+     * @param lastKey   上一页最后一行的键值，为null时查询第一页
+     * @param limit     读取行数
+     * @param paras     原查询的参数，键值参数与分页参数按占位符位置加入此列表
+     * @return 生成好的分页查询Sql
+     */
+    public String forKeysetPaginate(String sql, String[] columns, boolean ascending, Object[] lastKey, int limit, List<Object> paras) {
+        StringBuilder ret = new StringBuilder("select * from (").append(sql).append(") keyset_");
+        if (lastKey != null) {
+            ret.append(" where ");
+            forKeysetPredicate(columns, ascending ? " > " : " < ", lastKey, ret, paras);
+        }
+        ret.append(" order by ");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                ret.append(", ");
+            }
+            ret.append(columns[i]).append(ascending ? " asc" : " desc");
+        }
+        return forPaginateOffset(0, limit, ret.toString(), paras);
+    }
+
+    /**
+     * 生成键集比较条件，默认展开为 a > ? or (a = ? and b > ?) 的形式，支持行值比较的数据库可覆盖为 (a, b) > (?, ?)
+     */
+    protected void forKeysetPredicate(String[] columns, String operator, Object[] lastKey, StringBuilder sql, List<Object> paras) {
+        sql.append("(");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(" or ");
+            }
+            sql.append("(");
+            for (int j = 0; j < i; j++) {
+                sql.append(columns[j]).append(" = ? and ");
+                paras.add(lastKey[j]);
+            }
+            sql.append(columns[i]).append(operator).append("?)");
+            paras.add(lastKey[i]);
+        }
+        sql.append(")");
+    }
+
+    /**
+     * 行值比较形式的键集条件：(a, b) > (?, ?)
+     */
+    protected void forRowValuePredicate(String[] columns, String operator, Object[] lastKey, StringBuilder sql, List<Object> paras) {
+        if (columns.length == 1) {
+            sql.append(columns[0]).append(operator).append("?");
+            paras.add(lastKey[0]);
+            return;
+        }
+        StringBuilder marks = new StringBuilder();
+        sql.append("(");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+                marks.append(", ");
+            }
+            sql.append(columns[i]);
+            marks.append("?");
+            paras.add(lastKey[i]);
+        }
+        sql.append(")").append(operator).append("(").append(marks).append(")");
+    }
+
     /**
      * 生成根据主键查询Model的Sql
      *
@@ -261,6 +559,23 @@ public abstract class Dialect {
         }
     }
 
+    /**
+     * 创建流式查询使用的PreparedStatement，结果集按 fetchSize 分批从数据库读取而不是一次性加载到内存
+     * <p>
+     * 不同数据库开启流式读取的方式不同，由各方言自行覆盖
+     *
+     * @param conn      数据库连接
+     * @param sql       查询sql
+     * @param fetchSize 每次从数据库读取的行数
+     * @return PreparedStatement
+     * @throws SQLException
+     */
+    public PreparedStatement prepareStreamingStatement(Connection conn, String sql, int fetchSize) throws SQLException {
+        PreparedStatement pst = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        pst.setFetchSize(fetchSize);
+        return pst;
+    }
+
     public String getDefaultPrimaryKey() {
         return "id";
     }
@@ -2,9 +2,21 @@ package com.github.hyacinth.dialect;
 
 import com.github.hyacinth.Table;
 
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Mysql方言
@@ -16,6 +28,16 @@ import java.util.Set;
  */
 public class MysqlDialect extends Dialect {
 
+    //提供 setLocalInfileInputStream 的驱动语句类：Connector/J 8.x、5.x
+    private static final String[] LOCAL_INFILE_STATEMENTS = {"com.mysql.cj.jdbc.JdbcStatement", "com.mysql.jdbc.Statement"};
+
+    //MariaDB 通过 MySql 协议返回的版本号前缀，如 5.5.5-10.1.38-MariaDB
+    private static final String MARIADB_VERSION_PREFIX = "5.5.5-";
+    private static final Pattern VERSION = Pattern.compile("(\\d+)\\.(\\d+)");
+
+    //数据库是否支持窗口函数，首次分页时根据数据库产品与版本判断
+    private volatile Boolean windowFunctions;
+
     public String forTableBuilderDoBuild(String tableName) {
         return "select * from `" + tableName + "` where 1 = 2";
     }
@@ -235,9 +257,180 @@ public class MysqlDialect extends Dialect {
     }
 
     public String forPaginate(int pageNumber, int pageSize, String sql) {
-        int offset = pageSize * (pageNumber - 1);
+        return forPaginateOffset(pageSize * (pageNumber - 1), pageSize, sql);
+    }
+
+    /**
+     * MySql 8.0、MariaDB 10.2 开始支持窗口函数
+     * <p>
+     * MariaDB 需按产品版本判断：10.0、10.1 的主版本号同样大于8，且通过 MySql 驱动连接时版本号带有 "5.5.5-" 前缀
+     */
+    @Override
+    public boolean supportsWindowTotal(Connection conn) throws SQLException {
+        Boolean supported = windowFunctions;
+        if (supported == null) {
+            DatabaseMetaData meta = conn.getMetaData();
+            String version = meta.getDatabaseProductVersion();
+            if (isMariaDb(meta.getDatabaseProductName(), version)) {
+                supported = isVersionAtLeast(version.startsWith(MARIADB_VERSION_PREFIX) ? version.substring(MARIADB_VERSION_PREFIX.length()) : version, 10, 2);
+            } else {
+                supported = meta.getDatabaseMajorVersion() >= 8;
+            }
+            windowFunctions = supported;
+        }
+        return supported;
+    }
+
+    private static boolean isMariaDb(String productName, String version) {
+        return (productName != null && productName.toLowerCase().contains("mariadb"))
+                || (version != null && version.toLowerCase().contains("mariadb"));
+    }
+
+    /**
+     * 版本号（如 10.1.38-MariaDB）是否不低于指定的主、次版本，无法解析时返回 false
+     */
+    private static boolean isVersionAtLeast(String version, int major, int minor) {
+        Matcher matcher = VERSION.matcher(version == null ? "" : version);
+        if (!matcher.lookingAt()) {
+            return false;
+        }
+        int actualMajor = Integer.parseInt(matcher.group(1));
+        int actualMinor = Integer.parseInt(matcher.group(2));
+        return actualMajor > major || (actualMajor == major && actualMinor >= minor);
+    }
+
+    @Override
+    public boolean supportsPaginateOffset() {
+        return true;
+    }
+
+    @Override
+    public String forPaginateOffset(int offset, int limit, String sql) {
         StringBuilder ret = new StringBuilder(sql);
-        ret.append(" limit ").append(offset).append(", ").append(pageSize);    // limit can use one or two '?' to pass paras
+        ret.append(" limit ").append(offset).append(", ").append(limit);    // limit can use one or two '?' to pass paras
         return ret.toString();
     }
+
+    @Override
+    public String forPaginateOffset(int offset, int limit, String sql, List<Object> paras) {
+        paras.add(offset);
+        paras.add(limit);
+        return sql + " limit ?, ?";
+    }
+
+    /**
+     * 使用 LOAD DATA LOCAL INFILE 导入，数据由 Connector/J 的 setLocalInfileInputStream 从内存流中读取，
+     * 行在驱动读取时才从迭代器中编码。需开启客户端 allowLoadLocalInfile 与服务端 local_infile；
+     * 驱动不提供该接口时按批量插入执行
+     */
+    @Override
+    public long bulkLoad(Connection conn, String tableName, String[] columns, Iterator<Object[]> rows) throws SQLException {
+        Statement st = conn.createStatement();
+        try {
+            for (String className : LOCAL_INFILE_STATEMENTS) {
+                Class<?> type = loadDriverClass(className);
+                if (type == null || !st.isWrapperFor(type)) {
+                    continue;
+                }
+                Method setter;
+                try {
+                    setter = type.getMethod("setLocalInfileInputStream", InputStream.class);
+                } catch (NoSuchMethodException e) {
+                    continue;
+                }
+                Object target = st.unwrap(type);
+                TextRowStream stream = new TextRowStream(rows, columns.length, false);
+                invokeDriverMethod(setter, target, stream);
+                try {
+                    st.executeUpdate(forBulkLoad(tableName, columns));
+                } finally {
+                    invokeDriverMethod(setter, target, (Object) null);
+                }
+                return stream.getRowCount();
+            }
+        } finally {
+            st.close();
+        }
+        return super.bulkLoad(conn, tableName, columns, rows);
+    }
+
+    private String forBulkLoad(String tableName, String[] columns) {
+        StringBuilder sql = new StringBuilder("load data local infile 'hyacinth_bulk_load' into table ");
+        sql.append(tableName).append(" character set utf8mb4");
+        sql.append(" fields terminated by '\\t' escaped by '\\\\' lines terminated by '\\n' (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(columns[i].trim());
+        }
+        return sql.append(")").toString();
+    }
+
+    /**
+     * Connector/J 由 LAST_INSERT_ID() 与自增步长推算每一行的主键，要求同一语句中的自增值连续；
+     * innodb_autoinc_lock_mode = 2 且存在并发插入时自增值可能不连续，此时应覆盖本方法返回 false
+     */
+    @Override
+    public boolean supportsBatchGeneratedKeys() {
+        return true;
+    }
+
+    /**
+     * 预处理语句的参数个数上限为 65535（协议中以两个字节表示）
+     */
+    @Override
+    public int getMaxBindParameters() {
+        return 65535;
+    }
+
+    /**
+     * 通过 EXPLAIN 估算行数：取执行计划第一行（驱动表）的 rows，有 filtered 列（5.7+）时按过滤比例折算
+     */
+    @Override
+    public long estimateRowCount(Connection conn, String sql, Object... paras) throws SQLException {
+        PreparedStatement pst = conn.prepareStatement("explain " + sql);
+        ResultSet rs = null;
+        try {
+            fillStatement(pst, paras);
+            rs = pst.executeQuery();
+            if (!rs.next()) {
+                return -1;
+            }
+            long rows = rs.getLong("rows");
+            double filtered = 100;
+            ResultSetMetaData rsmd = rs.getMetaData();
+            for (int i = 1; i <= rsmd.getColumnCount(); i++) {
+                if ("filtered".equalsIgnoreCase(rsmd.getColumnLabel(i))) {
+                    filtered = rs.getDouble(i);
+                    break;
+                }
+            }
+            return (long) (rows * filtered / 100);
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            pst.close();
+        }
+    }
+
+    /**
+     * 使用行值比较，可直接利用排序列上的联合索引
+     */
+    @Override
+    protected void forKeysetPredicate(String[] columns, String operator, Object[] lastKey, StringBuilder sql, List<Object> paras) {
+        forRowValuePredicate(columns, operator, lastKey, sql, paras);
+    }
+
+    /**
+     * MySql驱动只有在 fetchSize 为 Integer.MIN_VALUE 时才会逐行读取结果集，否则会将结果集全部加载到内存
+     * 注意：流式结果集未关闭前，同一连接上不能执行其他语句
+     */
+    @Override
+    public PreparedStatement prepareStreamingStatement(Connection conn, String sql, int fetchSize) throws SQLException {
+        PreparedStatement pst = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        pst.setFetchSize(Integer.MIN_VALUE);
+        return pst;
+    }
 }
@@ -2,6 +2,7 @@ package com.github.hyacinth.dialect;
 
 import com.github.hyacinth.Table;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.List;
@@ -87,8 +88,18 @@ public class OracleDialect extends Dialect {
     }
 
     public String forPaginate(int pageNumber, int pageSize, String sql) {
-        int start = (pageNumber - 1) * pageSize;
-        int end = pageNumber * pageSize;
+        return forPaginateOffset((pageNumber - 1) * pageSize, pageSize, sql);
+    }
+
+    @Override
+    public boolean supportsPaginateOffset() {
+        return true;
+    }
+
+    @Override
+    public String forPaginateOffset(int offset, int limit, String sql) {
+        int start = offset;
+        int end = offset + limit;
         StringBuilder ret = new StringBuilder();
         ret.append("select * from ( select row_.*, rownum rownum_ from (  ");
         ret.append(sql);
@@ -97,6 +108,39 @@ public class OracleDialect extends Dialect {
         return ret.toString();
     }
 
+    @Override
+    public String forPaginateOffset(int offset, int limit, String sql, List<Object> paras) {
+        paras.add(offset + limit);
+        paras.add(offset);
+        StringBuilder ret = new StringBuilder();
+        ret.append("select * from ( select row_.*, rownum rownum_ from (  ");
+        ret.append(sql);
+        ret.append(" ) row_ where rownum <= ?) table_alias");
+        ret.append(" where table_alias.rownum_ > ?");
+        return ret.toString();
+    }
+
+    @Override
+    public boolean supportsWindowTotal(Connection conn) {
+        return true;
+    }
+
+    /**
+     * Oracle 不支持 "select *, 其他列" 的写法，将原查询作为子查询，rownum 分页保持子查询的顺序
+     */
+    @Override
+    public String forWindowTotal(String sql, String label) {
+        return "select window_.*, count(*) over() " + label + " from (" + sql + ") window_";
+    }
+
+    /**
+     * Oracle（12c 及以下）不支持多行 VALUES，批量插入按单行执行
+     */
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return false;
+    }
+
     public boolean isOracle() {
         return true;
     }
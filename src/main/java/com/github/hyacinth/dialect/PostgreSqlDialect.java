@@ -2,9 +2,18 @@ package com.github.hyacinth.dialect;
 
 import com.github.hyacinth.Table;
 
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * PostgreSql方言
@@ -16,6 +25,9 @@ import java.util.Set;
  */
 public class PostgreSqlDialect extends Dialect {
 
+    //执行计划中的估算行数，如 "Seq Scan on t  (cost=0.00..35.50 rows=2550 width=4)"
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+
     public String forTableBuilderDoBuild(String tableName) {
         return "select * from \"" + tableName + "\" where 1 = 2";
     }
@@ -217,9 +229,121 @@ public class PostgreSqlDialect extends Dialect {
     }
 
     public String forPaginate(int pageNumber, int pageSize, String sql) {
-        int offset = pageSize * (pageNumber - 1);
+        return forPaginateOffset(pageSize * (pageNumber - 1), pageSize, sql);
+    }
+
+    @Override
+    public boolean supportsWindowTotal(Connection conn) {
+        return true;
+    }
+
+    @Override
+    public boolean supportsPaginateOffset() {
+        return true;
+    }
+
+    @Override
+    public String forPaginateOffset(int offset, int limit, String sql) {
         StringBuilder ret = new StringBuilder(sql);
-        ret.append(" limit ").append(pageSize).append(" offset ").append(offset);
+        ret.append(" limit ").append(limit).append(" offset ").append(offset);
         return ret.toString();
     }
+
+    @Override
+    public String forPaginateOffset(int offset, int limit, String sql, List<Object> paras) {
+        paras.add(limit);
+        paras.add(offset);
+        return sql + " limit ? offset ?";
+    }
+
+    /**
+     * 使用 COPY ... FROM STDIN 导入，通过 PgJDBC 的 CopyManager 从流中读取数据，行在驱动读取时才从迭代器中编码；
+     * 驱动不是 PgJDBC 时按批量插入执行
+     */
+    @Override
+    public long bulkLoad(Connection conn, String tableName, String[] columns, Iterator<Object[]> rows) throws SQLException {
+        Class<?> type = loadDriverClass("org.postgresql.PGConnection");
+        if (type == null || !conn.isWrapperFor(type)) {
+            return super.bulkLoad(conn, tableName, columns, rows);
+        }
+        Object copyManager;
+        Method copyIn;
+        try {
+            copyManager = invokeDriverMethod(type.getMethod("getCopyAPI"), conn.unwrap(type));
+            copyIn = copyManager.getClass().getMethod("copyIn", String.class, InputStream.class);
+        } catch (NoSuchMethodException e) {
+            return super.bulkLoad(conn, tableName, columns, rows);
+        }
+        StringBuilder sql = new StringBuilder("copy ").append(tableName).append(" (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(columns[i].trim());
+        }
+        sql.append(") from stdin");
+        Object count = invokeDriverMethod(copyIn, copyManager, sql.toString(), new TextRowStream(rows, columns.length, true));
+        return ((Number) count).longValue();
+    }
+
+    /**
+     * 驱动以 returning 返回主键，批量执行与多行插入均按插入顺序返回每一行的主键
+     */
+    @Override
+    public boolean supportsBatchGeneratedKeys() {
+        return true;
+    }
+
+    /**
+     * JDBC 驱动以两字节有符号数传递参数个数，上限为 32767
+     */
+    @Override
+    public int getMaxBindParameters() {
+        return 32767;
+    }
+
+    /**
+     * 通过 EXPLAIN 估算行数：取执行计划根节点的 rows（规划器基于 pg_class.reltuples 与统计信息计算）
+     */
+    @Override
+    public long estimateRowCount(Connection conn, String sql, Object... paras) throws SQLException {
+        PreparedStatement pst = conn.prepareStatement("explain " + sql);
+        ResultSet rs = null;
+        try {
+            fillStatement(pst, paras);
+            rs = pst.executeQuery();
+            if (!rs.next()) {
+                return -1;
+            }
+            Matcher matcher = PLAN_ROWS.matcher(rs.getString(1));
+            return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            pst.close();
+        }
+    }
+
+    /**
+     * 使用行值比较，可直接利用排序列上的联合索引
+     */
+    @Override
+    protected void forKeysetPredicate(String[] columns, String operator, Object[] lastKey, StringBuilder sql, List<Object> paras) {
+        forRowValuePredicate(columns, operator, lastKey, sql, paras);
+    }
+
+    /**
+     * PostgreSql驱动只有在非自动提交模式下才会使用服务端游标按 fetchSize 分批读取，
+     * 连接的autoCommit状态由调用方（Cursor）在关闭时恢复
+     */
+    @Override
+    public PreparedStatement prepareStreamingStatement(Connection conn, String sql, int fetchSize) throws SQLException {
+        if (conn.getAutoCommit()) {
+            conn.setAutoCommit(false);
+        }
+        PreparedStatement pst = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        pst.setFetchSize(fetchSize);
+        return pst;
+    }
 }
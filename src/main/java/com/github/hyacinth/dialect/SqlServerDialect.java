@@ -2,8 +2,11 @@ package com.github.hyacinth.dialect;
 
 import com.github.hyacinth.Table;
 
+import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * SqlServer方言
@@ -15,22 +18,37 @@ import java.util.Map;
  */
 public class SqlServerDialect extends Dialect {
 
+    private static final Pattern VALUES = Pattern.compile("(?i)\\s+values\\s*\\(");
+
     public String forTableBuilderDoBuild(String tableName) {
         return "select * from " + tableName + " where 1 = 2";
     }
 
-    /**
-     * sql.replaceFirst("(?i)select", "") 正则中带有 "(?i)" 前缀，指定在匹配时不区分大小写
-     */
     public String forPaginate(int pageNumber, int pageSize, String sql) {
-        int end = pageNumber * pageSize;
-        if (end <= 0) {
-            end = pageSize;
-        }
         int begin = (pageNumber - 1) * pageSize;
         if (begin < 0) {
             begin = 0;
         }
+        return forPaginateOffset(begin, pageSize, sql);
+    }
+
+    @Override
+    public boolean supportsWindowTotal(Connection conn) {
+        return true;
+    }
+
+    @Override
+    public boolean supportsPaginateOffset() {
+        return true;
+    }
+
+    /**
+     * sql.replaceFirst("(?i)select", "") 正则中带有 "(?i)" 前缀，指定在匹配时不区分大小写
+     */
+    @Override
+    public String forPaginateOffset(int offset, int limit, String sql) {
+        int begin = offset;
+        int end = offset + limit;
         StringBuilder ret = new StringBuilder();
         ret.append("SELECT * FROM ( SELECT row_number() over (order by tempcolumn) temprownumber, * FROM ");
         ret.append(" ( SELECT TOP ").append(end).append(" tempcolumn=0,");
@@ -39,6 +57,59 @@ public class SqlServerDialect extends Dialect {
         return ret.toString();
     }
 
+    /**
+     * TOP 的参数位于原查询参数之前，插入到参数列表头部
+     */
+    @Override
+    public String forPaginateOffset(int offset, int limit, String sql, List<Object> paras) {
+        paras.add(0, offset + limit);
+        paras.add(offset);
+        StringBuilder ret = new StringBuilder();
+        ret.append("SELECT * FROM ( SELECT row_number() over (order by tempcolumn) temprownumber, * FROM ");
+        ret.append(" ( SELECT TOP (?) tempcolumn=0,");
+        ret.append(sql.replaceFirst("(?i)select", ""));
+        ret.append(")vip)mvp where temprownumber>?");
+        return ret.toString();
+    }
+
+    /**
+     * 单条语句最多 2100 个参数，驱动会占用少量参数，保留余量
+     */
+    @Override
+    public int getMaxBindParameters() {
+        return 2000;
+    }
+
+    /**
+     * 表值构造器（多行 VALUES）最多 1000 行
+     */
+    @Override
+    public int getMaxInsertRows() {
+        return 1000;
+    }
+
+    /**
+     * 驱动不支持批量执行后返回自增主键，使用 output inserted.主键 以查询结果返回。
+     * 多行插入时 output 的行顺序不保证与 values 的顺序一致，因此该语句只按单行执行。
+     * 表上有触发器时 SQL Server 不允许不带 into 的 output 子句
+     */
+    @Override
+    public String forInsertReturningKeys(String sql, String[] keys) {
+        Matcher matcher = VALUES.matcher(sql);
+        if (!matcher.find()) {
+            return null;
+        }
+        StringBuilder ret = new StringBuilder(sql.length() + 32);
+        ret.append(sql, 0, matcher.start()).append(" output ");
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                ret.append(", ");
+            }
+            ret.append("inserted.").append(keys[i].trim());
+        }
+        return ret.append(sql.substring(matcher.start())).toString();
+    }
+
     @Override
     public void forModelSaveOrUpdate(Table table, Map<String, Object> attrs, StringBuilder sql, List<Object> paras) {
 
@@ -19,12 +19,52 @@ public class Sqlite3Dialect extends Dialect {
     }
 
     public String forPaginate(int pageNumber, int pageSize, String sql) {
-        int offset = pageSize * (pageNumber - 1);
+        return forPaginateOffset(pageSize * (pageNumber - 1), pageSize, sql);
+    }
+
+    @Override
+    public boolean supportsPaginateOffset() {
+        return true;
+    }
+
+    @Override
+    public String forPaginateOffset(int offset, int limit, String sql) {
         StringBuilder ret = new StringBuilder(sql);
-        ret.append(" limit ").append(offset).append(", ").append(pageSize);
+        ret.append(" limit ").append(offset).append(", ").append(limit);
         return ret.toString();
     }
 
+    @Override
+    public String forPaginateOffset(int offset, int limit, String sql, List<Object> paras) {
+        paras.add(offset);
+        paras.add(limit);
+        return sql + " limit ?, ?";
+    }
+
+    /**
+     * 使用行值比较，可直接利用排序列上的联合索引
+     */
+    @Override
+    protected void forKeysetPredicate(String[] columns, String operator, Object[] lastKey, StringBuilder sql, List<Object> paras) {
+        forRowValuePredicate(columns, operator, lastKey, sql, paras);
+    }
+
+    /**
+     * SQLITE_MAX_VARIABLE_NUMBER 在 3.32.0 之前默认为 999
+     */
+    @Override
+    public int getMaxBindParameters() {
+        return 999;
+    }
+
+    /**
+     * 3.8.8 之前多行 VALUES 受 SQLITE_MAX_COMPOUND_SELECT（默认 500）限制
+     */
+    @Override
+    public int getMaxInsertRows() {
+        return 500;
+    }
+
     @Override
     public void forModelSaveOrUpdate(Table table, Map<String, Object> attrs, StringBuilder sql, List<Object> paras) {
 
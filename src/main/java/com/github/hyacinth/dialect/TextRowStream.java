@@ -0,0 +1,217 @@
+package com.github.hyacinth.dialect;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * 将行迭代器按需编码为文本格式的输入流，供 MySQL LOAD DATA 与 PostgreSql COPY 读取
+ * <p>
+ * 格式：列以 tab 分隔，行以换行结束，null 写作 \N，反斜杠、tab、换行、回车以反斜杠转义（两者的默认文本格式相同）。
+ * 每次只编码一行，不缓存整个数据集
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/14
+ * Time: 14:10
+ */
+final class TextRowStream extends InputStream {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Iterator<Object[]> rows;
+    private final int columnCount;
+    //二进制是否以 \x 十六进制写出（PostgreSql bytea），否则直接写出转义后的字节（MySQL）
+    private final boolean hexBinary;
+
+    private final RowBuffer row = new RowBuffer();
+    private final StringBuilder text = new StringBuilder();
+    private int position;
+    private long rowCount;
+
+    TextRowStream(Iterator<Object[]> rows, int columnCount, boolean hexBinary) {
+        this.rows = rows;
+        this.columnCount = columnCount;
+        this.hexBinary = hexBinary;
+    }
+
+    /**
+     * 已编码的行数
+     */
+    long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int read() {
+        if (position >= row.size() && !fill()) {
+            return -1;
+        }
+        return row.bytes()[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int total = 0;
+        while (total < len) {
+            if (position >= row.size() && !fill()) {
+                break;
+            }
+            int n = Math.min(len - total, row.size() - position);
+            System.arraycopy(row.bytes(), position, b, off + total, n);
+            position += n;
+            total += n;
+        }
+        return total == 0 ? -1 : total;
+    }
+
+    private boolean fill() {
+        if (!rows.hasNext()) {
+            return false;
+        }
+        Object[] values = rows.next();
+        if (values == null || values.length != columnCount)
+            throw new IllegalArgumentException("Each row must have " + columnCount + " values");
+        row.reset();
+        position = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                row.write('\t');
+            }
+            encode(values[i]);
+        }
+        row.write('\n');
+        rowCount++;
+        return true;
+    }
+
+    private void encode(Object value) {
+        if (value == null) {
+            row.write('\\');
+            row.write('N');
+            return;
+        }
+        if (value instanceof byte[]) {
+            encodeBinary((byte[]) value);
+            return;
+        }
+        String str;
+        if (value instanceof Boolean) {
+            str = (Boolean) value ? "1" : "0";
+        } else if (value instanceof BigDecimal) {
+            str = ((BigDecimal) value).toPlainString();
+        } else if (value instanceof java.util.Date && !(value instanceof java.sql.Date)
+                && !(value instanceof java.sql.Time) && !(value instanceof Timestamp)) {
+            str = new Timestamp(((java.util.Date) value).getTime()).toString();
+        } else {
+            str = value.toString();
+        }
+        text.setLength(0);
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '\\':
+                    text.append("\\\\");
+                    break;
+                case '\t':
+                    text.append("\\t");
+                    break;
+                case '\n':
+                    text.append("\\n");
+                    break;
+                case '\r':
+                    text.append("\\r");
+                    break;
+                default:
+                    text.append(c);
+            }
+        }
+        byte[] bytes = text.toString().getBytes(UTF_8);
+        row.write(bytes, 0, bytes.length);
+    }
+
+    private void encodeBinary(byte[] data) {
+        if (hexBinary) {
+            //COPY 文本格式中反斜杠需转义，bytea 的 \x 前缀写作 \\x
+            row.write('\\');
+            row.write('\\');
+            row.write('x');
+            for (byte b : data) {
+                row.write(HEX[(b >> 4) & 0xf]);
+                row.write(HEX[b & 0xf]);
+            }
+            return;
+        }
+        for (byte b : data) {
+            switch (b) {
+                case '\\':
+                    row.write('\\');
+                    row.write('\\');
+                    break;
+                case '\t':
+                    row.write('\\');
+                    row.write('t');
+                    break;
+                case '\n':
+                    row.write('\\');
+                    row.write('n');
+                    break;
+                case '\r':
+                    row.write('\\');
+                    row.write('r');
+                    break;
+                case 0:
+                    row.write('\\');
+                    row.write('0');
+                    break;
+                default:
+                    row.write(b);
+            }
+        }
+    }
+
+    /**
+     * 可复用的行缓冲（不使用 ByteArrayOutputStream，避免逐字节写入时的同步开销）
+     */
+    private static final class RowBuffer {
+        private byte[] buf = new byte[256];
+        private int count;
+
+        void reset() {
+            count = 0;
+        }
+
+        int size() {
+            return count;
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+
+        void write(int b) {
+            ensure(1);
+            buf[count++] = (byte) b;
+        }
+
+        void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        private void ensure(int n) {
+            if (count + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + n));
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.github.hyacinth.sql;
 
 import com.github.hyacinth.HyacinthException;
+import com.github.hyacinth.cache.Cache;
+import com.github.hyacinth.cache.LruCache;
 import com.github.hyacinth.tools.StringTools;
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.expression.Expression;
@@ -11,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -25,6 +28,78 @@ public class BuildKit {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BuildKit.class);
 
+    private static final Pattern DISTINCT = Pattern.compile("select\\s+distinct\\s");
+    private static final Pattern VALUES = Pattern.compile("\\bvalues\\s*\\(");
+    private static final Pattern TRAILING_LIMIT = Pattern.compile("(?i)\\slimit\\s+(\\d+)\\s*;?\\s*$");
+
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    //动态Sql的解析结果缓存 sql -> shape，有容量上限；静态Sql的解析结果在 SqlCache.shapes 中
+    private static volatile Cache<String, SqlShape> shapeCache = new LruCache<String, SqlShape>("sql-shape", DEFAULT_CACHE_SIZE);
+
+    /**
+     * 设置动态Sql解析结果缓存的容量，0 表示不缓存
+     *
+     * @param size 最多缓存的Sql条数
+     */
+    public static void setCacheSize(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("cache size can not be negative");
+        shapeCache = size == 0 ? null : new LruCache<String, SqlShape>("sql-shape", size);
+    }
+
+    /**
+     * 清空动态Sql解析结果缓存
+     */
+    public static void clearCache() {
+        Cache<String, SqlShape> cache = shapeCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * 获取Sql的解析结果，先查静态Sql，再查动态Sql缓存
+     */
+    private static SqlShape shapeOf(String sql) {
+        SqlShape shape = SqlCache.shapes.get(sql);
+        if (shape != null) {
+            return shape;
+        }
+        Cache<String, SqlShape> cache = shapeCache;
+        if (cache == null) {
+            return new SqlShape(sql);
+        }
+        shape = cache.get(sql);
+        if (shape == null) {
+            shape = new SqlShape(sql);
+            cache.put(sql, shape);
+        }
+        return shape;
+    }
+
+    /**
+     * 预先解析静态Sql（SqlCache.fixed），生成总条数Sql；非查询语句不处理
+     *
+     * @param sql    新的静态Sql
+     * @param oldSql 被替换的静态Sql（热加载时），没有时为null
+     */
+    public static void precompute(String sql, String oldSql) {
+        if (oldSql != null && !oldSql.equals(sql)) {
+            SqlCache.shapes.invalidate(oldSql);
+        }
+        if (!sql.regionMatches(true, 0, "select ", 0, 7)) {
+            return;
+        }
+        SqlShape shape = new SqlShape(sql);
+        try {
+            shape.getTotalSql();
+        } catch (RuntimeException e) {
+            LOGGER.debug("Total SQL can not be precomputed: {}", sql);
+        }
+        SqlCache.shapes.put(sql, shape);
+    }
+
     /**
      * 生成查询总条数的sql 并去掉order by
      * <p>
@@ -37,6 +112,10 @@ public class BuildKit {
      * @return count fixed
      */
     public static String buildTotalSql(String sql) {
+        return shapeOf(sql).getTotalSql();
+    }
+
+    static String doBuildTotalSql(String sql) {
         sql = sql.trim();
         StringBuilder sqlBuilder = new StringBuilder(sql);
 
@@ -46,6 +125,49 @@ public class BuildKit {
         }
 
         String lowerCaseSql = sql.toLowerCase();
+        int fromIndex = indexOfFrom(sql, lowerCaseSql);
+
+        int orderIndex = lowerCaseSql.lastIndexOf("order by ");
+        if (orderIndex > lowerCaseSql.lastIndexOf(")")) {
+            sqlBuilder.delete(orderIndex, lowerCaseSql.length());
+        }
+        sqlBuilder = sqlBuilder.replace(6, fromIndex, " COUNT(*) AS total ");
+
+        return sqlBuilder.toString();
+    }
+
+    /**
+     * 在查询列末尾追加窗口函数总数列，一次查询同时得到分页数据与总条数
+     * <p>
+     * Example:
+     * select a, b from table1 order by a
+     * <p>
+     * return: select a, b, COUNT(*) OVER() AS total_ from table1 order by a
+     * <p>
+     * UNION 查询与 select distinct 返回 null（窗口函数在去重之前计算，总数不正确），由调用方改用 count 查询
+     *
+     * @param sql   原查询sql
+     * @param label 总数列的别名
+     * @return 带总数列的sql
+     */
+    public static String buildWindowTotalSql(String sql, String label) {
+        return shapeOf(sql).getWindowSql(label);
+    }
+
+    static String doBuildWindowTotalSql(String sql, String label) {
+        sql = sql.trim();
+        String lowerCaseSql = sql.toLowerCase();
+        if (sql.startsWith("(") || lowerCaseSql.contains(" union ") || DISTINCT.matcher(lowerCaseSql).lookingAt()) {
+            return null;
+        }
+        int fromIndex = indexOfFrom(sql, lowerCaseSql);
+        return new StringBuilder(sql).insert(fromIndex, ", COUNT(*) OVER() AS " + label + " ").toString();
+    }
+
+    /**
+     * 查找最外层查询的 from 位置（跳过查询列中子查询的 from）
+     */
+    private static int indexOfFrom(String sql, String lowerCaseSql) {
         int selectIndex = 6, fromIndex = 4;
         while (true) {
             fromIndex = lowerCaseSql.indexOf("from", fromIndex);
@@ -76,14 +198,92 @@ public class BuildKit {
             fromIndex = fromIndex + 3;
             selectIndex = selectIndex + 5;
         }
+        return fromIndex;
+    }
 
-        int orderIndex = lowerCaseSql.lastIndexOf("order by ");
-        if (orderIndex > lowerCaseSql.lastIndexOf(")")) {
-            sqlBuilder.delete(orderIndex, lowerCaseSql.length());
+    /**
+     * 将单行插入Sql改写为多行 VALUES 插入Sql
+     * <p>
+     * insert into user(name, cash) values(?, ?)
+     * <p>
+     * return: insert into user(name, cash) values(?, ?), (?, ?), (?, ?)
+     * <p>
+     * values 之后的部分（如 on duplicate key update、on conflict）保留在末尾；
+     * 不是 insert ... values(...) 形式的Sql，或 values 括号之外还有参数占位符（如 on duplicate key update qty = ?）时返回 null，
+     * 此时每行的参数不连续，不能按行依次绑定
+     *
+     * @param sql  单行插入sql
+     * @param rows 行数
+     * @return 多行插入sql
+     */
+    public static String buildMultiRowInsertSql(String sql, int rows) {
+        if (rows < 1)
+            throw new IllegalArgumentException("rows must more than 0");
+        sql = sql.trim();
+        String lowerCaseSql = sql.toLowerCase();
+        if (!lowerCaseSql.startsWith("insert")) {
+            return null;
         }
-        sqlBuilder = sqlBuilder.replace(6, fromIndex, " COUNT(*) AS total ");
+        Matcher matcher = VALUES.matcher(lowerCaseSql);
+        if (!matcher.find()) {
+            return null;
+        }
+        int begin = matcher.end() - 1;
+        int end = indexOfClosing(sql, begin);
+        if (end == -1) {
+            return null;
+        }
+        String group = sql.substring(begin, end + 1);
+        if (countParameters(group) != countParameters(sql)) {
+            return null;
+        }
+        StringBuilder ret = new StringBuilder(sql.length() + (group.length() + 2) * (rows - 1));
+        ret.append(sql, 0, end + 1);
+        for (int i = 1; i < rows; i++) {
+            ret.append(", ").append(group);
+        }
+        return ret.append(sql, end + 1, sql.length()).toString();
+    }
 
-        return sqlBuilder.toString();
+    /**
+     * 统计Sql中的参数占位符 ? 的个数，跳过字符串常量中的 ?
+     *
+     * @param sql sql
+     * @return 占位符个数
+     */
+    public static int countParameters(String sql) {
+        int count = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 查找与 begin 位置左括号匹配的右括号，跳过字符串常量中的括号
+     */
+    private static int indexOfClosing(String sql, int begin) {
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = begin; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted) {
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')' && --depth == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
     }
 
     public static void main(String[] args) {
@@ -108,7 +308,16 @@ public class BuildKit {
 //        System.out.println(end - start);
     }
 
+    /**
+     * 使用 JSqlParser 生成查询总条数的sql
+     *
+     * @see #buildTotalSql(String)
+     */
     public static String buildTotalSql2(String sql) {
+        return shapeOf(sql).getParsedTotalSql();
+    }
+
+    static String doBuildTotalSql2(String sql) {
         Select select = parserSqlforSelect(sql);
         if (select == null) {
             throw new HyacinthException("Total SQL generated failure");
@@ -159,10 +368,72 @@ public class BuildKit {
         return (Select) statement;
     }
 
+    /**
+     * 获取最外层查询的排序子句（不含 order by 关键字）
+     * <p>
+     * Example:
+     * select a, b from table1 t1 order by t1.a desc, b limit 10
+     * <p>
+     * return: t1.a DESC, b
+     *
+     * @param sql 原查询sql
+     * @return 排序子句；没有 order by 时返回空串，无法解析时返回 null
+     */
+    public static String getOrderBy(String sql) {
+        return shapeOf(sql).getOrderBy();
+    }
+
+    static String doGetOrderBy(String sql) {
+        Select select = parserSqlforSelect(sql);
+        if (select == null) {
+            //解析失败：末尾没有 order by 时视为无排序，否则无法确定排序列
+            String lowerCaseSql = sql.toLowerCase();
+            int orderIndex = lowerCaseSql.lastIndexOf("order by ");
+            return orderIndex > lowerCaseSql.lastIndexOf(")") ? null : "";
+        }
+        SelectBody body = select.getSelectBody();
+        List<OrderByElement> elements = null;
+        if (body instanceof PlainSelect) {
+            elements = ((PlainSelect) body).getOrderByElements();
+        } else if (body instanceof SetOperationList) {
+            elements = ((SetOperationList) body).getOrderByElements();
+        }
+        if (elements == null || elements.isEmpty()) {
+            return "";
+        }
+        StringBuilder orderBy = new StringBuilder();
+        for (OrderByElement element : elements) {
+            if (orderBy.length() > 0) {
+                orderBy.append(", ");
+            }
+            orderBy.append(element);
+        }
+        return orderBy.toString();
+    }
+
+    /**
+     * 获取Sql末尾以常量指定的 limit 行数（limit n），没有或使用参数时返回 0
+     */
+    public static int getTrailingLimit(String sql) {
+        Matcher matcher = TRAILING_LIMIT.matcher(sql);
+        if (!matcher.find()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(matcher.group(1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     /**
      * @see #cutOrderBy(SelectBody)
      */
     public static String cutOrderBy(String sql) {
+        return shapeOf(sql).getOrderlessSql();
+    }
+
+    static String doCutOrderBy(String sql) {
         Select select = parserSqlforSelect(sql);
         //解析失败，返回原sql
         if (select == null) return sql;
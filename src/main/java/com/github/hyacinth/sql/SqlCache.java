@@ -20,6 +20,9 @@ public class SqlCache {
     //静态sql缓存
     public static final Cache<String, String> fixed = new PureCache<String, String>("fixed");
 
+    //静态sql的解析结果 sql -> shape，构建静态sql时预先生成，不受动态sql缓存容量限制
+    static final Cache<String, SqlShape> shapes = new PureCache<String, SqlShape>("shapes");
+
     //编译后模板缓存
     static final Cache<String, JetTemplate> jetbrickTemplate = new PureCache<String, JetTemplate>("jetbrick-template");
 
@@ -0,0 +1,78 @@
+package com.github.hyacinth.sql;
+
+/**
+ * 查询Sql的解析结果：总条数Sql、去除排序后的Sql、窗口函数总数Sql、排序子句
+ * <p>
+ * 每条不同的Sql只解析一次，各项结果在首次使用时计算并保存（计算是幂等的，并发时可能重复计算但结果一致）
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/13
+ * Time: 10:20
+ *
+ * @see BuildKit
+ */
+final class SqlShape {
+
+    private final String sql;
+    //扫描方式生成的总条数Sql
+    private volatile String totalSql;
+    //JSqlParser 生成的总条数Sql
+    private volatile String parsedTotalSql;
+    //去除末尾 order by 后的Sql
+    private volatile String orderlessSql;
+    //窗口函数总数Sql：{总数列别名, Sql}，不适用时Sql为空串
+    private volatile String[] windowSql;
+    //最外层排序子句，没有排序时为空串；无法解析时为null，以 orderByResolved 区分是否已解析
+    private volatile String orderBy;
+    private volatile boolean orderByResolved;
+
+    SqlShape(String sql) {
+        this.sql = sql;
+    }
+
+    String getTotalSql() {
+        String result = totalSql;
+        if (result == null) {
+            result = BuildKit.doBuildTotalSql(sql);
+            totalSql = result;
+        }
+        return result;
+    }
+
+    String getParsedTotalSql() {
+        String result = parsedTotalSql;
+        if (result == null) {
+            result = BuildKit.doBuildTotalSql2(sql);
+            parsedTotalSql = result;
+        }
+        return result;
+    }
+
+    String getOrderlessSql() {
+        String result = orderlessSql;
+        if (result == null) {
+            result = BuildKit.doCutOrderBy(sql);
+            orderlessSql = result;
+        }
+        return result;
+    }
+
+    String getOrderBy() {
+        if (!orderByResolved) {
+            orderBy = BuildKit.doGetOrderBy(sql);
+            orderByResolved = true;
+        }
+        return orderBy;
+    }
+
+    String getWindowSql(String label) {
+        String[] result = windowSql;
+        if (result == null || !label.equals(result[0])) {
+            String window = BuildKit.doBuildWindowTotalSql(sql, label);
+            result = new String[]{label, window == null ? "" : window};
+            windowSql = result;
+        }
+        return result[1].length() == 0 ? null : result[1];
+    }
+}
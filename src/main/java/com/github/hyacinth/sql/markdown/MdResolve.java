@@ -1,6 +1,7 @@
 package com.github.hyacinth.sql.markdown;
 
 import com.github.hyacinth.HyacinthException;
+import com.github.hyacinth.sql.BuildKit;
 import com.github.hyacinth.sql.RawSqls;
 import com.github.hyacinth.sql.SqlCache;
 import com.github.hyacinth.sql.TemplateCompiler;
@@ -146,7 +147,11 @@ public class MdResolve {
 
             //处理静态sql
             if (key.startsWith("*")) {
-                SqlCache.fixed.put(key.replace("*", ""), sql);
+                String fixedKey = key.replace("*", "");
+                String oldSql = SqlCache.fixed.get(fixedKey);
+                SqlCache.fixed.put(fixedKey, sql);
+                //预先生成总条数Sql，分页时直接使用
+                BuildKit.precompute(sql, oldSql);
             } else {
                 //动态sql交给模板引擎
                 templateCompiler.compile(key, sql);
@@ -0,0 +1,91 @@
+package com.github.hyacinth.dialect;
+
+import com.github.hyacinth.sql.BuildKit;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 各方言参数化分页Sql：Sql文本与分页参数在参数列表中的位置
+ * <p>
+ * 原查询带一个参数 status，分页为 offset 20、limit 10
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/22
+ * Time: 17:00
+ */
+public class DialectPaginateTest {
+
+    private static final String SQL = "select id, name from article where status = ?";
+    private static final String STATUS = "on";
+
+    @Test
+    public void mysqlAppendsOffsetThenLimit() {
+        List<Object> paras = paras();
+        String sql = paginate(new MysqlDialect(), paras);
+        assertEquals(SQL + " limit ?, ?", sql);
+        assertEquals(Arrays.<Object>asList(STATUS, 20, 10), paras);
+    }
+
+    @Test
+    public void postgreSqlAppendsLimitThenOffset() {
+        List<Object> paras = paras();
+        String sql = paginate(new PostgreSqlDialect(), paras);
+        assertEquals(SQL + " limit ? offset ?", sql);
+        assertEquals(Arrays.<Object>asList(STATUS, 10, 20), paras);
+    }
+
+    @Test
+    public void sqliteAppendsOffsetThenLimit() {
+        List<Object> paras = paras();
+        String sql = paginate(new Sqlite3Dialect(), paras);
+        assertEquals(SQL + " limit ?, ?", sql);
+        assertEquals(Arrays.<Object>asList(STATUS, 20, 10), paras);
+    }
+
+    @Test
+    public void oracleAppendsUpperThenLowerRownum() {
+        List<Object> paras = paras();
+        String sql = paginate(new OracleDialect(), paras);
+        assertEquals("select * from ( select row_.*, rownum rownum_ from (  " + SQL
+                + " ) row_ where rownum <= ?) table_alias where table_alias.rownum_ > ?", sql);
+        assertEquals(Arrays.<Object>asList(STATUS, 30, 20), paras);
+    }
+
+    @Test
+    public void sqlServerPutsTopBeforeQueryParameters() {
+        List<Object> paras = paras();
+        String sql = paginate(new SqlServerDialect(), paras);
+        assertEquals("SELECT * FROM ( SELECT row_number() over (order by tempcolumn) temprownumber, * FROM "
+                + " ( SELECT TOP (?) tempcolumn=0, id, name from article where status = ?)vip)mvp where temprownumber>?", sql);
+        // TOP (?) 位于原查询的占位符之前
+        assertEquals(Arrays.<Object>asList(30, STATUS, 20), paras);
+    }
+
+    @Test
+    public void forPaginateUsesPageOffset() {
+        List<Object> paras = paras();
+        new PostgreSqlDialect().forPaginate(3, 10, SQL, paras);
+        assertEquals(Arrays.<Object>asList(STATUS, 10, 20), paras);
+    }
+
+    /**
+     * 生成分页Sql，并检查占位符个数与参数个数一致
+     */
+    private static String paginate(Dialect dialect, List<Object> paras) {
+        String sql = dialect.forPaginateOffset(20, 10, SQL, paras);
+        assertEquals(paras.size(), BuildKit.countParameters(sql));
+        return sql;
+    }
+
+    private static List<Object> paras() {
+        List<Object> paras = new ArrayList<Object>();
+        paras.add(STATUS);
+        return paras;
+    }
+}
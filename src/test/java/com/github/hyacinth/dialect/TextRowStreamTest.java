@@ -0,0 +1,105 @@
+package com.github.hyacinth.dialect;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * LOAD DATA / COPY 文本格式的编码：null、转义、二进制以及分块读取
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/22
+ * Time: 16:00
+ */
+public class TextRowStreamTest {
+
+    @Test
+    public void nullIsWrittenAsBackslashN() throws IOException {
+        assertEquals("1\t\\N\t\n", text(false, row(1, null, "")));
+    }
+
+    @Test
+    public void specialCharactersAreEscaped() throws IOException {
+        assertEquals("a\\tb\tc\\nd\\re\tf\\\\g\n", text(false, row("a\tb", "c\nd\re", "f\\g")));
+    }
+
+    @Test
+    public void postgreSqlBinaryIsHex() throws IOException {
+        byte[] data = {0, '\\', '\t', (byte) 0xff};
+        assertEquals("\\\\x005c09ff\n", text(true, row((Object) data)));
+    }
+
+    @Test
+    public void mysqlBinaryIsEscapedBytes() throws IOException {
+        byte[] data = {0, '\\', '\t', '\n', '\r', 'a', (byte) 0xff};
+        byte[] expected = {'\\', '0', '\\', '\\', '\\', 't', '\\', 'n', '\\', 'r', 'a', (byte) 0xff, '\n'};
+        assertArrayEquals(expected, bytes(new TextRowStream(rows(row((Object) data)), 1, false), 64));
+    }
+
+    @Test
+    public void multiByteCharactersSurviveChunkBoundaries() throws IOException {
+        String value = "中文\t€𝄞";
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < 50; i++) {
+            rows.add(row(i, value));
+        }
+        byte[] whole = bytes(new TextRowStream(rows.iterator(), 2, false), 4096);
+        // 每次读取的长度不整除字符的字节数，多字节字符跨越读取边界
+        for (int chunk = 1; chunk <= 7; chunk++) {
+            byte[] chunked = bytes(new TextRowStream(rows.iterator(), 2, false), chunk);
+            assertArrayEquals(whole, chunked);
+        }
+        assertTrue(new String(whole, "UTF-8").startsWith("0\t中文\\t€𝄞\n1\t"));
+    }
+
+    @Test
+    public void singleByteReadMatchesBulkRead() throws IOException {
+        TextRowStream stream = new TextRowStream(rows(row("é", 1), row(null, 2)), 2, false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = stream.read()) != -1) {
+            out.write(b);
+        }
+        assertEquals("é\t1\n\\N\t2\n", new String(out.toByteArray(), "UTF-8"));
+        assertEquals(2, stream.getRowCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongColumnCountIsRejected() {
+        bytes(new TextRowStream(rows(row(1, 2, 3)), 2, false), 16);
+    }
+
+    private static Object[] row(Object... values) {
+        return values;
+    }
+
+    private static Iterator<Object[]> rows(Object[]... rows) {
+        return Arrays.asList(rows).iterator();
+    }
+
+    private static String text(boolean hexBinary, Object[] row) throws IOException {
+        return new String(bytes(new TextRowStream(rows(row), row.length, hexBinary), 16), "UTF-8");
+    }
+
+    /**
+     * 以 read(byte[], off, len) 每次最多读取 chunk 字节，写入偏移不为 0 的缓冲区
+     */
+    private static byte[] bytes(TextRowStream stream, int chunk) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[chunk + 3];
+        int n;
+        while ((n = stream.read(buf, 3, chunk)) != -1) {
+            assertTrue(n > 0 && n <= chunk);
+            out.write(buf, 3, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,375 @@
+package test.hyacinth;
+
+import com.github.hyacinth.BatchCallback;
+import com.github.hyacinth.BatchException;
+import com.github.hyacinth.BatchInsertMode;
+import com.github.hyacinth.BatchResult;
+import com.github.hyacinth.Config;
+import com.github.hyacinth.DbKit;
+import com.github.hyacinth.DbPro;
+import com.github.hyacinth.HyacinthException;
+import com.github.hyacinth.Model;
+import com.github.hyacinth.TableBuilder;
+import com.github.hyacinth.sql.BuildKit;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import test.hyacinth.model.Item;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * 批量插入：多行插入的拆分、迭代器流式批量、并行批量以及回写数据库生成的主键
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/20
+ * Time: 14:00
+ */
+public class BatchTest {
+
+    private static final String CONFIG_NAME = "batch";
+    //同一个数据库，getGeneratedKeys 只返回最后一行主键
+    private static final String LAST_KEY_CONFIG_NAME = "batch_last_key";
+
+    private static DataSource dataSource;
+    private static Config config;
+    private static H2Support.H2Dialect dialect;
+    private static Config lastKeyConfig;
+
+    @BeforeClass
+    public static void setUp() {
+        dataSource = H2Support.dataSource(CONFIG_NAME);
+        H2Support.execute(dataSource, "create table item(id bigint auto_increment primary key, name varchar(20), qty int)");
+        config = H2Support.addConfig(CONFIG_NAME, dataSource);
+        dialect = (H2Support.H2Dialect) config.getDialect();
+        List<Class<? extends Model<?>>> models = new ArrayList<Class<? extends Model<?>>>();
+        models.add(Item.class);
+        new TableBuilder().build(models, config);
+        lastKeyConfig = H2Support.addConfig(LAST_KEY_CONFIG_NAME, H2Support.lastKeyOnly(dataSource));
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        DbKit.removeConfig(CONFIG_NAME);
+        DbKit.removeConfig(LAST_KEY_CONFIG_NAME);
+        H2Support.execute(dataSource, "drop table item");
+    }
+
+    @Before
+    public void reset() {
+        H2Support.execute(dataSource, "truncate table item restart identity");
+        config.setBatchInsertMode(BatchInsertMode.BATCH);
+        config.setBatchGeneratedKeys(false);
+        dialect.setMaxInsertRows(Integer.MAX_VALUE);
+        dialect.setMaxBindParameters(32767);
+        dialect.getMultiRowInserts().clear();
+    }
+
+    @Test
+    public void multiRowSplitsByMaxInsertRows() {
+        config.setBatchInsertMode(BatchInsertMode.MULTI_ROW);
+        dialect.setMaxInsertRows(3);
+        int[] result = DbPro.use(CONFIG_NAME).batchSave("item", records(10, "name"), 4);
+
+        // 每条语句 3 行，最后剩余的 1 行单独生成语句
+        assertEquals(Arrays.asList(3, 1), dialect.getMultiRowInserts());
+        assertArrayEquals(new int[]{1, 1, 1, 1, 1, 1, 1, 1, 1, 1}, result);
+        assertEquals(names(10), names());
+    }
+
+    @Test
+    public void multiRowSplitsByMaxBindParameters() {
+        config.setBatchInsertMode(BatchInsertMode.MULTI_ROW);
+        dialect.setMaxBindParameters(5);
+        DbPro.use(CONFIG_NAME).batchSave("item", records(10, "name", "qty"), 4);
+
+        // 每行 2 个参数，参数上限 5 时每条语句 2 行
+        assertEquals(Arrays.asList(2), dialect.getMultiRowInserts());
+        assertEquals(names(10), names());
+    }
+
+    @Test
+    public void batchModeDoesNotRewrite() {
+        int[] result = DbPro.use(CONFIG_NAME).batchSave("item", records(5, "name"), 2);
+        assertTrue(dialect.getMultiRowInserts().isEmpty());
+        assertArrayEquals(new int[]{1, 1, 1, 1, 1}, result);
+        assertEquals(names(5), names());
+    }
+
+    @Test
+    public void multiRowKeepsBatchWhenClauseHasParameters() {
+        // 尾部子句中的参数不能随 values 分组重复
+        assertNull(BuildKit.buildMultiRowInsertSql("insert into item(name, qty) values(?, ?) on duplicate key update qty = ?", 3));
+        assertNull(BuildKit.buildMultiRowInsertSql("insert into item(name, qty) values(?, 1) on conflict (name) do update set qty = ?", 3));
+        assertEquals("insert into item(name, qty) values(?, '?'), (?, '?') on conflict do nothing",
+                BuildKit.buildMultiRowInsertSql("insert into item(name, qty) values(?, '?') on conflict do nothing", 2));
+    }
+
+    @Test
+    public void multiRowKeepsBatchWhenPlaceholdersDifferFromColumns() {
+        config.setBatchInsertMode(BatchInsertMode.MULTI_ROW);
+        // values 中只有 1 个占位符而每行绑定 2 列，不改写，由驱动按单行语句报告参数错误
+        try {
+            DbPro.use(CONFIG_NAME).batch("insert into item(name, qty) values(?, 7)", "name, qty", records(4, "name", "qty"), 4);
+            fail("HyacinthException expected");
+        } catch (HyacinthException e) {
+            // 第 2 个参数不存在
+        }
+        assertTrue(dialect.getMultiRowInserts().isEmpty());
+        assertEquals(0, count());
+
+        // 与列数一致时改写为多行插入
+        DbPro.use(CONFIG_NAME).batch("insert into item(name, qty) values(?, 7)", "name", records(4, "name"), 4);
+        assertEquals(Arrays.asList(4), dialect.getMultiRowInserts());
+    }
+
+    @Test
+    public void iteratorCommitsPerChunk() {
+        final RowIterator rows = new RowIterator(10);
+        final List<String> chunks = new ArrayList<String>();
+        BatchResult result = DbPro.use(CONFIG_NAME).batch("insert into item(name, qty) values(?, ?)", rows, 4, new BatchCallback() {
+            @Override
+            public void afterChunk(long offset, int[] counts) {
+                // 迭代器只读取到当前批，且当前批已提交
+                assertEquals(offset + counts.length, rows.pulled);
+                assertEquals(offset + counts.length, count());
+                chunks.add(offset + ":" + counts.length);
+            }
+        });
+        assertEquals(Arrays.asList("0:4", "4:4", "8:2"), chunks);
+        assertEquals(10, result.getRows());
+        assertEquals(10, result.getUpdateCount());
+        assertEquals(3, result.getChunks());
+        assertEquals(names(10), names());
+    }
+
+    @Test
+    public void iteratorOfRecords() {
+        BatchResult result = DbPro.use(CONFIG_NAME).batchSave("item", records(7, "name", "qty").iterator(), 3);
+        assertEquals(7, result.getRows());
+        assertEquals(3, result.getChunks());
+        assertEquals(names(7), names());
+    }
+
+    @Test
+    public void parallelInsertsEveryRowOnce() {
+        final Set<Long> offsets = Collections.synchronizedSet(new HashSet<Long>());
+        BatchResult result = DbPro.use(CONFIG_NAME).parallelBatch("insert into item(name, qty) values(?, ?)",
+                new RowIterator(1000), 50, 4, new BatchCallback() {
+                    @Override
+                    public void afterChunk(long offset, int[] counts) {
+                        assertEquals(50, counts.length);
+                        offsets.add(offset);
+                    }
+                });
+        assertEquals(1000, result.getRows());
+        assertEquals(20, result.getChunks());
+        assertEquals(20, offsets.size());
+        assertEquals(1000, count());
+
+        // 各分区提交顺序不确定，只检查每行恰好插入一次
+        List<Integer> qty = DbPro.use(CONFIG_NAME).query("select qty from item order by qty");
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, qty.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void parallelOfRecords() {
+        BatchResult result = DbPro.use(CONFIG_NAME).parallelBatchSave("item", records(100, "name", "qty").iterator(), 10, 3);
+        assertEquals(100, result.getRows());
+        assertEquals(10, result.getChunks());
+        assertEquals(100, count());
+    }
+
+    @Test
+    public void parallelFailureReportsCommittedRows() {
+        List<Map<String, Object>> records = records(1000, "name", "qty");
+        // 超出 varchar(20)，该行所在的批次失败
+        records.get(500).put("name", "name-longer-than-twenty");
+        try {
+            DbPro.use(CONFIG_NAME).parallelBatchSave("item", records.iterator(), 50, 4);
+            fail("BatchException expected");
+        } catch (BatchException e) {
+            assertEquals(1, e.getErrors().size());
+            // 失败的批次已回滚，已提交的行数与表中一致
+            assertTrue(e.getResult().getRows() < 1000);
+            assertEquals(e.getResult().getRows(), count());
+            assertEquals(Long.valueOf(0), DbPro.use(CONFIG_NAME).queryLong("select count(*) from item where qty between 500 and 549"));
+        }
+    }
+
+    @Test
+    public void recordsGetGeneratedKeys() {
+        List<Map<String, Object>> records = records(5, "name");
+        DbPro.use(CONFIG_NAME).batchSave("item", "id", records, 2);
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), ids(records));
+
+        // 多行插入时每条语句返回多行主键
+        config.setBatchInsertMode(BatchInsertMode.MULTI_ROW);
+        dialect.setMaxInsertRows(2);
+        records = records(5, "name");
+        DbPro.use(CONFIG_NAME).batchSave("item", "id", records, 4);
+        assertEquals(Arrays.asList(6L, 7L, 8L, 9L, 10L), ids(records));
+    }
+
+    @Test
+    public void modelsGetGeneratedKeysWhenEnabled() {
+        List<Item> items = items(3);
+        DbPro.use(CONFIG_NAME).batchSave(items, 2);
+        // 默认不回写
+        for (Item item : items) {
+            assertNull(item.getId());
+        }
+
+        config.setBatchGeneratedKeys(true);
+        items = items(3);
+        DbPro.use(CONFIG_NAME).batchSave(items, 2);
+        assertEquals(Arrays.asList(4L, 5L, 6L), itemIds(items));
+
+        config.setBatchInsertMode(BatchInsertMode.MULTI_ROW);
+        items = items(3);
+        DbPro.use(CONFIG_NAME).batchSave(items, 2);
+        assertEquals(Arrays.asList(7L, 8L, 9L), itemIds(items));
+
+        // 流式批量同样回写
+        items = items(3);
+        DbPro.use(CONFIG_NAME).batchSave(items.iterator(), 2);
+        assertEquals(Arrays.asList(10L, 11L, 12L), itemIds(items));
+        assertEquals(names(3), DbPro.use(CONFIG_NAME).query("select name from item where id > 9 order by id"));
+    }
+
+    @Test
+    public void lastKeyOnlyDriverFailsInsteadOfMisplacingKeys() {
+        for (BatchInsertMode mode : BatchInsertMode.values()) {
+            lastKeyConfig.setBatchInsertMode(mode);
+            List<Map<String, Object>> records = records(3, "name");
+            try {
+                DbPro.use(LAST_KEY_CONFIG_NAME).batchSave("item", "id", records, 3);
+                fail("HyacinthException expected in " + mode);
+            } catch (HyacinthException e) {
+                // 不能把最后一行的主键写到第一行
+                assertNull(records.get(0).get("id"));
+            }
+        }
+    }
+
+    @Test
+    public void lastKeyOnlyDriverInsertsRowByRow() {
+        H2Support.H2Dialect lastKeyDialect = (H2Support.H2Dialect) lastKeyConfig.getDialect();
+        lastKeyDialect.setBatchGeneratedKeys(false);
+        lastKeyConfig.setBatchInsertMode(BatchInsertMode.MULTI_ROW);
+        try {
+            List<Map<String, Object>> records = records(5, "name");
+            int[] result = DbPro.use(LAST_KEY_CONFIG_NAME).batchSave("item", "id", records, 2);
+            assertArrayEquals(new int[]{1, 1, 1, 1, 1}, result);
+            assertTrue(lastKeyDialect.getMultiRowInserts().isEmpty());
+            assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), ids(records));
+            assertEquals(names(5), names());
+        } finally {
+            lastKeyDialect.setBatchGeneratedKeys(true);
+        }
+    }
+
+    /**
+     * 逐行生成参数的迭代器，记录已读取的行数
+     */
+    private static class RowIterator implements Iterator<Object[]> {
+        private final int count;
+        private volatile int pulled;
+
+        RowIterator(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pulled < count;
+        }
+
+        @Override
+        public Object[] next() {
+            int i = pulled++;
+            return new Object[]{"n" + i, i};
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * 通过另一个连接读取已提交的行数
+     */
+    private static long count() {
+        return DbPro.use(CONFIG_NAME).queryLong("select count(*) from item");
+    }
+
+    /**
+     * name 为 n0、n1 ...，qty 与序号相同
+     */
+    private static List<Map<String, Object>> records(int count, String... columns) {
+        List<Map<String, Object>> records = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> record = new HashMap<String, Object>();
+            for (String column : columns) {
+                record.put(column, column.equals("name") ? "n" + i : i);
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < count; i++) {
+            items.add(new Item().setName("n" + i).setQty(i));
+        }
+        return items;
+    }
+
+    private static List<Long> ids(List<Map<String, Object>> records) {
+        List<Long> ids = new ArrayList<Long>();
+        for (Map<String, Object> record : records) {
+            ids.add(((Number) record.get("id")).longValue());
+        }
+        return ids;
+    }
+
+    private static List<Long> itemIds(List<Item> items) {
+        List<Long> ids = new ArrayList<Long>();
+        for (Item item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> names(int count) {
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            names.add("n" + i);
+        }
+        return names;
+    }
+
+    /**
+     * 按自增主键顺序读取表中的 name
+     */
+    private static List<String> names() {
+        return DbPro.use(CONFIG_NAME).query("select name from item order by id");
+    }
+}
@@ -0,0 +1,113 @@
+package test.hyacinth;
+
+import com.github.hyacinth.ColumnarResult;
+import com.github.hyacinth.DbKit;
+import com.github.hyacinth.DbPro;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * 列式结果的二进制读写：按类型写出，拒绝Java序列化数据
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/22
+ * Time: 09:00
+ */
+public class ColumnarTest {
+
+    private static final String CONFIG_NAME = "columnar";
+    private static final String SQL = "select * from metric order by id";
+
+    private static DataSource dataSource;
+
+    @BeforeClass
+    public static void setUp() {
+        dataSource = H2Support.dataSource(CONFIG_NAME);
+        H2Support.execute(dataSource,
+                "create table metric(id bigint, n int, v double, name varchar(20), amount decimal(10, 2), "
+                        + "ts timestamp, day date, raw varbinary(8), flag boolean)",
+                "insert into metric values(1, 10, 1.5, 'a', 12.34, timestamp '2017-11-22 09:00:00.123456789', "
+                        + "date '2017-11-22', X'0102ff', true)",
+                "insert into metric values(2, null, null, null, null, null, null, null, null)",
+                "insert into metric values(3, 30, 3.5, 'a', 0.01, timestamp '2017-11-23 10:00:00', "
+                        + "date '2017-11-23', X'', false)");
+        H2Support.addConfig(CONFIG_NAME, dataSource);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        DbKit.removeConfig(CONFIG_NAME);
+        H2Support.execute(dataSource, "drop table metric");
+    }
+
+    @Test
+    public void roundTripKeepsValues() throws IOException {
+        ColumnarResult result = DbPro.use(CONFIG_NAME).queryColumnar(SQL);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        result.writeTo(out);
+        ColumnarResult copy = ColumnarResult.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(result.getRowCount(), copy.getRowCount());
+        assertEquals(result.getColumnCount(), copy.getColumnCount());
+        for (int row = 0; row < result.getRowCount(); row++) {
+            Object[] expected = result.getRow(row);
+            Object[] actual = copy.getRow(row);
+            for (int i = 0; i < expected.length; i++) {
+                if (expected[i] instanceof byte[]) {
+                    assertArrayEquals((byte[]) expected[i], (byte[]) actual[i]);
+                } else {
+                    assertEquals(expected[i], actual[i]);
+                }
+            }
+        }
+        assertEquals("amount", copy.getColumn(5).getLabel());
+    }
+
+    @Test
+    public void serializedObjectIsRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(new java.util.Date());
+        oos.close();
+        try {
+            ColumnarResult.readFrom(new ByteArrayInputStream(out.toByteArray()));
+            fail("IOException expected");
+        } catch (IOException e) {
+            // 非本格式的数据
+        }
+    }
+
+    @Test
+    public void unknownValueTagIsRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(0x48594332);
+        dos.writeInt(1);
+        dos.writeInt(1);
+        dos.writeByte(5);       //OBJECT 列
+        dos.writeInt(1);
+        dos.write('x');
+        dos.writeInt(java.sql.Types.OTHER);
+        dos.writeInt(1);
+        dos.writeLong(0);       //空值位图
+        dos.writeByte(99);      //未知的值类型
+        dos.close();
+        try {
+            ColumnarResult.readFrom(new ByteArrayInputStream(out.toByteArray()));
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("99"));
+        }
+    }
+}
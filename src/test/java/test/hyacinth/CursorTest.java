@@ -0,0 +1,143 @@
+package test.hyacinth;
+
+import com.github.hyacinth.Cursor;
+import com.github.hyacinth.DbKit;
+import com.github.hyacinth.DbPro;
+import com.github.hyacinth.RowHandler;
+import com.github.hyacinth.Transaction;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 流式查询游标：遍历结束、提前关闭与 each 时释放连接并恢复 autoCommit
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/22
+ * Time: 15:00
+ */
+public class CursorTest {
+
+    private static final String CONFIG_NAME = "cursor";
+    private static final String SQL = "select id from seq order by id";
+
+    private static DataSource dataSource;
+    private static H2Support.Tracker tracker;
+
+    @BeforeClass
+    public static void setUp() {
+        dataSource = H2Support.dataSource(CONFIG_NAME);
+        H2Support.execute(dataSource, "create table seq(id int primary key)",
+                "insert into seq values(1)", "insert into seq values(2)", "insert into seq values(3)");
+        tracker = new H2Support.Tracker(dataSource);
+        H2Support.addConfig(CONFIG_NAME, tracker.getDataSource());
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        DbKit.removeConfig(CONFIG_NAME);
+        H2Support.execute(dataSource, "drop table seq");
+    }
+
+    @Before
+    public void reset() {
+        tracker.reset();
+    }
+
+    @Test
+    public void exhaustionReleasesConnection() {
+        Cursor<Map<String, Object>> cursor = DbPro.use(CONFIG_NAME).cursor(SQL);
+        List<Integer> ids = new ArrayList<Integer>();
+        for (Map<String, Object> row : cursor) {
+            assertEquals(1, tracker.getOpenConnections());
+            ids.add((Integer) row.get("id"));
+        }
+        assertEquals(Arrays.asList(1, 2, 3), ids);
+        assertTrue(cursor.isClosed());
+        assertReleased();
+    }
+
+    @Test
+    public void closeMidIterationReleasesConnection() {
+        Cursor<Map<String, Object>> cursor = DbPro.use(CONFIG_NAME).cursor(SQL);
+        assertEquals(1, cursor.next().get("id"));
+        cursor.close();
+        assertFalse(cursor.hasNext());
+        assertReleased();
+
+        // 重复关闭不会再次释放
+        cursor.close();
+        assertEquals(1, tracker.getAutoCommitOnClose().size());
+    }
+
+    @Test
+    public void eachReleasesConnection() {
+        Cursor<Map<String, Object>> cursor = DbPro.use(CONFIG_NAME).cursor(SQL);
+        assertTrue(cursor.hasNext());
+        final List<Integer> ids = new ArrayList<Integer>();
+        cursor.each(new RowHandler<Map<String, Object>>() {
+            @Override
+            public void handle(Map<String, Object> row) {
+                ids.add((Integer) row.get("id"));
+            }
+        });
+        // 已预读的行同样交给 each 处理
+        assertEquals(Arrays.asList(1, 2, 3), ids);
+        assertTrue(cursor.isClosed());
+        assertReleased();
+    }
+
+    @Test
+    public void eachReleasesConnectionWhenHandlerFails() {
+        Cursor<Map<String, Object>> cursor = DbPro.use(CONFIG_NAME).cursor(SQL);
+        try {
+            cursor.each(new RowHandler<Map<String, Object>>() {
+                @Override
+                public void handle(Map<String, Object> row) {
+                    throw new IllegalStateException("stop");
+                }
+            });
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // 处理第一行时失败
+        }
+        assertTrue(cursor.isClosed());
+        assertReleased();
+    }
+
+    @Test
+    public void transactionConnectionIsKept() {
+        Transaction tx = DbPro.use(CONFIG_NAME).beginTransaction();
+        try {
+            Cursor<Map<String, Object>> cursor = tx.call(new java.util.concurrent.Callable<Cursor<Map<String, Object>>>() {
+                @Override
+                public Cursor<Map<String, Object>> call() {
+                    return DbPro.use(CONFIG_NAME).cursor(SQL);
+                }
+            });
+            cursor.close();
+            assertEquals(1, tracker.getOpenConnections());
+        } finally {
+            tx.close();
+        }
+        assertReleased();
+    }
+
+    /**
+     * 连接已关闭，关闭时 autoCommit 已恢复为 true
+     */
+    private static void assertReleased() {
+        assertEquals(0, tracker.getOpenConnections());
+        assertEquals(Arrays.asList(true), tracker.getAutoCommitOnClose());
+    }
+}
@@ -0,0 +1,268 @@
+package test.hyacinth;
+
+import com.github.hyacinth.Config;
+import com.github.hyacinth.DbKit;
+import com.github.hyacinth.dialect.PostgreSqlDialect;
+import org.h2.jdbcx.JdbcDataSource;
+import org.h2.tools.SimpleResultSet;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于 H2 内存数据库的测试数据源，不依赖外部数据库
+ * <p>
+ * 以 DATABASE_TO_LOWER 模式运行，列名与 PostgreSql 一致为小写，方言使用 PostgreSqlDialect（limit ? offset ?、行值比较、窗口函数）
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/20
+ * Time: 10:00
+ */
+public class H2Support {
+
+    private H2Support() {
+    }
+
+    /**
+     * 同名的内存数据库在同一个JVM中共享，最后一个连接关闭后保留数据
+     */
+    public static DataSource dataSource(String database) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE");
+        dataSource.setUser("sa");
+        dataSource.setPassword("");
+        return dataSource;
+    }
+
+    /**
+     * 模拟只返回最后一行主键的驱动（如 SQLite 的 last_insert_rowid()）：getGeneratedKeys 只保留最后一行
+     */
+    public static DataSource lastKeyOnly(final DataSource dataSource) {
+        return proxy(DataSource.class, dataSource);
+    }
+
+    private static <T> T proxy(final Class<T> type, final T target) {
+        return type.cast(Proxy.newProxyInstance(H2Support.class.getClassLoader(), new Class<?>[]{type}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof Connection)
+                    return proxy(Connection.class, (Connection) result);
+                if (result instanceof PreparedStatement)
+                    return proxy(PreparedStatement.class, (PreparedStatement) result);
+                if (method.getName().equals("getGeneratedKeys"))
+                    return lastRow((ResultSet) result);
+                return result;
+            }
+        }));
+    }
+
+    private static ResultSet lastRow(ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        SimpleResultSet last = new SimpleResultSet();
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            last.addColumn(meta.getColumnLabel(i), meta.getColumnType(i), meta.getPrecision(i), meta.getScale(i));
+        }
+        Object[] row = null;
+        while (rs.next()) {
+            row = new Object[meta.getColumnCount()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+        }
+        rs.close();
+        if (row != null)
+            last.addRow(row);
+        return last;
+    }
+
+    /**
+     * 创建并注册配置
+     */
+    public static Config addConfig(String configName, DataSource dataSource) {
+        Config config = new Config(configName, dataSource, false, new H2Dialect());
+        DbKit.addConfig(config);
+        return config;
+    }
+
+    /**
+     * 直接通过数据源执行Sql，不经过 Config（建表、准备数据）
+     */
+    public static void execute(DataSource dataSource, String... sqls) {
+        Connection conn = null;
+        try {
+            conn = dataSource.getConnection();
+            Statement st = conn.createStatement();
+            for (String sql : sqls) {
+                st.execute(sql);
+            }
+            st.close();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * 记录经过数据源的连接：未关闭的连接数、结果集读取的行数以及连接关闭时的 autoCommit 状态，用于检查连接的释放
+     */
+    public static class Tracker {
+
+        private final DataSource dataSource;
+        private final AtomicInteger openConnections = new AtomicInteger();
+        private final AtomicInteger rowsRead = new AtomicInteger();
+        private final List<Boolean> autoCommitOnClose = Collections.synchronizedList(new ArrayList<Boolean>());
+
+        public Tracker(DataSource dataSource) {
+            this.dataSource = wrap(DataSource.class, dataSource);
+        }
+
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+
+        public int getOpenConnections() {
+            return openConnections.get();
+        }
+
+        /**
+         * ResultSet.next 返回 true 的次数
+         */
+        public int getRowsRead() {
+            return rowsRead.get();
+        }
+
+        public List<Boolean> getAutoCommitOnClose() {
+            return autoCommitOnClose;
+        }
+
+        public void reset() {
+            rowsRead.set(0);
+            autoCommitOnClose.clear();
+        }
+
+        private <T> T wrap(final Class<T> type, final T target) {
+            return type.cast(Proxy.newProxyInstance(H2Support.class.getClassLoader(), new Class<?>[]{type}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if (target instanceof Connection && method.getName().equals("close") && !((Connection) target).isClosed()) {
+                        autoCommitOnClose.add(((Connection) target).getAutoCommit());
+                        openConnections.decrementAndGet();
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (target instanceof ResultSet && method.getName().equals("next") && Boolean.TRUE.equals(result))
+                        rowsRead.incrementAndGet();
+                    if (result instanceof Connection) {
+                        openConnections.incrementAndGet();
+                        return wrap(Connection.class, (Connection) result);
+                    }
+                    if (result instanceof PreparedStatement)
+                        return wrap(PreparedStatement.class, (PreparedStatement) result);
+                    if (result instanceof Statement)
+                        return wrap(Statement.class, (Statement) result);
+                    if (result instanceof ResultSet)
+                        return wrap(ResultSet.class, (ResultSet) result);
+                    return result;
+                }
+            }));
+        }
+    }
+
+    /**
+     * H2 使用的方言
+     */
+    public static class H2Dialect extends PostgreSqlDialect {
+
+        //PageMode.ESTIMATED 使用的估算行数，H2 的执行计划中没有行数；小于0表示不支持估算
+        private volatile long estimatedRows = -1;
+
+        public void setEstimatedRows(long estimatedRows) {
+            this.estimatedRows = estimatedRows;
+        }
+
+        @Override
+        public long estimateRowCount(Connection conn, String sql, Object... paras) {
+            return estimatedRows;
+        }
+
+        //驱动是否按插入顺序返回每一行的主键
+        private volatile boolean batchGeneratedKeys = true;
+
+        public void setBatchGeneratedKeys(boolean batchGeneratedKeys) {
+            this.batchGeneratedKeys = batchGeneratedKeys;
+        }
+
+        @Override
+        public boolean supportsBatchGeneratedKeys() {
+            return batchGeneratedKeys;
+        }
+
+        //多行插入每条语句的行数与参数个数上限，用于检查多行插入的拆分
+        private volatile int maxInsertRows = Integer.MAX_VALUE;
+        private volatile int maxBindParameters = 32767;
+        //forMultiRowInsert 生成的语句的行数
+        private final List<Integer> multiRowInserts = Collections.synchronizedList(new ArrayList<Integer>());
+
+        public void setMaxInsertRows(int maxInsertRows) {
+            this.maxInsertRows = maxInsertRows;
+        }
+
+        public void setMaxBindParameters(int maxBindParameters) {
+            this.maxBindParameters = maxBindParameters;
+        }
+
+        public List<Integer> getMultiRowInserts() {
+            return multiRowInserts;
+        }
+
+        @Override
+        public int getMaxInsertRows() {
+            return maxInsertRows;
+        }
+
+        @Override
+        public int getMaxBindParameters() {
+            return maxBindParameters;
+        }
+
+        @Override
+        public String forMultiRowInsert(String sql, int rows) {
+            String multiRowSql = super.forMultiRowInsert(sql, rows);
+            if (multiRowSql != null) {
+                multiRowInserts.add(rows);
+            }
+            return multiRowSql;
+        }
+    }
+}
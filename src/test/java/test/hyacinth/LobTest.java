@@ -0,0 +1,137 @@
+package test.hyacinth;
+
+import com.github.hyacinth.ColumnReader;
+import com.github.hyacinth.Config;
+import com.github.hyacinth.DbKit;
+import com.github.hyacinth.DbPro;
+import com.github.hyacinth.LobHandle;
+import com.github.hyacinth.LobMode;
+import com.github.hyacinth.RowHandler;
+import com.github.hyacinth.RowView;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 大字段读取方式：LAZY、SPOOL 的读取策略与临时文件的删除
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/21
+ * Time: 10:00
+ */
+public class LobTest {
+
+    private static final String CONFIG_NAME = "lob";
+    private static final String SQL = "select id, body from doc order by id";
+
+    private static DataSource dataSource;
+    private static Config config;
+
+    @BeforeClass
+    public static void setUp() {
+        dataSource = H2Support.dataSource(CONFIG_NAME);
+        H2Support.execute(dataSource, "create table doc(id bigint primary key, body clob)",
+                "insert into doc values(1, 'short')", "insert into doc values(2, repeat('x', 100))");
+        config = H2Support.addConfig(CONFIG_NAME, dataSource);
+        config.setLobSpoolThreshold(10);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        DbKit.removeConfig(CONFIG_NAME);
+        H2Support.execute(dataSource, "drop table doc");
+    }
+
+    @Before
+    public void reset() {
+        config.setLobMode(LobMode.EAGER);
+    }
+
+    @Test
+    public void lobReadersAreShared() {
+        config.setLobMode(LobMode.LAZY);
+        ColumnReader lazy = reader();
+        assertEquals(LobHandle.Text.class, lazy.getValueType());
+
+        // 交替使用不同的读取方式，再次使用 LAZY 时仍为同一个读取策略，映射器缓存按读取策略命中
+        List<Map<String, Object>> spooled = DbPro.use(CONFIG_NAME).find(LobMode.SPOOL, SQL);
+        for (Map<String, Object> row : spooled) {
+            ((LobHandle) row.get("body")).free();
+        }
+        assertSame(lazy, reader());
+    }
+
+    @Test
+    public void lazyFindReadsEagerly() {
+        config.setLobMode(LobMode.LAZY);
+        List<Map<String, Object>> rows = DbPro.use(CONFIG_NAME).find(SQL);
+        assertEquals("short", rows.get(0).get("body"));
+        assertEquals(100, ((String) rows.get(1).get("body")).length());
+        assertEquals(spoolFiles(), spoolFilesAfter(LobMode.LAZY));
+    }
+
+    @Test
+    public void unfreedSpoolFilesAreDeletedAfterCollection() throws InterruptedException {
+        int before = spoolFiles();
+        List<Map<String, Object>> rows = DbPro.use(CONFIG_NAME).find(LobMode.SPOOL, SQL);
+        assertTrue(((LobHandle) rows.get(1).get("body")).isSpooled());
+        assertEquals(before + 1, spoolFiles());
+
+        // 不调用 free，句柄不可达后由下一次写入临时文件时删除
+        rows = null;
+        for (int i = 0; i < 50 && spoolFiles() > before; i++) {
+            System.gc();
+            Thread.sleep(20);
+            spoolFilesAfter(LobMode.SPOOL);
+        }
+        assertEquals(before, spoolFiles());
+    }
+
+    /**
+     * 以指定方式查询并立即释放句柄，返回之后的临时文件数
+     */
+    private static int spoolFilesAfter(LobMode mode) {
+        for (Map<String, Object> row : DbPro.use(CONFIG_NAME).find(mode, SQL)) {
+            Object body = row.get("body");
+            if (body instanceof LobHandle)
+                ((LobHandle) body).free();
+        }
+        return spoolFiles();
+    }
+
+    private static int spoolFiles() {
+        String[] files = new File(System.getProperty("java.io.tmpdir")).list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith("hyacinth-lob-");
+            }
+        });
+        return files == null ? 0 : files.length;
+    }
+
+    /**
+     * 通过行视图获取 body 列的读取策略
+     */
+    private static ColumnReader reader() {
+        final List<ColumnReader> readers = new ArrayList<ColumnReader>();
+        DbPro.use(CONFIG_NAME).scan(SQL, new RowHandler<RowView>() {
+            @Override
+            public void handle(RowView row) {
+                readers.add(row.getReader(2));
+            }
+        });
+        assertEquals(2, readers.size());
+        return readers.get(0);
+    }
+}
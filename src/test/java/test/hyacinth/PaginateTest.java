@@ -0,0 +1,161 @@
+package test.hyacinth;
+
+import com.github.hyacinth.DbKit;
+import com.github.hyacinth.DbPro;
+import com.github.hyacinth.HyacinthException;
+import com.github.hyacinth.Keyset;
+import com.github.hyacinth.PageMode;
+import com.github.hyacinth.ProvidePage;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分页模式：键集分页、不统计总数、估算总数与窗口函数总数
+ * <p>
+ * article 表中 status = 1 的行 id 为 1 ~ 10，grp 为 id / 4（0、0、0、1、1、1、1、2、2、2）
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/20
+ * Time: 11:30
+ */
+public class PaginateTest {
+
+    private static final String CONFIG_NAME = "paginate";
+    private static final String SQL = "select id, grp from article where status = ?";
+
+    private static DataSource dataSource;
+
+    @BeforeClass
+    public static void setUp() {
+        dataSource = H2Support.dataSource(CONFIG_NAME);
+        H2Support.execute(dataSource, "create table article(id bigint primary key, grp int, status int)");
+        for (int id = 1; id <= 12; id++) {
+            H2Support.execute(dataSource, "insert into article values(" + id + ", " + id / 4 + ", " + (id <= 10 ? 1 : 0) + ")");
+        }
+        H2Support.addConfig(CONFIG_NAME, dataSource);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        DbKit.removeConfig(CONFIG_NAME);
+        H2Support.execute(dataSource, "drop table article");
+    }
+
+    @Test
+    public void keysetFollowsCursor() {
+        DbPro db = DbPro.use(CONFIG_NAME);
+        List<List<Long>> pages = new ArrayList<List<Long>>();
+        String cursor = null;
+        do {
+            ProvidePage<Map<String, Object>> page = db.paginateByKeyset(3, SQL, Keyset.by("id").after(cursor), 1);
+            pages.add(ids(page.getList()));
+            cursor = page.getNextCursor();
+            assertEquals(cursor != null, page.isHasNext());
+        } while (cursor != null);
+        assertEquals(Arrays.asList(Arrays.asList(1L, 2L, 3L), Arrays.asList(4L, 5L, 6L),
+                Arrays.asList(7L, 8L, 9L), Arrays.asList(10L)), pages);
+    }
+
+    @Test
+    public void keysetDescendingOnCompositeKey() {
+        DbPro db = DbPro.use(CONFIG_NAME);
+        ProvidePage<Map<String, Object>> first = db.paginateByKeyset(4, SQL, Keyset.by("grp", "id").desc(), 1);
+        assertEquals(Arrays.asList(10L, 9L, 8L, 7L), ids(first.getList()));
+
+        // 第二页跨越 grp 的分界，需同时比较两列
+        ProvidePage<Map<String, Object>> second = db.paginateByKeyset(4, SQL,
+                Keyset.by("grp", "id").desc().after(first.getNextCursor()), 1);
+        assertEquals(Arrays.asList(6L, 5L, 4L, 3L), ids(second.getList()));
+        assertEquals(2, second.getPageNumber());
+    }
+
+    @Test(expected = HyacinthException.class)
+    public void keysetRejectsForeignCursor() {
+        String cursor = DbPro.use(CONFIG_NAME).paginateByKeyset(3, SQL, Keyset.by("id"), 1).getNextCursor();
+        Keyset.by("grp", "id").after(cursor);
+    }
+
+    @Test
+    public void noCountReadsOneExtraRow() {
+        DbPro db = DbPro.use(CONFIG_NAME);
+        ProvidePage<Map<String, Object>> page = db.paginate(PageMode.NO_COUNT, 2, 4, SQL, 1);
+        assertEquals(Arrays.asList(5L, 6L, 7L, 8L), ids(page.getList()));
+        assertEquals(PageMode.NO_COUNT, page.getMode());
+        assertTrue(page.isHasNext());
+        assertEquals(-1, page.getTotalRow());
+        assertEquals(-1, page.getTotalPage());
+
+        page = db.paginate(PageMode.NO_COUNT, 3, 4, SQL, 1);
+        assertEquals(Arrays.asList(9L, 10L), ids(page.getList()));
+        assertFalse(page.isHasNext());
+    }
+
+    @Test
+    public void estimatedTotal() {
+        DbPro db = DbPro.use(CONFIG_NAME);
+        H2Support.H2Dialect dialect = (H2Support.H2Dialect) DbKit.getConfig(CONFIG_NAME).getDialect();
+        dialect.setEstimatedRows(50);
+        try {
+            ProvidePage<Map<String, Object>> page = db.paginate(PageMode.ESTIMATED, 1, 4, SQL, 1);
+            assertEquals(PageMode.ESTIMATED, page.getMode());
+            assertTrue(page.isApproximate());
+            assertEquals(50, page.getTotalRow());
+            assertEquals(13, page.getTotalPage());
+
+            // 读到最后一页时总数是精确的
+            page = db.paginate(PageMode.ESTIMATED, 3, 4, SQL, 1);
+            assertEquals(Arrays.asList(9L, 10L), ids(page.getList()));
+            assertFalse(page.isApproximate());
+            assertEquals(10, page.getTotalRow());
+
+            // 无法估算时退化为 EXACT
+            dialect.setEstimatedRows(-1);
+            page = db.paginate(PageMode.ESTIMATED, 1, 4, SQL, 1);
+            assertEquals(PageMode.EXACT, page.getMode());
+            assertEquals(10, page.getTotalRow());
+            assertEquals(3, page.getTotalPage());
+        } finally {
+            dialect.setEstimatedRows(-1);
+        }
+    }
+
+    @Test
+    public void windowTotalInOneQuery() {
+        DbPro db = DbPro.use(CONFIG_NAME);
+        ProvidePage<Map<String, Object>> page = db.paginate(PageMode.WINDOW, 2, 4, SQL, 1);
+        assertEquals(PageMode.WINDOW, page.getMode());
+        assertEquals(Arrays.asList(5L, 6L, 7L, 8L), ids(page.getList()));
+        assertEquals(10, page.getTotalRow());
+        assertEquals(3, page.getTotalPage());
+        // 总数列不出现在结果中
+        assertEquals(2, page.getList().get(0).size());
+
+        // 超出最后一页时另外执行 count 查询
+        page = db.paginate(PageMode.WINDOW, 5, 4, SQL, 1);
+        assertTrue(page.getList().isEmpty());
+        assertEquals(10, page.getTotalRow());
+
+        // distinct 查询不能追加窗口函数，退化为 EXACT
+        page = db.paginate(PageMode.WINDOW, 1, 4, "select distinct grp from article where status = ?", 1);
+        assertEquals(PageMode.EXACT, page.getMode());
+        assertEquals(3, page.getList().size());
+    }
+
+    static List<Long> ids(List<Map<String, Object>> rows) {
+        List<Long> ids = new ArrayList<Long>();
+        for (Map<String, Object> row : rows) {
+            ids.add(((Number) row.get("id")).longValue());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,162 @@
+package test.hyacinth;
+
+import com.github.hyacinth.DbKit;
+import com.github.hyacinth.DbPro;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 查询结果发布者：按请求量读取、取消时释放连接、非法请求量与 onNext 中的重入请求
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/22
+ * Time: 14:00
+ */
+public class QueryPublisherTest {
+
+    private static final String CONFIG_NAME = "publisher";
+    private static final String SQL = "select id from seq order by id";
+
+    private static DataSource dataSource;
+    private static H2Support.Tracker tracker;
+
+    @BeforeClass
+    public static void setUp() {
+        dataSource = H2Support.dataSource(CONFIG_NAME);
+        H2Support.execute(dataSource, "create table seq(id int primary key)");
+        for (int i = 1; i <= 10; i++) {
+            H2Support.execute(dataSource, "insert into seq values(" + i + ")");
+        }
+        tracker = new H2Support.Tracker(dataSource);
+        H2Support.addConfig(CONFIG_NAME, tracker.getDataSource());
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        DbKit.removeConfig(CONFIG_NAME);
+        H2Support.execute(dataSource, "drop table seq");
+    }
+
+    @Before
+    public void reset() {
+        tracker.reset();
+    }
+
+    @Test
+    public void boundedRequestReadsOnlyRequestedRows() {
+        RecordingSubscriber subscriber = subscribe();
+        subscriber.subscription.request(3);
+        assertEquals(Arrays.asList(1, 2, 3), subscriber.ids);
+        assertEquals(3, tracker.getRowsRead());
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(2);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), subscriber.ids);
+        assertEquals(5, tracker.getRowsRead());
+        subscriber.subscription.cancel();
+    }
+
+    @Test
+    public void cancelReleasesConnection() {
+        RecordingSubscriber subscriber = subscribe();
+        subscriber.subscription.request(2);
+        assertEquals(1, tracker.getOpenConnections());
+
+        subscriber.subscription.cancel();
+        assertEquals(0, tracker.getOpenConnections());
+        // 流式读取时关闭的 autoCommit 在释放连接前恢复
+        assertEquals(Arrays.asList(true), tracker.getAutoCommitOnClose());
+
+        subscriber.subscription.request(5);
+        assertEquals(2, subscriber.ids.size());
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void nonPositiveRequestSignalsError() {
+        RecordingSubscriber subscriber = subscribe();
+        subscriber.subscription.request(1);
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertEquals(0, tracker.getOpenConnections());
+
+        subscriber.subscription.request(1);
+        assertEquals(1, subscriber.ids.size());
+    }
+
+    @Test
+    public void reentrantRequestFromOnNext() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onNext(Map<String, Object> row) {
+                depth++;
+                maxDepth = Math.max(maxDepth, depth);
+                super.onNext(row);
+                subscription.request(1);
+                depth--;
+            }
+        };
+        publisher().subscribe(subscriber);
+        subscriber.subscription.request(1);
+
+        // onNext 中的请求由当前读取循环继续发送，不会递归调用 onNext
+        assertEquals(10, subscriber.ids.size());
+        assertEquals(1, subscriber.maxDepth);
+        assertTrue(subscriber.completed);
+        assertEquals(0, tracker.getOpenConnections());
+    }
+
+    private static Publisher<Map<String, Object>> publisher() {
+        return DbPro.use(CONFIG_NAME).publish(SQL);
+    }
+
+    private static RecordingSubscriber subscribe() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher().subscribe(subscriber);
+        return subscriber;
+    }
+
+    private static class RecordingSubscriber implements Subscriber<Map<String, Object>> {
+        final List<Integer> ids = new ArrayList<Integer>();
+        Subscription subscription;
+        boolean completed;
+        Throwable error;
+        int depth;
+        int maxDepth;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Map<String, Object> row) {
+            ids.add((Integer) row.get("id"));
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package test.hyacinth;
+
+import com.github.hyacinth.Config;
+import com.github.hyacinth.DbKit;
+import com.github.hyacinth.DbPro;
+import com.github.hyacinth.Transaction;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.*;
+
+/**
+ * 读写分离：读操作使用副本，写操作、事务以及"读己之写"窗口内的读操作使用主库
+ * <p>
+ * 主库与副本是两个独立的数据库，marker 表中的值标识实际读取的数据源
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/20
+ * Time: 11:00
+ */
+public class ReplicaRoutingTest {
+
+    private static final String CONFIG_NAME = "replica_routing";
+    private static final String MARKER_SQL = "select name from marker";
+
+    private static DataSource primary;
+    private static DataSource replica;
+    private static Config config;
+
+    @BeforeClass
+    public static void setUp() {
+        primary = H2Support.dataSource("replica_routing_primary");
+        replica = H2Support.dataSource("replica_routing_replica");
+        H2Support.execute(primary, "create table marker(name varchar(20))", "insert into marker values('primary')",
+                "create table counter(n int)", "insert into counter values(0)");
+        H2Support.execute(replica, "create table marker(name varchar(20))", "insert into marker values('replica')");
+        config = H2Support.addConfig(CONFIG_NAME, primary);
+        config.addReplica(replica);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        DbKit.removeConfig(CONFIG_NAME);
+        H2Support.execute(primary, "drop table marker", "drop table counter");
+        H2Support.execute(replica, "drop table marker");
+    }
+
+    @Before
+    public void reset() {
+        config.setReadYourWritesWindow(0);
+        config.getTransactionContext().setLastWriteTime(config, 0);
+    }
+
+    @Test
+    public void readsUseReplicaAndWritesUsePrimary() {
+        DbPro db = DbPro.use(CONFIG_NAME);
+        assertEquals("replica", db.queryStr(MARKER_SQL));
+        assertEquals(1, db.update("update counter set n = n + 1"));
+        // 未开启"读己之写"时，写之后的读仍然使用副本
+        assertEquals("replica", db.queryStr(MARKER_SQL));
+    }
+
+    @Test
+    public void transactionReadsUsePrimary() {
+        Transaction tx = DbPro.use(CONFIG_NAME).beginTransaction();
+        try {
+            String name = tx.call(new Callable<String>() {
+                @Override
+                public String call() {
+                    return DbPro.use(CONFIG_NAME).queryStr(MARKER_SQL);
+                }
+            });
+            assertEquals("primary", name);
+            tx.commit();
+        } finally {
+            tx.close();
+        }
+    }
+
+    @Test
+    public void readYourWritesWindow() throws Exception {
+        config.setReadYourWritesWindow(60000);
+        final DbPro db = DbPro.use(CONFIG_NAME);
+        db.update("update counter set n = n + 1");
+        assertEquals("primary", db.queryStr(MARKER_SQL));
+        // 通过 async 提交的读操作沿用提交时的写操作时间
+        assertEquals("primary", db.async().queryFirst(MARKER_SQL).get());
+
+        // 其他线程没有写操作，仍然读取副本
+        final String[] other = new String[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                other[0] = db.queryStr(MARKER_SQL);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals("replica", other[0]);
+    }
+}
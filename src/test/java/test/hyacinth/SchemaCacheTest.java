@@ -0,0 +1,95 @@
+package test.hyacinth;
+
+import com.github.hyacinth.Config;
+import com.github.hyacinth.DbKit;
+import com.github.hyacinth.DbPro;
+import com.github.hyacinth.HyacinthException;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 结果集列结构缓存：列数不变的表结构变更
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/21
+ * Time: 11:00
+ */
+public class SchemaCacheTest {
+
+    private static final String CONFIG_NAME = "schema_cache";
+    private static final String SQL = "select * from shape";
+
+    private static DataSource dataSource;
+    private static Config config;
+
+    @BeforeClass
+    public static void setUp() {
+        dataSource = H2Support.dataSource(CONFIG_NAME);
+        config = H2Support.addConfig(CONFIG_NAME, dataSource);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        DbKit.removeConfig(CONFIG_NAME);
+    }
+
+    @Before
+    public void createTable() {
+        H2Support.execute(dataSource, "create table shape(id int, a int, b varchar(10))", "insert into shape values(1, 2, 'x')");
+        config.clearSchemaCache();
+        config.setStrictSchemaCheck(false);
+    }
+
+    @After
+    public void dropTable() {
+        H2Support.execute(dataSource, "drop table shape");
+    }
+
+    @Test
+    public void strictCheckDetectsRenamedMiddleColumn() {
+        config.setStrictSchemaCheck(true);
+        assertTrue(first().containsKey("a"));
+        H2Support.execute(dataSource, "alter table shape alter column a rename to c");
+
+        Map<String, Object> row = first();
+        assertFalse(row.containsKey("a"));
+        assertEquals(2, row.get("c"));
+    }
+
+    @Test
+    public void defaultCheckOnlyComparesFirstAndLastLabel() {
+        assertTrue(first().containsKey("a"));
+        H2Support.execute(dataSource, "alter table shape alter column a rename to c");
+        // 列数与首尾列名不变，沿用缓存的列结构
+        assertTrue(first().containsKey("a"));
+
+        H2Support.execute(dataSource, "alter table shape add column d int");
+        assertTrue(first().containsKey("c"));
+    }
+
+    @Test
+    public void mappingErrorEvictsCachedSchema() {
+        assertEquals(2, first().get("a"));
+        H2Support.execute(dataSource, "alter table shape alter column a varchar(10)", "update shape set a = 'y'");
+        try {
+            first();
+            fail("HyacinthException expected");
+        } catch (HyacinthException e) {
+            // 缓存的列结构按 int 读取已改为 varchar 的列
+        }
+        assertEquals("y", first().get("a"));
+    }
+
+    private static Map<String, Object> first() {
+        return DbPro.use(CONFIG_NAME).find(SQL).get(0);
+    }
+}
@@ -0,0 +1,190 @@
+package test.hyacinth;
+
+import com.github.hyacinth.Db;
+import com.github.hyacinth.DbKit;
+import com.github.hyacinth.DbPro;
+import com.github.hyacinth.HashShardStrategy;
+import com.github.hyacinth.HyacinthException;
+import com.github.hyacinth.Model;
+import com.github.hyacinth.ScatterQuery;
+import com.github.hyacinth.ShardRouter;
+import com.github.hyacinth.TableBuilder;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import test.hyacinth.model.Order;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * ShardRouter：按分片键路由写操作与按主键查询，未指定分片的查询在所有分片上执行，批量操作按分片拆分后保持输入顺序；
+ * 按表名注册的规则路由 Db/DbPro 按表名的写操作
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/20
+ * Time: 10:30
+ */
+public class ShardRouterTest {
+
+    //id 为偶数的订单在 SHARD0，奇数在 SHARD1
+    private static final String SHARD0 = "order_shard0";
+    private static final String SHARD1 = "order_shard1";
+
+    private static final DataSource[] dataSources = new DataSource[2];
+
+    @BeforeClass
+    public static void setUp() {
+        String[] names = {SHARD0, SHARD1};
+        for (int i = 0; i < names.length; i++) {
+            dataSources[i] = H2Support.dataSource(names[i]);
+            H2Support.execute(dataSources[i], "create table t_order(id bigint primary key, user_id bigint, amount int)");
+            H2Support.addConfig(names[i], dataSources[i]);
+        }
+        List<Class<? extends Model<?>>> models = new ArrayList<Class<? extends Model<?>>>();
+        models.add(Order.class);
+        new TableBuilder().build(models, DbKit.getConfig(SHARD0));
+        ShardRouter.me().addRule(Order.class, "id", new HashShardStrategy(SHARD0, SHARD1));
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        ShardRouter.me().removeRule(Order.class);
+        DbKit.removeConfig(SHARD0);
+        DbKit.removeConfig(SHARD1);
+        for (DataSource dataSource : dataSources) {
+            H2Support.execute(dataSource, "drop table t_order");
+        }
+    }
+
+    @Before
+    public void clean() {
+        for (DataSource dataSource : dataSources) {
+            H2Support.execute(dataSource, "delete from t_order");
+        }
+    }
+
+    @Test
+    public void saveRoutesByShardKey() {
+        for (long id = 1; id <= 4; id++) {
+            assertTrue(new Order().setId(id).setUserId(100L).setAmount((int) id * 10).save());
+        }
+        assertEquals(Arrays.asList(2L, 4L), ids(DbPro.use(SHARD0).find("select id from t_order order by id")));
+        assertEquals(Arrays.asList(1L, 3L), ids(DbPro.use(SHARD1).find("select id from t_order order by id")));
+
+        // 分片列即主键，按主键路由到单个分片
+        assertEquals(Integer.valueOf(30), Order.dao.findById(3L).getAmount());
+        assertTrue(Order.dao.deleteById(3L));
+        assertNull(Order.dao.findById(3L));
+    }
+
+    @Test
+    public void queryWithoutShardRunsOnAllShards() {
+        for (long id = 1; id <= 5; id++) {
+            new Order().setId(id).setUserId(100L).setAmount(0).save();
+        }
+        assertEquals(5, Order.dao.findAll().size());
+        assertEquals(2, new Order().shard(2L).findAll().size());
+
+        List<Map<String, Object>> merged = ScatterQuery.on(SHARD0, SHARD1).orderBy("id desc").limit(3)
+                .find("select id from t_order order by id desc").getList();
+        assertEquals(Arrays.asList(5L, 4L, 3L), ids(merged));
+    }
+
+    @Test(expected = HyacinthException.class)
+    public void paginateWithoutShardFails() {
+        Order.dao.paginate(1, 10);
+    }
+
+    @Test
+    public void batchKeepsInputOrder() {
+        List<Order> orders = new ArrayList<Order>();
+        for (long id = 1; id <= 6; id++) {
+            orders.add(new Order().setId(id).setUserId(100L).setAmount(0));
+        }
+        int[] saved = Db.batchSave(orders, 2);
+        assertArrayEquals(new int[]{1, 1, 1, 1, 1, 1}, saved);
+        assertEquals(Long.valueOf(3), DbPro.use(SHARD0).queryLong("select count(*) from t_order"));
+        assertEquals(Long.valueOf(3), DbPro.use(SHARD1).queryLong("select count(*) from t_order"));
+
+        // 不存在的行更新结果为 0，结果按输入位置回填
+        List<Order> updates = new ArrayList<Order>();
+        for (long id : new long[]{1, 7, 2, 8, 3}) {
+            updates.add(new Order().setId(id).setAmount(1));
+        }
+        assertArrayEquals(new int[]{1, 0, 1, 0, 1}, Db.batchUpdate(updates, 2));
+    }
+
+    @Test
+    public void tableRuleRoutesRecordWrites() {
+        ShardRouter.me().addRule("t_order", "id", new HashShardStrategy(SHARD0, SHARD1));
+        try {
+            // 从任意数据源写入都按分片列路由
+            assertTrue(Db.save("t_order", record(1, 10)));
+            assertTrue(DbPro.use(SHARD0).save("t_order", record(3, 30)));
+            assertArrayEquals(new int[]{1, 1}, Db.batchSave("t_order", "id", Arrays.asList(record(2, 20), record(5, 50)), 10));
+            assertEquals(Arrays.asList(2L), ids(DbPro.use(SHARD0).find("select id from t_order order by id")));
+            assertEquals(Arrays.asList(1L, 3L, 5L), ids(DbPro.use(SHARD1).find("select id from t_order order by id")));
+
+            assertTrue(Db.update("t_order", record(3, 31)));
+            assertArrayEquals(new int[]{1, 1, 0}, Db.batchUpdate("t_order", Arrays.asList(record(1, 11), record(2, 21), record(4, 41)), 10));
+            assertEquals(Integer.valueOf(31), DbPro.use(SHARD1).queryInt("select amount from t_order where id = 3"));
+            assertEquals(Integer.valueOf(21), DbPro.use(SHARD0).queryInt("select amount from t_order where id = 2"));
+
+            assertTrue(Db.deleteById("t_order", 5L));
+            assertTrue(Db.deleteById("t_order", record(1, 0)));
+            assertEquals(Arrays.asList(3L), ids(DbPro.use(SHARD1).find("select id from t_order order by id")));
+        } finally {
+            ShardRouter.me().removeRule("t_order");
+        }
+    }
+
+    @Test(expected = HyacinthException.class)
+    public void tableRuleRejectsStreamingWritesOutsideShards() {
+        ShardRouter.me().addRule("t_order", "id", new HashShardStrategy(SHARD0, SHARD1));
+        DataSource main = H2Support.dataSource("order_main");
+        H2Support.execute(main, "create table t_order(id bigint primary key, user_id bigint, amount int)");
+        H2Support.addConfig("order_main", main);
+        try {
+            // 流式批量无法按分片拆分，不能写入非分片的数据源
+            DbPro.use("order_main").batchSave("t_order", Arrays.asList(record(1, 0)).iterator(), 10);
+        } finally {
+            DbKit.removeConfig("order_main");
+            H2Support.execute(main, "drop table t_order");
+            ShardRouter.me().removeRule("t_order");
+        }
+    }
+
+    @Test(expected = HyacinthException.class)
+    public void tableRuleRejectsDeleteByNonShardKey() {
+        ShardRouter.me().addRule("t_order", "user_id", new HashShardStrategy(SHARD0, SHARD1));
+        try {
+            Db.deleteById("t_order", 1L);
+        } finally {
+            ShardRouter.me().removeRule("t_order");
+        }
+    }
+
+    private static Map<String, Object> record(long id, int amount) {
+        Map<String, Object> record = new HashMap<String, Object>();
+        record.put("id", id);
+        record.put("amount", amount);
+        return record;
+    }
+
+    private static List<Long> ids(List<Map<String, Object>> rows) {
+        List<Long> ids = new ArrayList<Long>();
+        for (Map<String, Object> row : rows) {
+            ids.add(((Number) row.get("id")).longValue());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,127 @@
+package test.hyacinth;
+
+import com.github.hyacinth.Config;
+import com.github.hyacinth.DbKit;
+import com.github.hyacinth.DbPro;
+import com.github.hyacinth.Transaction;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+
+/**
+ * 连接上的语句缓存：复用、LRU淘汰、嵌套使用与连接关闭
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/22
+ * Time: 10:00
+ */
+public class StatementCacheTest {
+
+    private static final String CONFIG_NAME = "statement_cache";
+
+    private static DataSource dataSource;
+    private static Config config;
+
+    private Connection conn;
+
+    @BeforeClass
+    public static void setUp() {
+        dataSource = H2Support.dataSource(CONFIG_NAME);
+        H2Support.execute(dataSource, "create table counter(id int primary key, n int)", "insert into counter values(1, 0)");
+        config = H2Support.addConfig(CONFIG_NAME, dataSource);
+        config.setStatementCacheSize(2);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        DbKit.removeConfig(CONFIG_NAME);
+        H2Support.execute(dataSource, "drop table counter");
+    }
+
+    @Before
+    public void openConnection() throws SQLException {
+        conn = config.getConnection();
+    }
+
+    @After
+    public void closeConnection() {
+        config.close(conn);
+    }
+
+    @Test
+    public void transactionReusesStatement() {
+        long hits = config.getStatementCacheHits();
+        long misses = config.getStatementCacheMisses();
+        Transaction tx = DbPro.use(CONFIG_NAME).beginTransaction();
+        try {
+            tx.run(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 3; i++) {
+                        DbPro.use(CONFIG_NAME).update("update counter set n = n + 1 where id = ?", 1);
+                    }
+                }
+            });
+            tx.commit();
+        } finally {
+            tx.close();
+        }
+        // 首次执行预编译，之后两次从缓存取出
+        assertEquals(misses + 1, config.getStatementCacheMisses());
+        assertEquals(hits + 2, config.getStatementCacheHits());
+    }
+
+    @Test
+    public void evictedStatementIsClosed() throws SQLException {
+        PreparedStatement first = prepareAndRelease("select 1");
+        PreparedStatement second = prepareAndRelease("select 2");
+        PreparedStatement third = prepareAndRelease("select 3");
+
+        // 容量为 2，最久未使用的 first 被淘汰并关闭
+        assertTrue(first.isClosed());
+        assertFalse(second.isClosed());
+        assertFalse(third.isClosed());
+        assertNotSame(first, config.prepareStatement(conn, "select 1"));
+    }
+
+    @Test
+    public void nestedUseCreatesAnotherStatement() throws SQLException {
+        PreparedStatement outer = config.prepareStatement(conn, "select 1");
+        PreparedStatement inner = config.prepareStatement(conn, "select 1");
+        assertNotSame(outer, inner);
+
+        config.release(conn, inner);
+        config.release(conn, outer);
+        // 同一Sql只缓存一个语句，后放回的替换先放回的并关闭被替换的语句
+        assertTrue(inner.isClosed());
+        assertFalse(outer.isClosed());
+        assertSame(outer, config.prepareStatement(conn, "select 1"));
+    }
+
+    @Test
+    public void closingConnectionClosesStatements() throws SQLException {
+        PreparedStatement idle = prepareAndRelease("select 1");
+        PreparedStatement inUse = config.prepareStatement(conn, "select 2");
+
+        config.close(conn);
+        assertTrue(idle.isClosed());
+        assertTrue(inUse.isClosed());
+        assertTrue(conn.isClosed());
+    }
+
+    private PreparedStatement prepareAndRelease(String sql) throws SQLException {
+        PreparedStatement pst = config.prepareStatement(conn, sql);
+        config.release(conn, pst);
+        return pst;
+    }
+}
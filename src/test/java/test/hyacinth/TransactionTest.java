@@ -0,0 +1,142 @@
+package test.hyacinth;
+
+import com.github.hyacinth.Config;
+import com.github.hyacinth.DbKit;
+import com.github.hyacinth.DbPro;
+import com.github.hyacinth.Transaction;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 显式传递的事务：跨线程使用、上下文绑定的恢复与关闭时回滚
+ * <p>
+ * Author: luoyong
+ * Email: lcrysman@gmail.com
+ * Date: 2017/11/22
+ * Time: 11:00
+ */
+public class TransactionTest {
+
+    private static final String CONFIG_NAME = "transaction";
+    private static final String SESSION_SQL = "select session_id()";
+
+    private static DataSource dataSource;
+    private static Config config;
+
+    @BeforeClass
+    public static void setUp() {
+        dataSource = H2Support.dataSource(CONFIG_NAME);
+        H2Support.execute(dataSource, "create table account(id int primary key, cash int)");
+        config = H2Support.addConfig(CONFIG_NAME, dataSource);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        DbKit.removeConfig(CONFIG_NAME);
+        H2Support.execute(dataSource, "drop table account");
+    }
+
+    @Before
+    public void clear() {
+        H2Support.execute(dataSource, "delete from account");
+    }
+
+    @Test
+    public void otherThreadUsesTransactionConnection() throws Exception {
+        final Transaction tx = DbPro.use(CONFIG_NAME).beginTransaction();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Integer session = executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return tx.call(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            DbPro.use(CONFIG_NAME).update("insert into account values(?, ?)", 1, 100);
+                            return DbPro.use(CONFIG_NAME).queryInt(SESSION_SQL);
+                        }
+                    });
+                }
+            }).get();
+            assertEquals(session, tx.call(session()));
+            // 提交前其他连接看不到插入的行
+            assertEquals(0L, count());
+
+            tx.commit();
+            assertEquals(1L, count());
+        } finally {
+            tx.close();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void callRestoresPreviousBinding() {
+        final Transaction outer = DbPro.use(CONFIG_NAME).beginTransaction();
+        final Transaction inner = DbPro.use(CONFIG_NAME).beginTransaction();
+        try {
+            final Integer innerSession = inner.call(session());
+            outer.run(new Runnable() {
+                @Override
+                public void run() {
+                    Integer outerSession = DbPro.use(CONFIG_NAME).queryInt(SESSION_SQL);
+                    assertNotEquals(innerSession, outerSession);
+                    assertEquals(innerSession, inner.call(session()));
+                    // inner.call 结束后恢复 outer 的连接
+                    assertEquals(outerSession, DbPro.use(CONFIG_NAME).queryInt(SESSION_SQL));
+                    assertTrue(config.isInTransaction());
+                }
+            });
+            assertFalse(config.isInTransaction());
+        } finally {
+            inner.close();
+            outer.close();
+        }
+    }
+
+    @Test
+    public void closeRollsBackUncommittedWork() {
+        Transaction tx = DbPro.use(CONFIG_NAME).beginTransaction();
+        try {
+            tx.run(insert(1));
+            tx.commit();
+            tx.run(insert(2));
+        } finally {
+            tx.close();
+        }
+        assertTrue(tx.isClosed());
+        assertEquals(1L, count());
+        assertEquals(Integer.valueOf(1), DbPro.use(CONFIG_NAME).queryInt("select id from account"));
+    }
+
+    private static Callable<Integer> session() {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return DbPro.use(CONFIG_NAME).queryInt(SESSION_SQL);
+            }
+        };
+    }
+
+    private static Runnable insert(final int id) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                DbPro.use(CONFIG_NAME).update("insert into account values(?, ?)", id, 100);
+            }
+        };
+    }
+
+    private static long count() {
+        return DbPro.use(CONFIG_NAME).queryLong("select count(*) from account");
+    }
+}
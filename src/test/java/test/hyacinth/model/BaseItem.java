@@ -0,0 +1,45 @@
+package test.hyacinth.model;
+
+import com.github.hyacinth.Model;
+import com.github.hyacinth.annotation.Table;
+import com.github.hyacinth.annotation.Column;
+import com.github.hyacinth.annotation.PrimaryKey;
+
+/**
+ * Generated by hyacinth, do not modify this file.
+ */
+@Table(name = "item")
+public abstract class BaseItem<M extends BaseItem<M>> extends Model<M> {
+
+	public M setId(Long id) {
+		set("id", id);
+		return (M)this;
+	}
+
+	@PrimaryKey
+	@Column(name = "id", type = "BIGINT", nullAble = false, defaultValue = "", comment = "")
+	public Long getId() {
+		return get("id");
+	}
+
+	public M setName(String name) {
+		set("name", name);
+		return (M)this;
+	}
+
+	@Column(name = "name", type = "VARCHAR", nullAble = true, defaultValue = "", comment = "")
+	public String getName() {
+		return get("name");
+	}
+
+	public M setQty(Integer qty) {
+		set("qty", qty);
+		return (M)this;
+	}
+
+	@Column(name = "qty", type = "INTEGER", nullAble = true, defaultValue = "", comment = "")
+	public Integer getQty() {
+		return get("qty");
+	}
+
+}
@@ -0,0 +1,45 @@
+package test.hyacinth.model;
+
+import com.github.hyacinth.Model;
+import com.github.hyacinth.annotation.Table;
+import com.github.hyacinth.annotation.Column;
+import com.github.hyacinth.annotation.PrimaryKey;
+
+/**
+ * Generated by hyacinth, do not modify this file.
+ */
+@Table(name = "t_order")
+public abstract class BaseOrder<M extends BaseOrder<M>> extends Model<M> {
+
+	public M setId(Long id) {
+		set("id", id);
+		return (M)this;
+	}
+
+	@PrimaryKey
+	@Column(name = "id", type = "BIGINT", nullAble = false, defaultValue = "", comment = "")
+	public Long getId() {
+		return get("id");
+	}
+
+	public M setUserId(Long userId) {
+		set("user_id", userId);
+		return (M)this;
+	}
+
+	@Column(name = "user_id", type = "BIGINT", nullAble = true, defaultValue = "", comment = "")
+	public Long getUserId() {
+		return get("user_id");
+	}
+
+	public M setAmount(Integer amount) {
+		set("amount", amount);
+		return (M)this;
+	}
+
+	@Column(name = "amount", type = "INTEGER", nullAble = true, defaultValue = "", comment = "")
+	public Integer getAmount() {
+		return get("amount");
+	}
+
+}
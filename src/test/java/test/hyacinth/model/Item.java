@@ -0,0 +1,8 @@
+package test.hyacinth.model;
+
+/**
+ * Generated by hyacinth.
+ */
+public class Item extends BaseItem<Item> {
+	public static final Item dao = new Item().dao();
+}
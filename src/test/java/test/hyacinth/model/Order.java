@@ -0,0 +1,8 @@
+package test.hyacinth.model;
+
+/**
+ * Generated by hyacinth.
+ */
+public class Order extends BaseOrder<Order> {
+	public static final Order dao = new Order().dao();
+}